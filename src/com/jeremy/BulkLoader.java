@@ -0,0 +1,180 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * Loads TableData through a database's native bulk protocol rather than INSERT statements.
+ * Rows are encoded one at a time into tab separated text as the database reads them, so the
+ * whole table is never copied into a single buffer.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+abstract class BulkLoader {
+
+	/**
+	 * Gets the bulk loader for the designated SQL database type
+	 *
+	 * @param sqlType - The SQL database type being loaded
+	 * @return the bulk loader, or null if the bundled driver has no bulk API for the database
+	 */
+	static BulkLoader getInstance(SQLType sqlType) {
+		if (sqlType == SQLType.POSTGRESQL) {
+			return new PostgreSQLCopyLoader();
+		} else if (sqlType == SQLType.MYSQL) {
+			return new MySQLLoadDataLoader();
+		}
+		return null;
+	}
+
+	/**
+	 * Loads rows of the table data into the table
+	 *
+	 * @param connection - An open connection to the database holding the table
+	 * @param tableName - The name of the table to load
+	 * @param fields - The comma separated list of columns being loaded
+	 * @param data - The rows to load
+	 * @param first - The first row to load
+	 * @param last - The row to stop loading at, this row is not loaded
+	 * @return the number of rows the database reports as loaded
+	 * @throws SQLException
+	 */
+	abstract long load(Connection connection, String tableName, String fields, TableData data, int first, int last) throws SQLException;
+
+	/**
+	 * Uses PostgreSQL's COPY ... FROM STDIN through the driver's copy API
+	 */
+	private static class PostgreSQLCopyLoader extends BulkLoader {
+		@Override
+		long load(Connection connection, String tableName, String fields, TableData data, int first, int last) throws SQLException {
+			CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+			String copy = "COPY " + tableName + "(" + fields + ") FROM STDIN";
+			try {
+				return copyManager.copyIn(copy, new RowEncoder(data, first, last));
+			} catch (IOException e) {
+				throw new SQLException("Error streaming rows to COPY", e);
+			}
+		}
+	}
+
+	/**
+	 * Uses MySQL's LOAD DATA LOCAL INFILE, handing the driver an in-memory stream in place of a file
+	 */
+	private static class MySQLLoadDataLoader extends BulkLoader {
+		@Override
+		long load(Connection connection, String tableName, String fields, TableData data, int first, int last) throws SQLException {
+			Statement statement = connection.createStatement();
+			try {
+				statement.unwrap(com.mysql.jdbc.Statement.class).setLocalInfileInputStream(new RowEncoder(data, first, last));
+				//the file name is ignored once an input stream has been set
+				String loadData = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE " + tableName
+						+ " CHARACTER SET utf8 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'"
+						+ " LINES TERMINATED BY '\\n' (" + fields + ")";
+				return statement.executeUpdate(loadData);
+			} finally {
+				statement.close();
+			}
+		}
+	}
+
+	/**
+	 * Encodes table rows on demand into the tab separated text format read by both COPY and LOAD DATA.
+	 * Tabs, new lines and backslashes are escaped with a backslash and null values become \N
+	 */
+	static class RowEncoder extends InputStream {
+		private static final Charset UTF8 = Charset.forName("UTF-8");
+
+		private final Object[][] rows;
+		private final int last;
+		private final int fields;
+		private int line;
+		private byte[] buffer = new byte[0];
+		private int position = 0;
+
+		RowEncoder(TableData data, int first, int last) {
+			this.rows = data.getTableData();
+			this.fields = data.getFields();
+			this.line = first;
+			this.last = last;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return buffer[position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			int read = 0;
+			while (read < len && fill()) {
+				int count = Math.min(len - read, buffer.length - position);
+				System.arraycopy(buffer, position, b, off + read, count);
+				position += count;
+				read += count;
+			}
+			return read == 0 ? -1 : read;
+		}
+
+		// encode the next row once the current one has been read
+		private boolean fill() {
+			while (position >= buffer.length) {
+				if (line >= last) {
+					return false;
+				}
+				buffer = encodeRow(rows[line++], fields).getBytes(UTF8);
+				position = 0;
+			}
+			return true;
+		}
+
+		static String encodeRow(Object[] row, int fields) {
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < fields; i++) {
+				if (i > 0) {
+					s.append('\t');
+				}
+				if (row[i] == null) {
+					s.append("\\N");
+					continue;
+				}
+				String value = row[i].toString();
+				for (int j = 0; j < value.length(); j++) {
+					char c = value.charAt(j);
+					switch (c) {
+					case '\\':
+						s.append("\\\\");
+						break;
+					case '\t':
+						s.append("\\t");
+						break;
+					case '\n':
+						s.append("\\n");
+						break;
+					case '\r':
+						s.append("\\r");
+						break;
+					default:
+						s.append(c);
+					}
+				}
+			}
+			return s.append('\n').toString();
+		}
+	}
+}
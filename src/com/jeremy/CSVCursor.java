@@ -0,0 +1,88 @@
+package com.jeremy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * A RowCursor over the lines of a CSV file or stream, opened by CSVHandler.openCSV(). Only the line being read is
+ * held in memory, the columns were worked out when the file was opened. Values are read as Strings, the
+ * same as readCSV.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see CSVHandler#openCSV(File)
+ */
+public class CSVCursor implements RowCursor {
+	private BufferedReader reader;
+	private TableData columns;
+	private int lines;
+	private String columnDelimiter;
+	private Object[] row;
+
+	CSVCursor(File csvFile, TableData columns, int lines, String columnDelimiter, boolean firstLineUsedAsColumnHeader)
+			throws IOException {
+		this(new BufferedReader(new FileReader(csvFile)), columns, lines, columnDelimiter, firstLineUsedAsColumnHeader);
+	}
+
+	CSVCursor(BufferedReader reader, TableData columns, int lines, String columnDelimiter,
+			boolean firstLineUsedAsColumnHeader) throws IOException {
+		this.reader = reader;
+		this.columns = columns;
+		this.lines = lines;
+		this.columnDelimiter = columnDelimiter;
+		this.row = new Object[columns.getFields()];
+		if (firstLineUsedAsColumnHeader) {
+			reader.readLine();
+		}
+	}
+
+	/**
+	 * @return the columns of the file, with their classes and field lengths but none of the rows
+	 */
+	public TableData getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the number of rows in the file, not counting a header line, or -1 if the rows are read from a
+	 *         stream and have not been counted
+	 */
+	public int getLines() {
+		return lines;
+	}
+
+	@Override
+	public String getTableName() {
+		return columns.getTableName();
+	}
+
+	@Override
+	public String[] getColumnHeader() {
+		return columns.getColumnHeader();
+	}
+
+	@Override
+	public Class<?>[] getColumnClasses() {
+		return columns.getColumnClasses();
+	}
+
+	@Override
+	public Object[] next() throws IOException {
+		String line = reader.readLine();
+		if (line == null) {
+			return null;
+		}
+		String[] fields = line.split(columnDelimiter, -1);
+		for (int i = 0; i < row.length; i++) {
+			row[i] = i < fields.length ? fields[i] : null;
+		}
+		return row;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -5,9 +5,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Used to convert a CSV file into usable data.
@@ -29,6 +38,7 @@ public class CSVHandler {
 	private String columnDelimiter = DEFAULT_COLUMN_DELIMITER;
 
 	private boolean firstLineUsedAsColumnHeader = false;
+	private int scanLines = 0;
 
 	/**
 	 * Reads a CSV file into a TableData object and returns it NOTE: Default
@@ -107,34 +117,293 @@ public class CSVHandler {
 
 		// make sure file is a real file and we can read it
 		if (csvFile.exists() && csvFile.isFile() && csvFile.canRead()) {
-			// count the lines and columns as well as the field lengths
+			return readCSV(fileSource(csvFile), getFileName(csvFile.getName()));
+		} else {
+			// throw error if the file is not found or can't read it
+			throw new FileNotFoundException("Could not find file: " + csvFile.getAbsoluteFile());
+		}
+	}
+
+	/**
+	 * Reads UTF-8 CSV data from a stream, such as a pipe, socket or in-memory buffer, into a TableData object
+	 * and returns it. The columns are worked out by the same scans as a file, so the decoded text is held in
+	 * memory while it is scanned. When the columns are known use readCSV(InputStream, TableData), which
+	 * reads the stream only once. The stream is read to its end and left open
+	 * 
+	 * @param in
+	 *            - The stream to read the CSV data from, encoded as UTF-8
+	 * @param tableName
+	 *            - The name to give the table
+	 * @return Table data from the stream<br/>
+	 * <br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * CSVHandler csvHandler = new CSVHandler();
+	 * 
+	 * TableData tableData = csvHandler.readCSV(process.getInputStream(), &quot;TestData&quot;);
+	 * </pre>
+	 * @throws IOException
+	 * @see TableData
+	 */
+	public TableData readCSV(InputStream in, String tableName) throws IOException {
+		Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+		StringBuilder text = new StringBuilder();
+		char[] buffer = new char[8192];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			text.append(buffer, 0, read);
+		}
+		return readCSV(textSource(text.toString()), tableName);
+	}
+
+	/**
+	 * Reads UTF-8 CSV data from a stream into a TableData object with columns that have already been
+	 * declared, so the stream is read only once, a row at a time, and only the rows are kept. The stream is
+	 * read to its end and left open
+	 * 
+	 * @param in
+	 *            - The stream to read the CSV data from, encoded as UTF-8
+	 * @param schema
+	 *            - The columns of the data, their names, classes, field lengths and precision, it must name the
+	 *            table. Any rows it holds are ignored
+	 * @return Table data from the stream<br/>
+	 * <br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * TableData tableData = csvHandler.readCSV(socket.getInputStream(), schema);
+	 * </pre>
+	 * @throws IOException
+	 * @see #openCSV(InputStream, TableData)
+	 */
+	public TableData readCSV(InputStream in, TableData schema) throws IOException {
+		// the cursor is not closed, so the stream is left open
+		CSVCursor cursor = openCSV(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), schema);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		Object[] row;
+		while ((row = cursor.next()) != null) {
+			// the cursor reuses its row
+			rows.add(row.clone());
+		}
+		TableData columns = cursor.getColumns();
+		return new TableData(rows.toArray(new Object[rows.size()][]), columns.getColumnClasses(), columns.getTableName(),
+				columns.getColumnHeader(), rows.size(), columns.getFields(), columns.getFieldLength(),
+				columns.getFieldPrecision());
+	}
+
+	/**
+	 * Reads CSV data from a channel into a TableData object and returns it, the same as readCSV(InputStream, String)
+	 * 
+	 * @param channel
+	 *            - The channel to read the CSV data from, read to its end and left open
+	 * @param tableName
+	 *            - The name to give the table
+	 * @return Table data from the channel
+	 * @throws IOException
+	 * @see #readCSV(InputStream, String)
+	 */
+	public TableData readCSV(ReadableByteChannel channel, String tableName) throws IOException {
+		return readCSV(Channels.newInputStream(channel), tableName);
+	}
+
+	private TableData readCSV(Source source, String tableName) throws IOException {
+		// count the lines and columns as well as the field lengths
+
+		countFileColumns(source);
+		countFileLines(source);
+		countFieldLengths(source);
+
+		fieldPrecision = new int[fields];
+		for (int i = 0; i < fieldPrecision.length; i++) {
+			fieldPrecision[i] = 0;
+		}
+
+		// get rid of a line if the first line is going to be used as a
+		// header
+		if (firstLineUsedAsColumnHeader) {
+			lines--;
+		}
 
-			countFileColumns(csvFile);
-			countFileLines(csvFile);
-			countFieldLengths(csvFile);
+		data = readFileDataIn(source);
+
+		// read in file data, find column classes, get headers and return
+		// all info in a datatable
+		return new TableData(data, findColumnClasses(source, data), tableName, getHeaders(source), lines, fields, fieldLength, fieldPrecision);
+	}
+
+	/**
+	 * Opens a CSV file to be read one row at a time. The file is scanned for its columns, their classes and
+	 * field lengths the same way readCSV scans it, but the rows are not kept in memory
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read
+	 * @return a cursor over the rows of the file, which must be closed once read<br/>
+	 * <br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * CSVHandler csvHandler = new CSVHandler();
+	 * CSVCursor cursor = csvHandler.openCSV(new File(&quot;TestData.csv&quot;));
+	 * try {
+	 * 	Object[] row;
+	 * 	while ((row = cursor.next()) != null) {
+	 * 		...
+	 * 	}
+	 * } finally {
+	 * 	cursor.close();
+	 * }
+	 * </pre>
+	 * @throws IOException
+	 * @see CSVCursor
+	 */
+	public CSVCursor openCSV(File csvFile) throws IOException {
+
+		// make sure file is a real file and we can read it
+		if (csvFile.exists() && csvFile.isFile() && csvFile.canRead()) {
+			Source source = fileSource(csvFile);
+			countFileColumns(source);
+			countFileLines(source);
+			countFieldLengths(source);
 
 			fieldPrecision = new int[fields];
-			for (int i = 0; i < fieldPrecision.length; i++) {
-				fieldPrecision[i] = 0;
+			if (firstLineUsedAsColumnHeader) {
+				lines--;
 			}
 
-			// get rid of a line if the first line is going to be used as a
-			// header
+			// the columns without any rows, the cursor reads the rows as they are asked for
+			TableData columns = new TableData(new Object[0][], findColumnClasses(source, null), getFileName(csvFile.getName()),
+					getHeaders(source), 0, fields, fieldLength, fieldPrecision);
+			return new CSVCursor(csvFile, columns, Math.max(0, lines), columnDelimiter, firstLineUsedAsColumnHeader);
+		} else {
+			// throw error if the file is not found or can't read it
+			throw new FileNotFoundException("Could not find file: " + csvFile.getAbsoluteFile());
+		}
+	}
+
+	/**
+	 * Opens a CSV file to be read one row at a time with columns that have already been declared, so the
+	 * file is not scanned for its classes or field lengths. The file is read once to count its rows
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read
+	 * @param schema
+	 *            - The columns of the file, their names, classes, field lengths and precision. Any rows it
+	 *            holds are ignored
+	 * @return a cursor over the rows of the file, which must be closed once read<br/>
+	 * <br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * TableData schema = new TableData(new Object[0][], new Class<?>[] {Integer.class, String.class}, &quot;users&quot;,
+	 * 		new String[] {&quot;id&quot;, &quot;name&quot;}, 0, 2, new int[] {9, 50}, new int[] {0, 0});
+	 * 
+	 * CSVCursor cursor = csvHandler.openCSV(new File(&quot;users.csv&quot;), schema);
+	 * </pre>
+	 * @throws IOException
+	 * @see CSVCursor
+	 */
+	public CSVCursor openCSV(File csvFile, TableData schema) throws IOException {
+
+		// make sure file is a real file and we can read it
+		if (csvFile.exists() && csvFile.isFile() && csvFile.canRead()) {
+			countFileLines(fileSource(csvFile));
 			if (firstLineUsedAsColumnHeader) {
 				lines--;
 			}
 
-			data = readFileDataIn(csvFile);
-
-			// read in file data, find column classes, get headers and return
-			// all info in a datatable
-			return new TableData(data, findColumnClasses(csvFile), getFileName(csvFile.getName()), getHeaders(csvFile), lines, fields, fieldLength, fieldPrecision);
+			// a schema without lengths declares none
+			int[] length = schema.getFieldLength() == null ? new int[schema.getFields()] : schema.getFieldLength();
+			int[] precision = schema.getFieldPrecision() == null ? new int[schema.getFields()] : schema.getFieldPrecision();
+			String tableName = schema.getTableName() == null ? getFileName(csvFile.getName()) : schema.getTableName();
+			TableData columns = new TableData(new Object[0][], schema.getColumnClasses(), tableName,
+					schema.getColumnHeader(), 0, schema.getFields(), length, precision);
+			return new CSVCursor(csvFile, columns, Math.max(0, lines), columnDelimiter, firstLineUsedAsColumnHeader);
 		} else {
 			// throw error if the file is not found or can't read it
 			throw new FileNotFoundException("Could not find file: " + csvFile.getAbsoluteFile());
 		}
 	}
 
+	/**
+	 * Opens CSV data from a stream to be read one row at a time with columns that have already been declared,
+	 * so the data is read only once, as the rows are asked for, and is never held in memory. The number of
+	 * rows is not known until the stream has been read, so the cursor's getLines() returns -1
+	 * 
+	 * @param in
+	 *            - The stream to read the CSV data from, encoded as UTF-8. Closing the cursor closes the stream
+	 * @param schema
+	 *            - The columns of the data, their names, classes, field lengths and precision, it must name the
+	 *            table. Any rows it holds are ignored
+	 * @return a cursor over the rows of the stream, which must be closed once read<br/>
+	 * <br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * CSVCursor cursor = csvHandler.openCSV(socket.getInputStream(), schema);
+	 * </pre>
+	 * @throws IOException
+	 * @see #openCSV(File, TableData)
+	 */
+	public CSVCursor openCSV(InputStream in, TableData schema) throws IOException {
+		return openCSV(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), schema);
+	}
+
+	private CSVCursor openCSV(BufferedReader reader, TableData schema) throws IOException {
+		if (schema.getTableName() == null) {
+			throw new IllegalArgumentException("The schema must name the table");
+		}
+
+		// a schema without lengths declares none
+		int[] length = schema.getFieldLength() == null ? new int[schema.getFields()] : schema.getFieldLength();
+		int[] precision = schema.getFieldPrecision() == null ? new int[schema.getFields()] : schema.getFieldPrecision();
+		TableData columns = new TableData(new Object[0][], schema.getColumnClasses(), schema.getTableName(),
+				schema.getColumnHeader(), 0, schema.getFields(), length, precision);
+		return new CSVCursor(reader, columns, -1, columnDelimiter, firstLineUsedAsColumnHeader);
+	}
+
+	/**
+	 * Opens CSV data from a channel to be read one row at a time with columns that have already been declared,
+	 * the same as openCSV(InputStream, TableData)
+	 * 
+	 * @param channel
+	 *            - The channel to read the CSV data from, closing the cursor closes the channel
+	 * @param schema
+	 *            - The columns of the data, it must name the table
+	 * @return a cursor over the rows of the channel, which must be closed once read
+	 * @throws IOException
+	 * @see #openCSV(InputStream, TableData)
+	 */
+	public CSVCursor openCSV(ReadableByteChannel channel, TableData schema) throws IOException {
+		return openCSV(Channels.newInputStream(channel), schema);
+	}
+
+	/**
+	 * Where the lines being read come from, each scan opens it again to read the lines through once
+	 */
+	private interface Source {
+		BufferedReader open() throws IOException;
+	}
+
+	private static Source fileSource(final File csvFile) {
+		return new Source() {
+			@Override
+			public BufferedReader open() throws IOException {
+				return new BufferedReader(new FileReader(csvFile));
+			}
+		};
+	}
+
+	// text already read from a stream
+	private static Source textSource(final String text) {
+		return new Source() {
+			@Override
+			public BufferedReader open() {
+				return new BufferedReader(new StringReader(text));
+			}
+		};
+	}
+
 	private String getFileName(String fileName) {
 		
 		//make sure file name is a thing
@@ -154,7 +423,8 @@ public class CSVHandler {
 		return fileName.substring(0, extentionPosition);
 	}
 
-	private Class<?>[] findColumnClasses(File csvFile) throws IOException {
+	// rows holds the data already read by readCSV, or is null when only the columns are wanted
+	private Class<?>[] findColumnClasses(Source source, Object[][] rows) throws IOException {
 
 		// set up column classes to be defaulted to String
 		Class<?>[] columnClasses = new Class[fields];
@@ -164,23 +434,27 @@ public class CSVHandler {
 
 		// check to see what are booleans.
 		// easiest and no chance of being another type
-		checkBoolean(csvFile, columnClasses);
+		checkBoolean(source, columnClasses);
 
 		// date should be an easy format as well so check that next
-		checkDate(csvFile, columnClasses);
+		checkDate(source, columnClasses);
 
 		// int or long wont be a decimal so check for decimal beforehand
-		checkDouble(csvFile, columnClasses);
+		checkDouble(source, columnClasses);
 
-		// check if other values are int or long
-		checkNumber(csvFile, columnClasses);
+		// check if other values are int or long, from the rows already read if there are any
+		if (rows != null) {
+			checkNumber(rows, columnClasses);
+		} else {
+			checkNumber(source, columnClasses);
+		}
 
 		// rest default to string
 		
 		return columnClasses;
 	}
 
-	private void checkBoolean(File csvFile, Class<?>[] columnClasses) throws IOException {
+	private void checkBoolean(Source source, Class<?>[] columnClasses) throws IOException {
 
 		// create reader
 		BufferedReader reader = null;
@@ -192,9 +466,10 @@ public class CSVHandler {
 				// set up variables to use
 				boolean skippedFirstLine = false;
 				boolean isBoolean = true;
+				int scanned = 0;
 
 				// Initialize
-				reader = new BufferedReader(new FileReader(csvFile));
+				reader = source.open();
 				String line;
 
 				// iterate through each line
@@ -204,6 +479,9 @@ public class CSVHandler {
 						skippedFirstLine = true;
 						continue;
 					}
+					if (scanLines > 0 && scanned++ == scanLines) {
+						break;
+					}
 					String[] fields = line.split(columnDelimiter, -1);
 
 					if (!fields[i].equalsIgnoreCase("true") && !fields[i].equalsIgnoreCase("false")) {
@@ -224,7 +502,7 @@ public class CSVHandler {
 
 	}
 
-	private void checkDate(File csvFile, Class<?>[] columnClasses) throws IOException {
+	private void checkDate(Source source, Class<?>[] columnClasses) throws IOException {
 		// create reader
 		BufferedReader reader = null;
 		try {
@@ -235,9 +513,10 @@ public class CSVHandler {
 				// set up variables to use
 				boolean skippedFirstLine = false;
 				boolean isDate = true;
+				int scanned = 0;
 
 				// Initialize
-				reader = new BufferedReader(new FileReader(csvFile));
+				reader = source.open();
 				String line;
 
 				// iterate through each line
@@ -247,6 +526,9 @@ public class CSVHandler {
 						skippedFirstLine = true;
 						continue;
 					}
+					if (scanLines > 0 && scanned++ == scanLines) {
+						break;
+					}
 
 					String[] fields = line.split(columnDelimiter, -1);
 
@@ -276,7 +558,7 @@ public class CSVHandler {
 	}
 
 	// NOTE: falls flat if doubles and ints mix, reverts to string
-	private void checkDouble(File csvFile, Class<?>[] columnClasses) throws IOException {
+	private void checkDouble(Source source, Class<?>[] columnClasses) throws IOException {
 
 		// set up precision and reader
 		BufferedReader reader = null;
@@ -290,10 +572,11 @@ public class CSVHandler {
 				int maxPercision = 0;
 				boolean skippedFirstLine = false;
 				boolean isDouble = true;
+				int scanned = 0;
 				boolean hasDecimals = false;
 
 				// set up reader
-				reader = new BufferedReader(new FileReader(csvFile));
+				reader = source.open();
 				String line;
 
 				// read each line
@@ -305,6 +588,9 @@ public class CSVHandler {
 						skippedFirstLine = true;
 						continue;
 					}
+					if (scanLines > 0 && scanned++ == scanLines) {
+						break;
+					}
 
 					// split lines into columns
 					String[] fields = line.split(columnDelimiter, -1);
@@ -376,10 +662,7 @@ public class CSVHandler {
 		}
 	}
 
-	private void checkNumber(File csvFile, Class<?>[] columnClasses) throws IOException {
-
-		// create
-		// BufferedReader reader = null;
+	private void checkNumber(Object[][] rows, Class<?>[] columnClasses) {
 
 		// iterate through each column
 		for (int i = 0; i < columnClasses.length; i++) {
@@ -387,27 +670,27 @@ public class CSVHandler {
 			// set up variables to use
 			boolean skippedFirstLine = false;
 			boolean isInt = true;
+			int scanned = 0;
 			boolean isLong = true;
 
-			// Initialize
-			// reader = new BufferedReader(new FileReader(csvFile));
-			// String line;
-
 			// iterate through each line
-			for (int j = 0; j < data.length; j++) {
+			for (int j = 0; j < rows.length; j++) {
 				if (!skippedFirstLine && firstLineUsedAsColumnHeader) {
 					skippedFirstLine = true;
 					continue;
 				}
+				if (scanLines > 0 && scanned++ == scanLines) {
+					break;
+				}
 
 				try {
 					// test if both values are integers on either side of the
 					// decimal place
-					Integer.parseInt(data[j][i].toString());
+					Integer.parseInt(rows[j][i].toString());
 				} catch (NumberFormatException e) {
 					isInt = false;
 					try {
-						Long.parseLong(data[j][i].toString());
+						Long.parseLong(rows[j][i].toString());
 					} catch (NumberFormatException ex) {
 						isLong = false;
 						break;
@@ -424,11 +707,73 @@ public class CSVHandler {
 		}
 	}
 
-	private Object[][] readFileDataIn(File csvFile) throws IOException {
+	// the same check as checkNumber(Object[][], Class<?>[]) for a cursor, which has no rows in memory
+	private void checkNumber(Source source, Class<?>[] columnClasses) throws IOException {
+		// create reader
+		BufferedReader reader = null;
+		try {
+
+			// iterate through each column
+			for (int i = 0; i < columnClasses.length; i++) {
+
+				// set up variables to use
+				boolean skippedFirstLine = false;
+				boolean isInt = true;
+				int scanned = 0;
+				boolean isLong = true;
+
+				// Initialize
+				reader = source.open();
+				String line;
+
+				// iterate through each line
+				while ((line = reader.readLine()) != null) {
+					if (!skippedFirstLine && firstLineUsedAsColumnHeader) {
+						skippedFirstLine = true;
+						continue;
+					}
+					if (scanLines > 0 && scanned++ == scanLines) {
+						break;
+					}
+
+					String[] fields = line.split(columnDelimiter, -1);
+					String value = i < fields.length ? fields[i] : "";
+					try {
+						// test if both values are integers on either side of the
+						// decimal place
+						Integer.parseInt(value);
+					} catch (NumberFormatException e) {
+						isInt = false;
+						try {
+							Long.parseLong(value);
+						} catch (NumberFormatException ex) {
+							isLong = false;
+							break;
+						}
+					}
+
+				}
+				reader.close();
+				if (isInt) {
+					columnClasses[i] = Integer.class;
+				} else if (isLong) {
+					columnClasses[i] = Long.class;
+				}
+			}
+		} finally {
+			// close after use or on error
+			if (reader != null) {
+				reader.close();
+			}
+		}
+
+	}
+
+	private Object[][] readFileDataIn(Source source) throws IOException {
 		Object[][] output = new Object[lines][fields];
 
 		// open a file to read
-		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+		BufferedReader reader = source.open();
 		try {
 			// loop through file adding 1 to lines each line
 			int counter = 0;
@@ -460,9 +805,9 @@ public class CSVHandler {
 		return output;
 	}
 
-	private String[] getHeaders(File csvFile) throws IOException {
+	private String[] getHeaders(Source source) throws IOException {
 		String[] columnHeader = new String[fields];
-		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+		BufferedReader reader = source.open();
 		String line;
 		if (firstLineUsedAsColumnHeader && (line = reader.readLine()) != null) {
 			// read first line of csv File
@@ -493,9 +838,9 @@ public class CSVHandler {
 		return columnHeader;
 	}
 
-	private void countFileLines(File csvFile) throws IOException {
+	private void countFileLines(Source source) throws IOException {
 		// set up for file reading
-		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+		BufferedReader reader = source.open();
 		lines = 0;
 
 		try {
@@ -510,8 +855,8 @@ public class CSVHandler {
 
 	}
 
-	private void countFileColumns(File csvFile) throws IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+	private void countFileColumns(Source source) throws IOException {
+		BufferedReader reader = source.open();
 		fields = 0;
 
 		try {
@@ -536,20 +881,24 @@ public class CSVHandler {
 
 	}
 
-	private void countFieldLengths(File csvFile) throws IOException {
+	private void countFieldLengths(Source source) throws IOException {
 		// set up for file reading
-		BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+		BufferedReader reader = source.open();
 
 		try {
 			//
 			fieldLength = new int[fields];
 			String line;
 			boolean skippedFirstLine = false;
+			int scanned = 0;
 			while ((line = reader.readLine()) != null) {
 				if (!skippedFirstLine && firstLineUsedAsColumnHeader) {
 					skippedFirstLine = true;
 					continue;
 				}
+				if (scanLines > 0 && scanned++ == scanLines) {
+					break;
+				}
 
 				// Split
 				String[] fields = line.split(columnDelimiter, -1);
@@ -592,4 +941,17 @@ public class CSVHandler {
 		this.columnDelimiter = columnDelimiter;
 	}
 
+	public int getScanLines() {
+		return scanLines;
+	}
+
+	/**
+	 * Sets how many rows are looked at to work out the column classes and field lengths, so very large
+	 * files can be opened without reading them through once for every check. Rows past the scan are not
+	 * checked, a value that does not fit its column's class or length is only found when it is loaded
+	 * @param scanLines - The rows to scan, 0 to scan the whole file
+	 */
+	public void setScanLines(int scanLines) {
+		this.scanLines = scanLines;
+	}
 }
\ No newline at end of file
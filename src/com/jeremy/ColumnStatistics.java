@@ -0,0 +1,152 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Used to store statistics about the values in a single column of a TableData, gathered as the values
+ * are read. The SQLHandler uses them to pick the smallest column types that still hold every value.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * ColumnStatistics[] statistics = ColumnStatistics.collect(tableData);
+ *
+ * if (statistics[0].getNullCount() == 0 &amp;&amp; statistics[0].getMax() &lt;= Short.MAX_VALUE) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler#setCompactTypes(boolean)
+ */
+public class ColumnStatistics implements Serializable {
+	private static final long serialVersionUID = -3121709958446950148L;
+
+	private long count = 0;
+	private long nullCount = 0;
+	private int minLength = Integer.MAX_VALUE;
+	private int maxLength = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private boolean numeric = true;
+
+	/**
+	 * Collects the statistics of every column in the table
+	 * @param data - The table to collect statistics for
+	 * @return the statistics, one for each column
+	 */
+	public static ColumnStatistics[] collect(TableData data) {
+		int cols = data.getFields();
+		ColumnStatistics[] statistics = new ColumnStatistics[cols];
+		for (int i = 0; i < cols; i++) {
+			statistics[i] = new ColumnStatistics();
+		}
+		Object[][] rows = data.getTableData();
+		for (int i = 0; i < data.getLines(); i++) {
+			for (int j = 0; j < cols; j++) {
+				statistics[j].add(rows[i][j]);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Collects the statistics of every column from the remaining rows of a cursor, then closes the cursor
+	 * @param cursor - The rows to collect statistics for
+	 * @return the statistics, one for each column
+	 * @throws IOException
+	 */
+	public static ColumnStatistics[] collect(RowCursor cursor) throws IOException {
+		try {
+			int cols = cursor.getColumnHeader().length;
+			ColumnStatistics[] statistics = new ColumnStatistics[cols];
+			for (int i = 0; i < cols; i++) {
+				statistics[i] = new ColumnStatistics();
+			}
+			Object[] row;
+			while ((row = cursor.next()) != null) {
+				for (int j = 0; j < cols; j++) {
+					statistics[j].add(row[j]);
+				}
+			}
+			return statistics;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Adds a value from the column to the statistics
+	 * @param value - The value, may be null
+	 */
+	public void add(Object value) {
+		count++;
+		if (value == null) {
+			nullCount++;
+			return;
+		}
+		String s = value.toString();
+		minLength = Math.min(minLength, s.length());
+		maxLength = Math.max(maxLength, s.length());
+		if (numeric) {
+			try {
+				double number = Double.parseDouble(s);
+				min = Math.min(min, number);
+				max = Math.max(max, number);
+			} catch (NumberFormatException e) {
+				numeric = false;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of values added, including nulls
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public long getNullCount() {
+		return nullCount;
+	}
+
+	/**
+	 * @return the length of the shortest value, 0 if there are no values that are not null
+	 */
+	public int getMinLength() {
+		return count == nullCount ? 0 : minLength;
+	}
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @return true if there is at least one value and every value is the same length
+	 */
+	public boolean isFixedWidth() {
+		return count > nullCount && minLength == maxLength;
+	}
+
+	/**
+	 * @return true if every value that is not null is a number
+	 */
+	public boolean isNumeric() {
+		return numeric && count > nullCount;
+	}
+
+	/**
+	 * @return the smallest value if the column is numeric
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the largest value if the column is numeric
+	 */
+	public double getMax() {
+		return max;
+	}
+}
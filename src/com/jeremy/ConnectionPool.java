@@ -0,0 +1,475 @@
+package com.jeremy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton pool of database connections shared by every SQLHandler. Connections are pooled by URL and
+ * user name, each pool holding at most maxConnections connections. Asking for a connection with different
+ * properties, such as a changed password, replaces the pool for that URL and user. Idle connections are checked before
+ * being handed out again and are closed once they have been idle for longer than idleTimeout.
+ * <br/>
+ * Connections handed out by the pool return themselves to it when closed, so callers use and close
+ * them exactly as they would a connection from DriverManager.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class ConnectionPool {
+	private static final int DEFAULT_MAX_CONNECTIONS = 16;
+	private static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+	private static final long DEFAULT_WAIT_TIMEOUT = 30 * 1000;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private static ConnectionPool instance; //singleton static instance
+
+	private Map<String, Pool> pools = new HashMap<String, Pool>();
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private long waitTimeout = DEFAULT_WAIT_TIMEOUT;
+	private Timer evictionTimer;
+
+	/**
+	 * Creates a new ConnectionPool if one has not been created and sets it as the static instance field of this class.
+	 * @return the static single instance of ConnectionPool created by this class
+	 */
+	public synchronized static ConnectionPool getInstance() {
+		if (instance == null) {
+			instance = new ConnectionPool();
+		}
+		return instance;
+	}
+
+	private ConnectionPool() {
+	}
+
+	/**
+	 * Borrows a connection from the pool for the URL and user, opening a new connection if none are idle.
+	 * Waits for up to waitTimeout milliseconds if the pool already has maxConnections connections in use.
+	 *
+	 * @param url - The JDBC connection URL
+	 * @param properties - The driver properties, including user and password, used to open new connections
+	 * @return a connection that returns itself to the pool when closed
+	 * @throws SQLException if a connection cannot be opened or none becomes free in time
+	 * <br/>
+	 * <b>USAGE:</b><br/>
+	 * <pre>
+	 * Properties properties = new Properties();
+	 * properties.setProperty("user", "root");
+	 * properties.setProperty("password", "");
+	 *
+	 * Connection connection = ConnectionPool.getInstance().getConnection("jdbc:mysql://localhost:3306/test", properties);
+	 * try {
+	 * 	...
+	 * } finally {
+	 * 	connection.close();
+	 * }
+	 * </pre>
+	 */
+	public Connection getConnection(String url, Properties properties) throws SQLException {
+		return getPool(url, properties).borrow();
+	}
+
+	/**
+	 * Gets the metrics for the pool of the URL and user
+	 * @param url - The JDBC connection URL
+	 * @param userName - The user name the connections were opened with
+	 * @return the pool's metrics, or null if no connection has been requested for the URL and user
+	 */
+	public synchronized Metrics getMetrics(String url, String userName) {
+		Pool pool = pools.get(getKey(url, userName));
+		return pool == null ? null : pool.metrics;
+	}
+
+	/**
+	 * Closes every idle connection and forgets every pool. Connections still in use are closed when they
+	 * are returned.
+	 */
+	public synchronized void close() {
+		for (Pool pool : pools.values()) {
+			pool.closed = true;
+			pool.evict(0);
+		}
+		pools.clear();
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+	}
+
+	private synchronized Pool getPool(String url, Properties properties) {
+		String key = getKey(url, properties.getProperty("user"));
+		Pool pool = pools.get(key);
+		// a different password must not be handed connections opened with the old one, so the old pool is
+		// retired and its connections are closed as they come back
+		if (pool != null && !pool.properties.equals(properties)) {
+			pool.closed = true;
+			pool.evict(0);
+			pool = null;
+		}
+		if (pool == null) {
+			pool = new Pool(url, properties, maxConnections);
+			pools.put(key, pool);
+			startEvictionTimer();
+		}
+		return pool;
+	}
+
+	private String getKey(String url, String userName) {
+		return url + "|" + userName;
+	}
+
+	// check for idle connections twice every idle timeout
+	private void startEvictionTimer() {
+		if (evictionTimer != null) {
+			return;
+		}
+		long period = Math.max(1000, idleTimeout / 2);
+		evictionTimer = new Timer("ConnectionPool eviction", true);
+		evictionTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				List<Pool> current;
+				synchronized (ConnectionPool.this) {
+					current = new ArrayList<Pool>(pools.values());
+				}
+				for (Pool pool : current) {
+					pool.evict(idleTimeout);
+				}
+			}
+		}, period, period);
+	}
+
+	public synchronized int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Sets the most connections each URL and user may have open, only applies to pools created afterwards
+	 */
+	public synchronized void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public synchronized long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public synchronized void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public synchronized long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	public synchronized void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * The connections for a single URL and user
+	 */
+	private class Pool {
+		private String url;
+		private Properties properties;
+		private Semaphore permits;
+		private LinkedList<IdleConnection> idle = new LinkedList<IdleConnection>();
+		private Metrics metrics = new Metrics(this);
+		private volatile boolean closed = false;
+
+		public Pool(String url, Properties properties, int maxConnections) {
+			this.url = url;
+			this.properties = new Properties();
+			this.properties.putAll(properties);
+			this.permits = new Semaphore(maxConnections, true);
+			this.metrics.maxConnections = maxConnections;
+		}
+
+		public Connection borrow() throws SQLException {
+			long start = System.currentTimeMillis();
+			try {
+				if (!permits.tryAcquire(getWaitTimeout(), TimeUnit.MILLISECONDS)) {
+					throw new SQLException("Timed out waiting for a pooled connection to " + url);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted waiting for a pooled connection to " + url, e);
+			}
+			metrics.waited(System.currentTimeMillis() - start);
+			try {
+				Connection connection = takeValidIdle();
+				if (connection == null) {
+					connection = DriverManager.getConnection(url, properties);
+					metrics.created();
+				}
+				metrics.borrowed();
+				return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+						new Class<?>[] { Connection.class }, new PooledConnection(this, connection));
+			} catch (SQLException se) {
+				permits.release();
+				throw se;
+			} catch (RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		// most recently used first, so the connections that are kept busy stay warm
+		private Connection takeValidIdle() {
+			while (true) {
+				IdleConnection entry;
+				synchronized (this) {
+					entry = idle.pollFirst();
+				}
+				if (entry == null) {
+					return null;
+				}
+				try {
+					if (entry.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+						return entry.connection;
+					}
+				} catch (SQLException se) {
+					// treat as invalid
+				}
+				metrics.invalidated();
+				closeQuietly(entry.connection);
+			}
+		}
+
+		public void release(Connection connection, boolean reusable) {
+			try {
+				if (reusable && !closed) {
+					synchronized (this) {
+						idle.addFirst(new IdleConnection(connection));
+					}
+				} else {
+					metrics.discarded();
+					closeQuietly(connection);
+				}
+			} finally {
+				metrics.returned();
+				permits.release();
+			}
+		}
+
+		public void evict(long idleTimeout) {
+			long now = System.currentTimeMillis();
+			List<Connection> expired = new ArrayList<Connection>();
+			synchronized (this) {
+				Iterator<IdleConnection> iterator = idle.iterator();
+				while (iterator.hasNext()) {
+					IdleConnection entry = iterator.next();
+					if (now - entry.idleSince >= idleTimeout) {
+						iterator.remove();
+						expired.add(entry.connection);
+					}
+				}
+			}
+			for (Connection connection : expired) {
+				metrics.evicted();
+				closeQuietly(connection);
+			}
+		}
+
+		private synchronized int getIdleCount() {
+			return idle.size();
+		}
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException se) {
+			// nothing left to do with a connection being thrown away
+		}
+	}
+
+	private static class IdleConnection {
+		private Connection connection;
+		private long idleSince = System.currentTimeMillis();
+
+		public IdleConnection(Connection connection) {
+			this.connection = connection;
+		}
+	}
+
+	/**
+	 * Stands in for a pooled connection, closing it hands the real connection back to the pool after
+	 * rolling back anything left uncommitted
+	 */
+	private static class PooledConnection implements InvocationHandler {
+		private Pool pool;
+		private Connection connection;
+		private boolean returned = false;
+
+		public PooledConnection(Pool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+		}
+
+		@Override
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!returned) {
+					returned = true;
+					pool.release(connection, reset());
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return returned || connection.isClosed();
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (returned) {
+				throw new SQLException("Connection has been returned to the pool");
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		// put the connection back the way DriverManager hands it out
+		private boolean reset() {
+			try {
+				if (connection.isClosed()) {
+					return false;
+				}
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+				return true;
+			} catch (SQLException se) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Counters kept for a single URL and user's pool
+	 */
+	public class Metrics {
+		private Pool pool;
+		private int maxConnections;
+		private long created;
+		private long borrowed;
+		private long returned;
+		private long invalidated;
+		private long evicted;
+		private long discarded;
+		private long waitMillis;
+
+		private Metrics(Pool pool) {
+			this.pool = pool;
+		}
+
+		private synchronized void created() {
+			created++;
+		}
+
+		private synchronized void borrowed() {
+			borrowed++;
+		}
+
+		private synchronized void returned() {
+			returned++;
+		}
+
+		private synchronized void invalidated() {
+			invalidated++;
+		}
+
+		private synchronized void evicted() {
+			evicted++;
+		}
+
+		private synchronized void discarded() {
+			discarded++;
+		}
+
+		private synchronized void waited(long millis) {
+			waitMillis += millis;
+		}
+
+		public int getMaxConnections() {
+			return maxConnections;
+		}
+
+		/**
+		 * @return the number of connections currently borrowed from the pool
+		 */
+		public synchronized long getActive() {
+			return borrowed - returned;
+		}
+
+		/**
+		 * @return the number of open connections waiting in the pool
+		 */
+		public int getIdle() {
+			return pool.getIdleCount();
+		}
+
+		/**
+		 * @return the number of physical connections the pool has opened
+		 */
+		public synchronized long getCreated() {
+			return created;
+		}
+
+		/**
+		 * @return the number of times a connection has been handed out
+		 */
+		public synchronized long getBorrowed() {
+			return borrowed;
+		}
+
+		/**
+		 * @return the number of idle connections that failed validation and were closed
+		 */
+		public synchronized long getInvalidated() {
+			return invalidated;
+		}
+
+		/**
+		 * @return the number of connections closed for sitting idle longer than the idle timeout
+		 */
+		public synchronized long getEvicted() {
+			return evicted;
+		}
+
+		/**
+		 * @return the number of returned connections closed because they could not be reused
+		 */
+		public synchronized long getDiscarded() {
+			return discarded;
+		}
+
+		/**
+		 * @return the total milliseconds callers have spent waiting for a connection to become free
+		 */
+		public synchronized long getWaitMillis() {
+			return waitMillis;
+		}
+	}
+}
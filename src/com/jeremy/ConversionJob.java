@@ -0,0 +1,246 @@
+package com.jeremy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jeremy.FileController.OutputType;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * Used to convert many csv files at once, each file on its own thread with its own FileController. Every
+ * file is converted to every output type set, the outputs are written to the output directory named after
+ * the input file, so TestData.csv becomes TestData.xml, TestData.jsn and so on. A file that fails is
+ * reported and the others carry on.
+ * <br/>
+ * The controller given to the job is only used for its settings, such as the column delimiter and insert
+ * mode, and is never read from or written to by the job's threads.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileController settings = new FileController(false);
+ * settings.setFirstLineUsedAsColumnHeader(true);
+ *
+ * ConversionJob job = new ConversionJob(settings, new File("output/"));
+ * job.addFiles(new File("landing/"), "*.csv");
+ * job.setOutputTypes(OutputType.XML, OutputType.JSON);
+ * job.setSQLFile("TestData", SQLType.POSTGRESQL, true, -1);
+ * job.setThreads(8);
+ *
+ * ConversionReport report = job.run();
+ * System.out.println(report.getFailedCount() + " failed, " + report.getMegabytesPerSecond() + " MB/s");
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see ConversionReport
+ */
+public class ConversionJob {
+	private FileController settings;
+	private File outputDirectory;
+	private List<File> files = new ArrayList<File>();
+	private OutputType[] outputTypes = new OutputType[0];
+	private String databaseName;
+	private SQLType sqlType = null;
+	private boolean identity;
+	private int idColumn;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private ExecutorService executor = null;
+
+	/**
+	 * @param settings - The controller whose settings each file is converted with
+	 * @param outputDirectory - The directory to write the outputs to, created if it does not exist
+	 */
+	public ConversionJob(FileController settings, File outputDirectory) {
+		this.settings = settings;
+		this.outputDirectory = outputDirectory;
+	}
+
+	public void addFile(File csvFile) {
+		files.add(csvFile);
+	}
+
+	/**
+	 * Adds the files of a directory whose names match a glob, in name order
+	 * @param directory - The directory to look in, sub-directories are not searched
+	 * @param glob - The pattern the file names must match, such as *.csv
+	 * @throws IOException
+	 */
+	public void addFiles(File directory, String glob) throws IOException {
+		List<File> matches = new ArrayList<File>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), glob);
+		try {
+			for (Path path : stream) {
+				if (Files.isRegularFile(path)) {
+					matches.add(path.toFile());
+				}
+			}
+		} finally {
+			stream.close();
+		}
+		Collections.sort(matches);
+		files.addAll(matches);
+	}
+
+	public List<File> getFiles() {
+		return files;
+	}
+
+	public OutputType[] getOutputTypes() {
+		return outputTypes;
+	}
+
+	public void setOutputTypes(OutputType... outputTypes) {
+		this.outputTypes = outputTypes;
+	}
+
+	/**
+	 * Sets the job to write a .sql file for each input as well as its other outputs
+	 * @param databaseName - The name of the database
+	 * @param sqlType - The SQL format type to write, or null to write no .sql files
+	 * @param identity - Whether to create a default id field
+	 * @param idColumn - The column to be the id column(Cannot be used if identity is true)
+	 * @see FileController#csvToSQLFile(File, File, String, SQLType, boolean, int)
+	 */
+	public void setSQLFile(String databaseName, SQLType sqlType, boolean identity, int idColumn) {
+		this.databaseName = databaseName;
+		this.sqlType = sqlType;
+		this.identity = identity;
+		this.idColumn = idColumn;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads - The number of files to convert at once, unless an executor has been set
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the executor the files are converted on in place of the job's own pool of threads. The executor
+	 * is not shut down by the job, so it can be shared between jobs
+	 * @param executor - The executor to use, or null for the job to use its own pool
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Converts every file, waiting until all of them have finished
+	 * @return the outcome of each file, in the order the files were added
+	 * @throws InterruptedException if interrupted while waiting, the files not yet converted are cancelled
+	 */
+	public ConversionReport run() throws InterruptedException {
+		if (outputTypes.length == 0 && sqlType == null) {
+			throw new IllegalStateException("No output types have been set for the job");
+		}
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IllegalStateException("Could not create the output directory " + outputDirectory);
+		}
+		long start = System.currentTimeMillis();
+
+		// the settings are copied once so changes made while the job runs do not reach it
+		final FileController jobSettings = new FileController(settings);
+		final OutputType[] jobOutputTypes = outputTypes.clone();
+		ConversionReport report = new ConversionReport();
+		ExecutorService pool = executor == null ? Executors.newFixedThreadPool(threads) : executor;
+		List<Future<ConversionReport.Conversion>> futures = new ArrayList<Future<ConversionReport.Conversion>>();
+		try {
+			for (final File file : files) {
+				futures.add(pool.submit(new Callable<ConversionReport.Conversion>() {
+					@Override
+					public ConversionReport.Conversion call() {
+						return convert(new FileController(jobSettings), jobOutputTypes, file);
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					report.addConversion(futures.get(i).get());
+				} catch (ExecutionException e) {
+					ConversionReport.Conversion conversion = new ConversionReport.Conversion(files.get(i));
+					conversion.setError(e);
+					report.addConversion(conversion);
+				}
+			}
+		} catch (InterruptedException e) {
+			for (Future<ConversionReport.Conversion> future : futures) {
+				future.cancel(true);
+			}
+			throw e;
+		} finally {
+			if (executor == null) {
+				pool.shutdownNow();
+			}
+		}
+		report.setElapsedMillis(System.currentTimeMillis() - start);
+		return report;
+	}
+
+	private ConversionReport.Conversion convert(FileController fileController, OutputType[] jobOutputTypes, File csvFile) {
+		ConversionReport.Conversion conversion = new ConversionReport.Conversion(csvFile);
+		long start = System.currentTimeMillis();
+		String name = getBaseName(csvFile);
+		try {
+			for (OutputType outputType : jobOutputTypes) {
+				File outputFile = new File(outputDirectory, name + "." + getExtension(outputType));
+				fileController.csvToFile(csvFile, outputFile, outputType);
+				conversion.addOutputFile(outputFile);
+			}
+			if (sqlType != null) {
+				File outputFile = new File(outputDirectory, name + ".sql");
+				fileController.csvToSQLFile(csvFile, outputFile, databaseName, sqlType, identity, idColumn);
+				conversion.addOutputFile(outputFile);
+			}
+		} catch (IOException e) {
+			conversion.setError(e);
+		}
+		conversion.setBytesRead(csvFile.length());
+		conversion.setElapsedMillis(System.currentTimeMillis() - start);
+		return conversion;
+	}
+
+	// TestData.csv becomes TestData
+	static String getBaseName(File file) {
+		String name = file.getName();
+		int extentionPosition = name.lastIndexOf(".");
+		return extentionPosition == -1 ? name : name.substring(0, extentionPosition);
+	}
+
+	/**
+	 * @param outputType - The output type
+	 * @return the file extension the job writes the output type with
+	 */
+	static String getExtension(OutputType outputType) {
+		switch (outputType) {
+		case XML:
+			return "xml";
+		case XML_SCHEMA:
+			return "xsd";
+		case JSON:
+			return "jsn";
+		case SERIALIZED:
+			return "ser";
+		default:
+			return "csv";
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.jeremy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Used to report the outcome of a ConversionJob, one entry for each input file in the order the files
+ * were added to the job, along with the throughput of the job as a whole.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see ConversionJob
+ */
+public class ConversionReport {
+	private List<Conversion> conversions = new ArrayList<Conversion>();
+	private long elapsedMillis;
+
+	void addConversion(Conversion conversion) {
+		conversions.add(conversion);
+	}
+
+	public List<Conversion> getConversions() {
+		return conversions;
+	}
+
+	public int getFileCount() {
+		return conversions.size();
+	}
+
+	/**
+	 * @return the number of files that could not be converted to every output
+	 */
+	public int getFailedCount() {
+		int failed = 0;
+		for (Conversion conversion : conversions) {
+			if (!conversion.isSuccessful()) {
+				failed++;
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * @return true if every file was converted to every output
+	 */
+	public boolean isSuccessful() {
+		return getFailedCount() == 0;
+	}
+
+	/**
+	 * @return the total size in bytes of the input files
+	 */
+	public long getBytesRead() {
+		long bytes = 0;
+		for (Conversion conversion : conversions) {
+			bytes += conversion.getBytesRead();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the milliseconds from the start of the job until its last file was converted
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public double getFilesPerSecond() {
+		return elapsedMillis == 0 ? 0 : conversions.size() * 1000.0 / elapsedMillis;
+	}
+
+	public double getMegabytesPerSecond() {
+		return elapsedMillis == 0 ? 0 : getBytesRead() / (1024.0 * 1024.0) * 1000.0 / elapsedMillis;
+	}
+
+	/**
+	 * The outcome of converting a single input file
+	 */
+	public static class Conversion {
+		private File inputFile;
+		private List<File> outputFiles = new ArrayList<File>();
+		private long bytesRead;
+		private long elapsedMillis;
+		private Exception error;
+
+		Conversion(File inputFile) {
+			this.inputFile = inputFile;
+		}
+
+		public File getInputFile() {
+			return inputFile;
+		}
+
+		/**
+		 * @return the files written, a file that failed part way is not included
+		 */
+		public List<File> getOutputFiles() {
+			return outputFiles;
+		}
+
+		void addOutputFile(File outputFile) {
+			outputFiles.add(outputFile);
+		}
+
+		public long getBytesRead() {
+			return bytesRead;
+		}
+
+		void setBytesRead(long bytesRead) {
+			this.bytesRead = bytesRead;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		void setElapsedMillis(long elapsedMillis) {
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		/**
+		 * @return the error that stopped the file being converted, or null if it was converted
+		 */
+		public Exception getError() {
+			return error;
+		}
+
+		void setError(Exception error) {
+			this.error = error;
+		}
+
+		public boolean isSuccessful() {
+			return error == null;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.jeremy;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import com.jeremy.FileController.OutputType;
+import com.jeremy.SQLHandler.SQLType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Used to offer csv conversion to other programs over HTTP, using the HttpServer built into the JDK. A csv
+ * file is POSTed as the request body to /convert/json, /convert/xml, /convert/xsd, /convert/csv or
+ * /convert/sql and the converted output is streamed back chunked as it is written, so neither the request
+ * nor the response is ever held in memory.
+ * <br/>
+ * When the settings declare a schema (see FileController.setSchema) the body is converted as it arrives.
+ * Otherwise the csv reader needs a file to scan for the columns before reading the rows, so the body is
+ * copied to a spool file a block at a time and deleted once the response has been sent, as it is for
+ * JSON, which opens with the number of rows. Requests are handled by a fixed pool of threads, each with
+ * its own copy of the server's settings, while the JIT, the settings' output cache and the ConnectionPool
+ * stay warm between requests.
+ * <br/>
+ * The query string can hold name, the table name (data by default), and for /convert/sql database,
+ * type (a SQLType), identity and idColumn.
+ * <br/>
+ * A bad parameter or a body that cannot be read as csv is answered with 400, while a failure on the
+ * server's side, such as a spool file that cannot be written, is answered with 500.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileController settings = new FileController();
+ * settings.setFirstLineUsedAsColumnHeader(true);
+ *
+ * ConversionServer server = new ConversionServer(settings, 8080);
+ * server.start();
+ * ...
+ * server.close();
+ *
+ * curl --data-binary @TestData.csv "http://localhost:8080/convert/sql?name=TestData&amp;database=db&amp;type=MYSQL"
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class ConversionServer implements Closeable {
+	public static final String CONTEXT = "/convert/";
+
+	private FileController settings;
+	private InetSocketAddress address;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private File spoolDirectory = null;
+	private HttpServer server;
+	private ExecutorService pool;
+	private FileController serverSettings;
+	private AtomicLong requestCount = new AtomicLong();
+	private AtomicLong failedCount = new AtomicLong();
+
+	/**
+	 * Creates a server that only accepts connections from the local machine
+	 * @param settings - The controller whose settings each request is converted with
+	 * @param port - The port to listen on, or 0 for any free port
+	 */
+	public ConversionServer(FileController settings, int port) {
+		this(settings, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * @param settings - The controller whose settings each request is converted with
+	 * @param address - The address to listen on
+	 */
+	public ConversionServer(FileController settings, InetSocketAddress address) {
+		this.settings = settings;
+		this.address = address;
+	}
+
+	/**
+	 * Starts listening for requests
+	 * @throws IOException if the address cannot be bound
+	 */
+	public synchronized void start() throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("The server has already been started");
+		}
+
+		// the settings are copied once so changes made while the server runs do not reach it
+		serverSettings = new FileController(settings);
+		server = HttpServer.create(address, 0);
+		server.createContext(CONTEXT, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					convert(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		pool = Executors.newFixedThreadPool(threads);
+		server.setExecutor(pool);
+		server.start();
+	}
+
+	/**
+	 * Stops listening, giving the requests being handled a second to finish
+	 */
+	@Override
+	public synchronized void close() {
+		if (server == null) {
+			return;
+		}
+		server.stop(1);
+		pool.shutdown();
+		server = null;
+	}
+
+	/**
+	 * @return the port the server is listening on, useful when it was created with port 0
+	 */
+	public synchronized int getPort() {
+		return server == null ? address.getPort() : server.getAddress().getPort();
+	}
+
+	private void convert(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			exchange.getResponseHeaders().set("Allow", "POST");
+			sendError(exchange, 405, "Only POST is supported");
+			return;
+		}
+		String format = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+		OutputType outputType = getOutputType(format);
+		if (outputType == null && !"sql".equals(format)) {
+			sendError(exchange, 404, "Unknown format: " + format);
+			return;
+		}
+
+		Map<String, String> query;
+		String name;
+		SQLType sqlType = null;
+		boolean identity = false;
+		int idColumn = -1;
+		try {
+			query = parseQuery(exchange.getRequestURI().getRawQuery());
+			name = query.containsKey("name") ? query.get("name") : "data";
+			if (!name.matches("\\w+")) {
+				throw new IllegalArgumentException("The table name may only hold letters, digits and _");
+			}
+			if (outputType == null) {
+				sqlType = SQLType.valueOf(query.containsKey("type") ? query.get("type").toUpperCase() : "MYSQL");
+				identity = Boolean.parseBoolean(query.get("identity"));
+				idColumn = query.containsKey("idColumn") ? Integer.parseInt(query.get("idColumn")) : -1;
+			}
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+			return;
+		}
+
+		ResponseStream response = new ResponseStream(exchange, getContentType(outputType));
+		File directory = null;
+		try {
+			FileController fileController = new FileController(serverSettings);
+			if (fileController.getSchema() != null && outputType != null && outputType != OutputType.JSON
+					&& fileController.getOutputCache() == null) {
+				// with the columns declared the body is converted as it arrives and nothing is spooled
+				Writer writer = new BufferedWriter(new OutputStreamWriter(response, StandardCharsets.UTF_8));
+				fileController.writeCSVStream(exchange.getRequestBody(), name, writer, outputType);
+				writer.flush();
+				response.commit();
+				return;
+			}
+
+			// the table is named after the file, so each request spools into a directory of its own
+			directory = (spoolDirectory == null ? Files.createTempDirectory("request")
+					: Files.createTempDirectory(spoolDirectory.toPath(), "request")).toFile();
+			File csvFile = new File(directory, name + ".csv");
+			File outputFile = new File(directory, name + ".out");
+			InputStream body = exchange.getRequestBody();
+			try {
+				Files.copy(body, csvFile.toPath());
+			} finally {
+				body.close();
+			}
+
+			if (fileController.getOutputCache() != null) {
+				// the output cache works on files, so a stored output is copied to the response
+				if (outputType == null) {
+					fileController.csvToSQLFile(csvFile, outputFile, query.get("database"), sqlType, identity, idColumn);
+				} else {
+					fileController.csvToFile(csvFile, outputFile, outputType);
+				}
+				Files.copy(outputFile.toPath(), response);
+			} else {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(response, StandardCharsets.UTF_8));
+				if (outputType == null) {
+					fileController.writeSQLScript(csvFile, writer, query.get("database"), sqlType, identity, idColumn);
+				} else {
+					fileController.writeCSVFile(csvFile, writer, outputType);
+				}
+				writer.flush();
+			}
+			response.commit();
+		} catch (IOException | RuntimeException e) {
+			failedCount.incrementAndGet();
+			if (serverSettings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE, "Error converting request: " + exchange.getRequestURI(), e);
+			}
+			// once the output has started the status has been sent, so the response can only be cut short
+			if (!response.isCommitted()) {
+				// values the csv reader cannot make sense of are the request's fault, anything else is the server's
+				if (e instanceof IllegalArgumentException || e instanceof IndexOutOfBoundsException) {
+					sendError(exchange, 400, String.valueOf(e.getMessage()));
+				} else {
+					sendError(exchange, 500, "Error converting the request");
+				}
+			}
+		} finally {
+			if (directory != null) {
+				for (File spooled : directory.listFiles()) {
+					spooled.delete();
+				}
+				directory.delete();
+			}
+		}
+	}
+
+	private static OutputType getOutputType(String format) {
+		switch (format) {
+		case "json":
+			return OutputType.JSON;
+		case "xml":
+			return OutputType.XML;
+		case "xsd":
+			return OutputType.XML_SCHEMA;
+		case "csv":
+			return OutputType.CSV;
+		default:
+			return null;
+		}
+	}
+
+	private static String getContentType(OutputType outputType) {
+		if (outputType == null) {
+			return "application/sql; charset=utf-8";
+		}
+		switch (outputType) {
+		case JSON:
+			return "application/json; charset=utf-8";
+		case CSV:
+			return "text/csv; charset=utf-8";
+		default:
+			return "application/xml; charset=utf-8";
+		}
+	}
+
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String parameter : query.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals == -1) {
+				parameters.put(URLDecoder.decode(parameter, "UTF-8"), "");
+			} else {
+				parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+						URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads - The number of requests to handle at once, taking effect when the server is started
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public File getSpoolDirectory() {
+		return spoolDirectory;
+	}
+
+	/**
+	 * @param spoolDirectory - The directory request bodies are copied to, or null for the system's temporary directory
+	 */
+	public void setSpoolDirectory(File spoolDirectory) {
+		this.spoolDirectory = spoolDirectory;
+	}
+
+	/**
+	 * @return the number of requests received since the server was created
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return the number of requests whose conversion failed since the server was created
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * The body of a response, which sends the 200 status and starts the chunked output on the first
+	 * write, so a conversion that fails before writing anything can still send an error status
+	 */
+	private static class ResponseStream extends OutputStream {
+		private HttpExchange exchange;
+		private String contentType;
+		private OutputStream out = null;
+
+		ResponseStream(HttpExchange exchange, String contentType) {
+			this.exchange = exchange;
+			this.contentType = contentType;
+		}
+
+		boolean isCommitted() {
+			return out != null;
+		}
+
+		void commit() throws IOException {
+			if (out == null) {
+				exchange.getResponseHeaders().set("Content-Type", contentType);
+				exchange.sendResponseHeaders(200, 0);
+				out = exchange.getResponseBody();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			commit();
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len > 0) {
+				commit();
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (out != null) {
+				out.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			commit();
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Date;
+
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * A RowCursor over the results of a database query. Rows are fetched from the server a batch at a time
+ * through a server side cursor, so a table of any size is read in constant memory. On PostgreSQL the
+ * connection's auto-commit is turned off while the cursor is open, as the driver only uses a cursor
+ * inside a transaction, and MySQL streams the rows one at a time.
+ * <br/>
+ * Column classes are mapped from the result's metadata onto the classes CSVHandler uses: Integer, Long,
+ * Double, Date, Boolean and String.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * DatabaseCursor cursor = DatabaseCursor.openTable("localhost:5432", "Example", SQLType.POSTGRESQL, "postgres", "", "users");
+ * try {
+ * 	Object[] row;
+ * 	while ((row = cursor.next()) != null) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	cursor.close();
+ * }
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class DatabaseCursor implements RowCursor {
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	private Connection connection;
+	private Statement statement;
+	private ResultSet resultSet;
+	private String tableName;
+	private String[] columnHeader;
+	private Class<?>[] columnClasses;
+	private int[] columnTypes;
+	private Object[] row;
+
+	private DatabaseCursor(Connection connection, SQLType sqlType, String query, String tableName, int fetchSize) throws SQLException {
+		this.connection = connection;
+		this.tableName = tableName;
+		if (sqlType == SQLType.POSTGRESQL) {
+			connection.setAutoCommit(false);
+		}
+		statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		//MySQL only streams when asked for rows one at a time, anything else reads the whole result first
+		statement.setFetchSize(sqlType == SQLType.MYSQL ? Integer.MIN_VALUE : fetchSize);
+		resultSet = statement.executeQuery(query);
+
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		int cols = metaData.getColumnCount();
+		columnHeader = new String[cols];
+		columnClasses = new Class<?>[cols];
+		columnTypes = new int[cols];
+		for (int i = 0; i < cols; i++) {
+			columnHeader[i] = metaData.getColumnLabel(i + 1);
+			columnTypes[i] = metaData.getColumnType(i + 1);
+			columnClasses[i] = getColumnClass(columnTypes[i], metaData.getPrecision(i + 1), metaData.getScale(i + 1));
+		}
+		row = new Object[cols];
+	}
+
+	/**
+	 * Opens a cursor over every row of a table
+	 *
+	 * @param host - A string where the user can designate the databases file path, defaults to local host
+	 * @param databaseName - The name of the database holding the table
+	 * @param sqlType - The SQL database type
+	 * @param userName - The user name to connect with
+	 * @param password - The password to connect with
+	 * @param tableName - The table to read
+	 * @return the open cursor, it must be closed to hand its connection back
+	 * @throws SQLException
+	 */
+	public static DatabaseCursor openTable(String host, String databaseName, SQLType sqlType,
+			String userName, String password, String tableName) throws SQLException {
+		return openQuery(host, databaseName, sqlType, userName, password, "SELECT * FROM " + tableName, tableName);
+	}
+
+	/**
+	 * Opens a cursor over the rows of a query
+	 *
+	 * @param host - A string where the user can designate the databases file path, defaults to local host
+	 * @param databaseName - The name of the database to query
+	 * @param sqlType - The SQL database type
+	 * @param userName - The user name to connect with
+	 * @param password - The password to connect with
+	 * @param query - The SELECT statement to read
+	 * @param tableName - The name to give the rows read, used by outputs that name the table
+	 * @return the open cursor, it must be closed to hand its connection back
+	 * @throws SQLException
+	 */
+	public static DatabaseCursor openQuery(String host, String databaseName, SQLType sqlType,
+			String userName, String password, String query, String tableName) throws SQLException {
+		Connection connection = SQLHandler.openDatabase(sqlType, host, databaseName, userName, password);
+		try {
+			return new DatabaseCursor(connection, sqlType, query, tableName, DEFAULT_FETCH_SIZE);
+		} catch (SQLException se) {
+			connection.close();
+			throw(se);
+		}
+	}
+
+	/**
+	 * Counts the rows a query returns, over a connection of its own
+	 *
+	 * @return the number of rows
+	 * @throws SQLException
+	 */
+	public static long countRows(String host, String databaseName, SQLType sqlType,
+			String userName, String password, String query) throws SQLException {
+		Connection connection = SQLHandler.openDatabase(sqlType, host, databaseName, userName, password);
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM (" + query + ") counted");
+				resultSet.next();
+				return resultSet.getLong(1);
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static Class<?> getColumnClass(int type, int precision, int scale) {
+		switch (type) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return Integer.class;
+		case Types.BIGINT:
+			return Long.class;
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			//a DECIMAL without places holds whole numbers, too many digits for a Long are kept as text
+			if (scale > 0) {
+				return Double.class;
+			}
+			return precision <= 18 ? Long.class : String.class;
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return Double.class;
+		case Types.DATE:
+		case Types.TIMESTAMP:
+			return Date.class;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return Boolean.class;
+		default:
+			return String.class;
+		}
+	}
+
+	@Override
+	public String getTableName() {
+		return tableName;
+	}
+
+	@Override
+	public String[] getColumnHeader() {
+		return columnHeader;
+	}
+
+	@Override
+	public Class<?>[] getColumnClasses() {
+		return columnClasses;
+	}
+
+	@Override
+	public Object[] next() throws IOException {
+		try {
+			if (!resultSet.next()) {
+				return null;
+			}
+			for (int i = 0; i < row.length; i++) {
+				row[i] = getValue(i + 1, columnClasses[i], columnTypes[i]);
+			}
+			return row;
+		} catch (SQLException se) {
+			throw new IOException("Error reading from the database", se);
+		}
+	}
+
+	private Object getValue(int column, Class<?> columnClass, int type) throws SQLException {
+		Object value;
+		if (columnClass == Integer.class) {
+			value = resultSet.getInt(column);
+		} else if (columnClass == Long.class) {
+			value = resultSet.getLong(column);
+		} else if (columnClass == Double.class) {
+			value = resultSet.getDouble(column);
+		} else if (columnClass == Boolean.class) {
+			value = resultSet.getBoolean(column);
+		} else if (columnClass == Date.class) {
+			value = type == Types.DATE ? resultSet.getDate(column) : resultSet.getTimestamp(column);
+		} else {
+			value = resultSet.getString(column);
+		}
+		return resultSet.wasNull() ? null : value;
+	}
+
+	/**
+	 * Closes the result and hands the connection back, rolling back the read-only transaction if one was open
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			try {
+				resultSet.close();
+				statement.close();
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException se) {
+			throw new IOException("Error closing the database cursor", se);
+		}
+	}
+}
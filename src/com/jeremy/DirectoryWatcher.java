@@ -0,0 +1,484 @@
+package com.jeremy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import com.jeremy.FileController.OutputType;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * Used to convert or load csv files as they are dropped into a landing directory, running for as long as
+ * the application does so the JIT stays warm and database connections stay in the ConnectionPool between
+ * files. A file is only taken once its size and last modified time have not changed for the quiet time,
+ * so a file still being written is left alone until it is complete.
+ * <br/>
+ * Each file is handled on a worker thread with its own FileController, converted to every output type
+ * set and loaded into the database if one was set, then moved to the done directory, or to the failed
+ * directory if anything went wrong. Files already in the landing directory when the watcher starts are
+ * handled as well.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileController settings = new FileController();
+ * settings.setFirstLineUsedAsColumnHeader(true);
+ *
+ * DirectoryWatcher watcher = new DirectoryWatcher(settings, new File("landing/"), new File("output/"));
+ * watcher.setOutputTypes(OutputType.XML, OutputType.JSON);
+ * watcher.setDatabase(host, port, databaseName, SQLType.POSTGRESQL, userName, passWord, true, -1);
+ * watcher.start();
+ * ...
+ * watcher.close();
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see ConversionJob
+ */
+public class DirectoryWatcher implements Closeable {
+	public static final long DEFAULT_QUIET_MILLIS = 2000;
+
+	private FileController settings;
+	private File landingDirectory;
+	private File outputDirectory;
+	private File doneDirectory;
+	private File failedDirectory;
+	private String glob = "*.csv";
+	private long quietMillis = DEFAULT_QUIET_MILLIS;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private OutputType[] outputTypes = new OutputType[0];
+	private String databaseName;
+	private SQLType sqlType = null;
+	private boolean identity;
+	private int idColumn;
+	private String host;
+	private String port;
+	private String loadDatabaseName;
+	private SQLType loadSQLType = null;
+	private String userName;
+	private String password;
+	private boolean loadIdentity;
+	private int loadIdColumn;
+	private List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	private FileController watchSettings;
+	private OutputType[] watchOutputTypes;
+	private PathMatcher matcher;
+	private WatchService watchService;
+	private Thread watchThread;
+	private ExecutorService pool;
+	private volatile boolean running = false;
+	// files seen but not yet quiet for long enough, only used by the watch thread
+	private Map<Path, Pending> pending = new HashMap<Path, Pending>();
+	// files handed to the workers and not yet moved out of the landing directory
+	private Set<Path> inProgress = new HashSet<Path>();
+	private AtomicInteger convertedCount = new AtomicInteger();
+	private AtomicInteger failedCount = new AtomicInteger();
+
+	/**
+	 * @param settings - The controller whose settings each file is converted with
+	 * @param landingDirectory - The directory to watch, created if it does not exist
+	 * @param outputDirectory - The directory to write the outputs to, created if it does not exist
+	 */
+	public DirectoryWatcher(FileController settings, File landingDirectory, File outputDirectory) {
+		this.settings = settings;
+		this.landingDirectory = landingDirectory;
+		this.outputDirectory = outputDirectory;
+		this.doneDirectory = new File(landingDirectory, "done");
+		this.failedDirectory = new File(landingDirectory, "failed");
+	}
+
+	/**
+	 * Starts watching the landing directory, handling the matching files already in it first
+	 * @throws IOException
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			throw new IllegalStateException("The watcher has already been started");
+		}
+		if (outputTypes.length == 0 && sqlType == null && loadSQLType == null) {
+			throw new IllegalStateException("No output types or database have been set for the watcher");
+		}
+		for (File directory : new File[] { landingDirectory, outputDirectory, doneDirectory, failedDirectory }) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create the directory " + directory);
+			}
+		}
+
+		// the settings are copied once so changes made while the watcher runs do not reach it
+		watchSettings = new FileController(settings);
+		watchOutputTypes = outputTypes.clone();
+		matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		watchService = FileSystems.getDefault().newWatchService();
+		landingDirectory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		pool = Executors.newFixedThreadPool(threads);
+		pending.clear();
+		inProgress.clear();
+		running = true;
+
+		watchThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "DirectoryWatcher " + landingDirectory.getName());
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Stops watching the landing directory and waits for the files already being handled to finish, files
+	 * that were still waiting to become quiet are left in the landing directory
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread thread;
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+			thread = watchThread;
+			watchService.close();
+		}
+		try {
+			thread.join();
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	private void watch() {
+		scanLandingDirectory();
+		// check the pending files often enough that a quiet file waits at most a little over the quiet time
+		long pollMillis = Math.max(10, quietMillis / 4);
+		try {
+			while (running) {
+				WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							// events were lost, so look at every file again
+							scanLandingDirectory();
+						} else {
+							see(landingDirectory.toPath().resolve((Path) event.context()));
+						}
+					}
+					key.reset();
+				}
+				submitQuietFiles();
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed by close()
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void scanLandingDirectory() {
+		try {
+			DirectoryStream<Path> stream = Files.newDirectoryStream(landingDirectory.toPath());
+			try {
+				for (Path path : stream) {
+					see(path);
+				}
+			} finally {
+				stream.close();
+			}
+		} catch (IOException e) {
+			if (watchSettings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE, "Error reading the landing directory!", e);
+			}
+		}
+	}
+
+	// a file has been created or written to, so it must be quiet for the whole quiet time again
+	private void see(Path path) {
+		if (!matcher.matches(path.getFileName()) || !Files.isRegularFile(path) || isInProgress(path)) {
+			return;
+		}
+		File file = path.toFile();
+		pending.put(path, new Pending(file.length(), file.lastModified(), System.nanoTime()));
+	}
+
+	private void submitQuietFiles() {
+		long now = System.nanoTime();
+		Iterator<Map.Entry<Path, Pending>> entries = pending.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Path, Pending> entry = entries.next();
+			final File file = entry.getKey().toFile();
+			Pending state = entry.getValue();
+			if (!file.isFile()) {
+				entries.remove();
+			} else if (file.length() != state.length || file.lastModified() != state.lastModified) {
+				// still being written, the watch events of some file systems lag behind
+				entry.setValue(new Pending(file.length(), file.lastModified(), now));
+			} else if (TimeUnit.NANOSECONDS.toMillis(now - state.since) >= quietMillis) {
+				entries.remove();
+				setInProgress(entry.getKey(), true);
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						handle(file);
+					}
+				});
+			}
+		}
+	}
+
+	private synchronized boolean isInProgress(Path path) {
+		return inProgress.contains(path);
+	}
+
+	private synchronized void setInProgress(Path path, boolean handling) {
+		if (handling) {
+			inProgress.add(path);
+		} else {
+			inProgress.remove(path);
+		}
+	}
+
+	private void handle(File csvFile) {
+		ConversionReport.Conversion conversion = convert(new FileController(watchSettings), csvFile);
+		File directory = conversion.isSuccessful() ? doneDirectory : failedDirectory;
+		try {
+			Files.move(csvFile.toPath(), new File(directory, csvFile.getName()).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			if (watchSettings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE, "Error moving " + csvFile + " out of the landing directory!", e);
+			}
+			if (conversion.isSuccessful()) {
+				conversion.setError(e);
+			}
+		} finally {
+			setInProgress(csvFile.toPath(), false);
+		}
+
+		if (conversion.isSuccessful()) {
+			convertedCount.incrementAndGet();
+		} else {
+			failedCount.incrementAndGet();
+		}
+		for (Listener listener : listeners) {
+			listener.fileHandled(conversion);
+		}
+	}
+
+	private ConversionReport.Conversion convert(FileController fileController, File csvFile) {
+		ConversionReport.Conversion conversion = new ConversionReport.Conversion(csvFile);
+		conversion.setBytesRead(csvFile.length());
+		long start = System.currentTimeMillis();
+		String name = ConversionJob.getBaseName(csvFile);
+		try {
+			for (OutputType outputType : watchOutputTypes) {
+				File outputFile = new File(outputDirectory, name + "." + ConversionJob.getExtension(outputType));
+				fileController.csvToFile(csvFile, outputFile, outputType);
+				conversion.addOutputFile(outputFile);
+			}
+			if (sqlType != null) {
+				File outputFile = new File(outputDirectory, name + ".sql");
+				fileController.csvToSQLFile(csvFile, outputFile, databaseName, sqlType, identity, idColumn);
+				conversion.addOutputFile(outputFile);
+			}
+			if (loadSQLType != null) {
+				fileController.csvToDatabasePipelined(csvFile, host, port, loadDatabaseName, loadSQLType, userName,
+						password, loadIdentity, loadIdColumn, 1);
+			}
+		} catch (IOException | SQLException | RuntimeException e) {
+			conversion.setError(e);
+		}
+		conversion.setElapsedMillis(System.currentTimeMillis() - start);
+		return conversion;
+	}
+
+	/**
+	 * @param listener - Told of each file once it has been handled and moved, on the worker thread that handled it
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return the number of files converted and moved to the done directory since the watcher was created
+	 */
+	public int getConvertedCount() {
+		return convertedCount.get();
+	}
+
+	/**
+	 * @return the number of files moved to the failed directory since the watcher was created
+	 */
+	public int getFailedCount() {
+		return failedCount.get();
+	}
+
+	public File getLandingDirectory() {
+		return landingDirectory;
+	}
+
+	public File getDoneDirectory() {
+		return doneDirectory;
+	}
+
+	/**
+	 * @param doneDirectory - The directory files are moved to once handled, by default done in the landing directory
+	 */
+	public void setDoneDirectory(File doneDirectory) {
+		this.doneDirectory = doneDirectory;
+	}
+
+	public File getFailedDirectory() {
+		return failedDirectory;
+	}
+
+	/**
+	 * @param failedDirectory - The directory files that fail are moved to, by default failed in the landing directory
+	 */
+	public void setFailedDirectory(File failedDirectory) {
+		this.failedDirectory = failedDirectory;
+	}
+
+	public String getGlob() {
+		return glob;
+	}
+
+	/**
+	 * @param glob - The pattern the file names must match to be handled, *.csv by default
+	 */
+	public void setGlob(String glob) {
+		this.glob = glob;
+	}
+
+	public long getQuietMillis() {
+		return quietMillis;
+	}
+
+	/**
+	 * @param quietMillis - How long a file's size and last modified time must stay the same before it is handled
+	 */
+	public void setQuietMillis(long quietMillis) {
+		this.quietMillis = quietMillis;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads - The number of files to handle at once
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public OutputType[] getOutputTypes() {
+		return outputTypes;
+	}
+
+	public void setOutputTypes(OutputType... outputTypes) {
+		this.outputTypes = outputTypes;
+	}
+
+	/**
+	 * Sets the watcher to write a .sql file for each input as well as its other outputs
+	 * @param databaseName - The name of the database
+	 * @param sqlType - The SQL format type to write, or null to write no .sql files
+	 * @param identity - Whether to create a default id field
+	 * @param idColumn - The column to be the id column(Cannot be used if identity is true)
+	 * @see FileController#csvToSQLFile(File, File, String, SQLType, boolean, int)
+	 */
+	public void setSQLFile(String databaseName, SQLType sqlType, boolean identity, int idColumn) {
+		this.databaseName = databaseName;
+		this.sqlType = sqlType;
+		this.identity = identity;
+		this.idColumn = idColumn;
+	}
+
+	/**
+	 * Sets the watcher to load each input into the database after its other outputs, the connections are
+	 * taken from the ConnectionPool so they stay open between files
+	 * @param host - The SQL host that you wish to connect to
+	 * @param port - The port that the database connects with
+	 * @param databaseName - The name of the database
+	 * @param sqlType - The SQL database type, or null to load nothing
+	 * @param userName - The User Name to connect with
+	 * @param password - The Password to connect with
+	 * @param identity - Whether to create a default id field
+	 * @param idColumn - The column to be the id column(Cannot be used if identity is true)
+	 * @see FileController#csvToDatabasePipelined(File, String, String, String, SQLType, String, String, boolean, int, int)
+	 */
+	public void setDatabase(String host, String port, String databaseName, SQLType sqlType, String userName,
+			String password, boolean identity, int idColumn) {
+		this.host = host;
+		this.port = port;
+		this.loadDatabaseName = databaseName;
+		this.loadSQLType = sqlType;
+		this.userName = userName;
+		this.password = password;
+		this.loadIdentity = identity;
+		this.loadIdColumn = idColumn;
+	}
+
+	/**
+	 * Used to follow the files handled by a DirectoryWatcher
+	 */
+	public interface Listener {
+
+		/**
+		 * Called once a file has been handled and moved to the done or failed directory
+		 * @param conversion - The outcome of the file
+		 */
+		void fileHandled(ConversionReport.Conversion conversion);
+	}
+
+	// the size and last modified time of a file when it was last seen to change
+	private static class Pending {
+		private long length;
+		private long lastModified;
+		private long since;
+
+		Pending(long length, long lastModified, long since) {
+			this.length = length;
+			this.lastModified = lastModified;
+			this.since = since;
+		}
+	}
+}
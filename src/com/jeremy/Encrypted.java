@@ -2,16 +2,25 @@ package com.jeremy;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -34,7 +43,7 @@ public class Encrypted<T extends Serializable> implements Serializable{
 	 * @return
 	 * @throws NoSuchAlgorithmException
 	 */
-	private SecretKey passwordToKey(String password) throws Exception{
+	private static SecretKey passwordToKey(String password) throws Exception{
 		MessageDigest sha = MessageDigest.getInstance("SHA-1");
 		byte[] key = sha.digest(password.getBytes());
 		key = Arrays.copyOf(key, 16);
@@ -61,6 +70,72 @@ public class Encrypted<T extends Serializable> implements Serializable{
 		encData = cipher.doFinal(ser);
 	}
 	
+	/**
+	 * Serializes the given object and encrypts it straight to a stream, so neither the serialized nor the
+	 * encrypted bytes are held in memory. The stream holds the same bytes an Encrypted object stores.
+	 * @param object the object to be encrypted
+	 * @param password the encryption password
+	 * @param out the stream to write the encrypted object to, left open
+	 * @throws Exception
+	 */
+	public static <T extends Serializable> void encrypt(T object, String password, OutputStream out) throws Exception{
+		Cipher cipher = Cipher.getInstance("AES");
+		cipher.init(Cipher.ENCRYPT_MODE, passwordToKey(password));
+		
+		//the cipher stream is closed to write the final block, the caller's stream is not
+		ObjectOutput oo = new ObjectOutputStream(new CipherOutputStream(new FilterOutputStream(out){
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException{
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException{
+				flush();
+			}
+		}, cipher));
+		oo.writeObject(object);
+		oo.close();
+	}
+	
+	/**
+	 * Serializes the given object and encrypts it straight to a channel.
+	 * @param object the object to be encrypted
+	 * @param password the encryption password
+	 * @param channel the channel to write the encrypted object to, left open
+	 * @throws Exception
+	 * @see #encrypt(Serializable, String, OutputStream)
+	 */
+	public static <T extends Serializable> void encrypt(T object, String password, WritableByteChannel channel) throws Exception{
+		encrypt(object, password, Channels.newOutputStream(channel));
+	}
+	
+	/**
+	 * Decrypts an object written by encrypt(Serializable, String, OutputStream) as it is read from a stream.
+	 * @param in the stream to read the encrypted object from, left open
+	 * @param password the encryption password
+	 * @return the decrypted object
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Serializable> T decrypt(InputStream in, String password) throws Exception{
+		Cipher cipher = Cipher.getInstance("AES");
+		cipher.init(Cipher.DECRYPT_MODE, passwordToKey(password));
+		ObjectInput oi = new ObjectInputStream(new CipherInputStream(in, cipher));
+		return (T) oi.readObject();
+	}
+	
+	/**
+	 * Decrypts an object written by encrypt(Serializable, String, WritableByteChannel) as it is read from a channel.
+	 * @param channel the channel to read the encrypted object from, left open
+	 * @param password the encryption password
+	 * @return the decrypted object
+	 * @throws Exception
+	 */
+	public static <T extends Serializable> T decrypt(ReadableByteChannel channel, String password) throws Exception{
+		return decrypt(Channels.newInputStream(channel), password);
+	}
+	
 	/**
 	 * Decrypts the stored byte array and deserialises it into an object.
 	 * @param password the encryption password
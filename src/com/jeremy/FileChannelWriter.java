@@ -0,0 +1,458 @@
+package com.jeremy;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A Writer that encodes text as UTF-8 into large direct buffers and writes them to a FileChannel, the
+ * buffers being pooled so opening a writer for each output does not allocate new ones. Opened by
+ * FileUtility.openWriter() with FileUtility's settings.
+ * <br/>
+ * With write-behind each full buffer is written by a background thread while the next one is filled, so
+ * encoding and disk writes overlap. An atomic writer writes to a temporary file next to the output and
+ * renames it over the output when closed, so readers never see a half written file. The sync policy sets
+ * when the data is forced to the disk.
+ * <br/>
+ * The temporary file is created the same as a new output, with the permissions the umask gives, and then
+ * given an existing output's POSIX permissions and, where allowed, its owner and group. When the output is
+ * a symbolic link the link is kept and the file it points to is replaced. Other hard links to the output
+ * keep the old contents, and attributes such as ACLs are not copied.
+ * <br/>
+ * A writer whose own writes fail, or that is aborted, never replaces the output, a writer that is not atomic
+ * deletes the partial output instead. Close the writer only once
+ * the output is complete and abort it if producing the output fails, aborting a closed writer does nothing.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileChannelWriter writer = new FileChannelWriter(new File("output/TestData.xml"), true, SyncPolicy.ON_CLOSE, true);
+ * try {
+ * 	writer.write(...);
+ * 	writer.close();
+ * } finally {
+ * 	writer.abort();
+ * }
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see FileUtility#openWriter(File)
+ */
+public class FileChannelWriter extends Writer {
+	public static final int BUFFER_SIZE = 256 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 16;
+
+	/**
+	 * When the data written is forced to the disk
+	 */
+	public enum SyncPolicy {
+		/** left to the operating system */
+		NEVER,
+		/** once, when the writer is closed, before an atomic writer renames its file */
+		ON_CLOSE,
+		/** after every buffer written as well as on close */
+		EVERY_BUFFER
+	}
+
+	private static final Random TEMP_NAMES = new Random();
+
+	private static Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<ByteBuffer>();
+	private static ExecutorService writeBehindPool;
+
+	private File file;
+	private Path target;
+	private Path tempFile;
+	private FileChannel channel;
+	private SyncPolicy syncPolicy;
+	private boolean writeBehind;
+	private CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+	private ByteBuffer bytes;
+	private ByteBuffer spare;
+	private Future<Void> pending = null;
+	private boolean failed = false;
+	private boolean closed = false;
+
+	/**
+	 * Opens a writer to a file, creating or truncating it
+	 * @param file - The file to write to, its directory must exist
+	 * @param atomic - Whether to write to a temporary file that replaces the file when closed
+	 * @param syncPolicy - When the data is forced to the disk
+	 * @param writeBehind - Whether full buffers are written by a background thread
+	 * @throws IOException if the file cannot be opened
+	 */
+	public FileChannelWriter(File file, boolean atomic, SyncPolicy syncPolicy, boolean writeBehind) throws IOException {
+		if (file.isDirectory()) {
+			throw new FileNotFoundException(file + " is a directory");
+		}
+		this.file = file;
+		this.syncPolicy = syncPolicy;
+		this.writeBehind = writeBehind;
+		Path path = file.getAbsoluteFile().toPath();
+		if (atomic) {
+			// a symbolic link is kept and the file it points to replaced
+			target = Files.isSymbolicLink(path) && Files.exists(path) ? path.toRealPath() : path;
+			tempFile = createTempFile(target);
+			path = tempFile;
+		}
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			if (tempFile != null) {
+				Files.deleteIfExists(tempFile);
+			}
+			throw e;
+		}
+		bytes = acquireBuffer();
+		if (writeBehind) {
+			spare = acquireBuffer();
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+		if (!chars.hasRemaining()) {
+			encode(false);
+		}
+		chars.put((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+			int count = Math.min(len, chars.remaining());
+			chars.put(cbuf, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (!chars.hasRemaining()) {
+				encode(false);
+			}
+			int count = Math.min(len, chars.remaining());
+			chars.put(str, off, off + count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Writes everything written so far to the file, without forcing it to the disk
+	 * @throws IOException
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encode(false);
+		writeBuffer();
+		waitForPending();
+	}
+
+	/**
+	 * Writes the rest of the output and closes the file, renaming an atomic writer's file over the output.
+	 * A writer that has failed is aborted instead
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		if (failed) {
+			abort();
+			return;
+		}
+		try {
+			encode(true);
+			writeBuffer();
+			waitForPending();
+			if (syncPolicy != SyncPolicy.NEVER) {
+				channel.force(true);
+			}
+		} catch (IOException | RuntimeException e) {
+			abort();
+			throw e;
+		}
+		closed = true;
+		releaseBuffers();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			if (tempFile != null) {
+				Files.deleteIfExists(tempFile);
+			}
+			throw e;
+		}
+		if (tempFile != null) {
+			publish();
+		}
+	}
+
+	/**
+	 * Closes the writer without publishing the output, an atomic writer's temporary file is deleted and the
+	 * output is left as it was. A writer that is not atomic has already truncated the output, so the partial
+	 * output is deleted rather than left looking like a finished one
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		Future<Void> inFlight = pending;
+		try {
+			waitForPending();
+		} catch (IOException e) {
+			// the output is being thrown away
+		}
+		// a buffer still being written when interrupted is left to the garbage collector rather than reused
+		if (inFlight == null || inFlight.isDone()) {
+			releaseBuffers();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// the output is being thrown away
+		}
+		try {
+			Files.deleteIfExists(tempFile != null ? tempFile : file.getAbsoluteFile().toPath());
+		} catch (IOException e) {
+			// the output is being thrown away
+		}
+	}
+
+	/**
+	 * @return the file being written to
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The writer has been closed");
+		}
+	}
+
+	// encodes the characters waiting in the char buffer, writing out the byte buffer each time it fills
+	private void encode(boolean endOfInput) throws IOException {
+		chars.flip();
+		try {
+			while (true) {
+				CoderResult result = encoder.encode(chars, bytes, endOfInput);
+				if (result.isOverflow()) {
+					writeBuffer();
+				} else if (result.isUnderflow()) {
+					break;
+				} else {
+					result.throwException();
+				}
+			}
+			while (endOfInput && encoder.flush(bytes).isOverflow()) {
+				writeBuffer();
+			}
+		} finally {
+			// a high surrogate waiting for its pair stays in the buffer
+			chars.compact();
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		if (bytes.position() == 0) {
+			return;
+		}
+		bytes.flip();
+		if (!writeBehind) {
+			try {
+				writeFully(bytes);
+			} catch (IOException e) {
+				failed = true;
+				throw e;
+			}
+			return;
+		}
+
+		// the spare buffer is free once the write before is done, the full buffer is written while it fills
+		waitForPending();
+		final ByteBuffer full = bytes;
+		bytes = spare;
+		spare = full;
+		pending = getWriteBehindPool().submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				writeFully(full);
+				return null;
+			}
+		});
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+		if (syncPolicy == SyncPolicy.EVERY_BUFFER) {
+			channel.force(false);
+		}
+	}
+
+	private void waitForPending() throws IOException {
+		if (pending == null) {
+			return;
+		}
+		try {
+			pending.get();
+		} catch (ExecutionException e) {
+			failed = true;
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			failed = true;
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a write to " + file);
+		} finally {
+			pending = null;
+		}
+	}
+
+	// created beside the output so it can be renamed over it, Files.createTempFile would only let the owner read it
+	private static Path createTempFile(Path target) throws IOException {
+		Path tempFile;
+		while (true) {
+			tempFile = target.resolveSibling("." + target.getFileName() + "."
+					+ Long.toString(TEMP_NAMES.nextLong() & Long.MAX_VALUE, 36) + ".tmp");
+			try {
+				Files.createFile(tempFile);
+				break;
+			} catch (FileAlreadyExistsException e) {
+				// another writer has the name
+			}
+		}
+		try {
+			copyAttributes(target, tempFile);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+		return tempFile;
+	}
+
+	// gives the temporary file the output's owner, group and permissions, the permissions last as changing
+	// the owner can clear some of them
+	private static void copyAttributes(Path target, Path tempFile) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(tempFile, PosixFileAttributeView.class);
+		if (view == null || !Files.exists(target)) {
+			return;
+		}
+		PosixFileAttributes attributes = Files.readAttributes(target, PosixFileAttributes.class);
+		try {
+			view.setGroup(attributes.group());
+			view.setOwner(attributes.owner());
+		} catch (IOException e) {
+			// only a privileged user can give a file away, the writer then owns the output
+		}
+		view.setPermissions(attributes.permissions());
+	}
+
+	private void publish() throws IOException {
+		try {
+			try {
+				Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+		if (syncPolicy != SyncPolicy.NEVER) {
+			syncDirectory(target.getParent());
+		}
+	}
+
+	// makes the rename itself durable, not every platform can open a directory so failing is not an error
+	private static void syncDirectory(Path directory) {
+		try {
+			FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ);
+			try {
+				directoryChannel.force(true);
+			} finally {
+				directoryChannel.close();
+			}
+		} catch (IOException e) {
+			// the file's own data has already been forced
+		}
+	}
+
+	private void releaseBuffers() {
+		releaseBuffer(bytes);
+		releaseBuffer(spare);
+		bytes = null;
+		spare = null;
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		ByteBuffer buffer = bufferPool.poll();
+		return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		if (buffer != null && bufferPool.size() < MAX_POOLED_BUFFERS) {
+			buffer.clear();
+			bufferPool.offer(buffer);
+		}
+	}
+
+	private synchronized static ExecutorService getWriteBehindPool() {
+		if (writeBehindPool == null) {
+			writeBehindPool = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "FileChannelWriter write-behind");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return writeBehindPool;
+	}
+}
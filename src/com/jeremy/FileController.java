@@ -1,10 +1,29 @@
 package com.jeremy;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
+import com.jeremy.SQLHandler.InsertMode;
 import com.jeremy.SQLHandler.SQLType;
 
 /**
@@ -21,13 +40,22 @@ public class FileController {
 	// TODO: decide access modifier for other classes, package maybe?
 
 	public enum OutputType {
-		XML, XML_SCHEMA, JSON, SERIALIZED
+		XML, XML_SCHEMA, JSON, SERIALIZED, CSV
 	}
 
 	private TableData tblData = null;
 	private CSVHandler csvHandler;
 
 	private boolean logErrors = true;
+	private InsertMode insertMode = InsertMode.BATCH;
+	private boolean deferConstraints = false;
+	private boolean compactTypes = false;
+	private int[] indexColumns = new int[0];
+	private List<LoadListener> loadListeners = new ArrayList<LoadListener>();
+	private boolean jmxEnabled = false;
+	private TableData schema = null;
+	private TableCache tableCache = null;
+	private OutputCache outputCache = null;
 
 	public FileController() {
 		csvHandler = new CSVHandler();
@@ -39,6 +67,32 @@ public class FileController {
 		this.logErrors = logErrors;
 	}
 
+	/**
+	 * Creates a controller with the same settings as another, such as one for each thread of a
+	 * ConversionJob. The other controller's table data is not copied
+	 * 
+	 * @param settings
+	 *            - The controller to copy the settings of
+	 */
+	public FileController(FileController settings) {
+		csvHandler = new CSVHandler();
+		csvHandler.setFirstLineUsedAsColumnHeader(settings.isFirstLineUsedAsColumnHeader());
+		csvHandler.setDateFormat(settings.getDateFormat());
+		csvHandler.setColumnDelimiter(settings.getColumnDelimiter());
+		csvHandler.setScanLines(settings.getScanLines());
+
+		logErrors = settings.logErrors;
+		insertMode = settings.insertMode;
+		deferConstraints = settings.deferConstraints;
+		compactTypes = settings.compactTypes;
+		indexColumns = settings.indexColumns;
+		loadListeners.addAll(settings.loadListeners);
+		jmxEnabled = settings.jmxEnabled;
+		schema = settings.schema;
+		tableCache = settings.tableCache;
+		outputCache = settings.outputCache;
+	}
+
 	/**
 	 * Reads a CSV file into the tblData TableData object
 	 * 
@@ -58,7 +112,7 @@ public class FileController {
 		try {
 
 			// read in the csv file
-			tblData = csvHandler.readCSV(fileName);
+			tblData = readCSV(new File(fileName));
 		} catch (IOException e) {
 
 			// log the error that occurs
@@ -92,7 +146,7 @@ public class FileController {
 		try {
 
 			// read in the csv file
-			tblData = csvHandler.readCSV(directory, fileName);
+			tblData = readCSV(new File(directory, fileName));
 		} catch (IOException e) {
 
 			// log the error that occurs
@@ -126,7 +180,7 @@ public class FileController {
 		try {
 
 			// read in the csv file
-			tblData = csvHandler.readCSV(csvFile);
+			tblData = readCSV(csvFile);
 		} catch (IOException e) {
 
 			// log the error that occurs
@@ -138,6 +192,54 @@ public class FileController {
 		}
 	}
 
+	/**
+	 * Reads UTF-8 CSV data from a stream, such as a pipe, socket or in-memory buffer, into the tblData
+	 * TableData object without a temporary file. With a declared schema (see setSchema) the stream is read
+	 * once, a row at a time, otherwise it is scanned for its columns. The table cache is not used as a
+	 * stream has no identity to cache by
+	 * 
+	 * @param in
+	 *            - The stream to read, read to its end and left open
+	 * @param tableName
+	 *            - The name to give the table <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.readFile(process.getInputStream(), &quot;TestData&quot;);
+	 * </pre>
+	 * @throws IOException
+	 * @see CSVHandler#readCSV(InputStream, String)
+	 */
+	public void readFile(InputStream in, String tableName) throws IOException {
+		try {
+			tblData = schema == null ? csvHandler.readCSV(in, tableName) : csvHandler.readCSV(in, getStreamSchema(tableName));
+		} catch (IOException e) {
+
+			// log the error that occurs
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error reading stream: " + tableName, e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads CSV data from a channel into the tblData TableData object
+	 * 
+	 * @param channel
+	 *            - The channel to read, read to its end and left open
+	 * @param tableName
+	 *            - The name to give the table
+	 * @throws IOException
+	 * @see #readFile(InputStream, String)
+	 */
+	public void readFile(ReadableByteChannel channel, String tableName) throws IOException {
+		readFile(Channels.newInputStream(channel), tableName);
+	}
+
 	/**
 	 * Reads a Serialized file into the tblData TableData object
 	 * 
@@ -237,6 +339,64 @@ public class FileController {
 		}
 	}
 
+	/**
+	 * Reads a Serialized table from a stream into the tblData TableData object
+	 * 
+	 * @param in
+	 *            - The stream to read, left open <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.readSerialized(socket.getInputStream());
+	 * </pre>
+	 * @throws Exception
+	 */
+	public void readSerialized(InputStream in) throws Exception {
+		try {
+			tblData = new Serialized<TableData>().load(in);
+		} catch (IOException e) {
+
+			// log the error that occurs
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error reading stream!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the rows of the first table in a .sql dump into the tblData TableData object. The column
+	 * classes come from the dump's CREATE TABLE and the values are read as Strings, as readFile reads them
+	 * 
+	 * @param sqlFile
+	 *            - The .sql dump that you wish to read in <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.readSQLFile(new File(&quot;output/TestData.sql&quot;));
+	 * </pre>
+	 * @throws IOException
+	 * @see SQLDumpReader
+	 */
+	public void readSQLFile(File sqlFile) throws IOException {
+		try {
+			tblData = TableDataCursor.readAll(new SQLDumpReader(sqlFile));
+		} catch (IOException e) {
+
+			// log the error that occurs
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error reading file: " + sqlFile, e);
+			}
+			throw e;
+		}
+	}
+
 	/**
 	 * Outputs data in the specified format to the file specified
 	 * 
@@ -317,30 +477,17 @@ public class FileController {
 	 * @throws IOException
 	 */
 	public void outputData(File file, OutputType outputType) throws IOException {
-		String output = "";
-
-		// get specific output string per output type
-		switch (outputType) {
-		case XML:
-			output = new XMLHandler(tblData, true).getXMLString();
-			break;
-		case XML_SCHEMA:
-			output = new XMLHandler(tblData, true).getSchemaString();
-			break;
-		case JSON:
-			output = new JSONHandler(tblData).stringifyJSON();
-			break;
-		case SERIALIZED:
+		if (outputType == OutputType.SERIALIZED) {
 
 			// write straight to file, no need to return a string
 			new Serialized<TableData>().save(tblData, file);
 			return;
 		}
 
+		// stream the rows straight to the file rather than building the document as a string
 		try {
-			FileUtility.writeFile(file, output);
+			writeCursor(new TableDataCursor(tblData), tblData.getLines(), file, outputType);
 		} catch (IOException e) {
-
 			if (logErrors) {
 				Logging.getInstance().log(Level.SEVERE,
 						"Error writing output to file!", e);
@@ -350,7 +497,59 @@ public class FileController {
 	}
 
 	/**
-	 * Outputs data in the specified SQL format to a SQL file
+	 * Outputs data in the specified format to a stream, such as a pipe, socket or in-memory buffer, without a
+	 * temporary file. The text formats are written a row at a time as UTF-8, the same as a file
+	 * 
+	 * @param out
+	 *            - The stream that you wish to write to, flushed and left open
+	 * @param outputType
+	 *            - The format type that you wish to output as <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.readFile(new File(&quot;TestData.csv&quot;));
+	 * 
+	 * fc.outputData(socket.getOutputStream(), OutputType.XML);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void outputData(OutputStream out, OutputType outputType) throws IOException {
+		try {
+			if (outputType == OutputType.SERIALIZED) {
+				new Serialized<TableData>().save(tblData, out);
+			} else {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				TableWriter.getInstance(outputType, csvHandler.getColumnDelimiter(), csvHandler.getDateFormat())
+						.write(new TableDataCursor(tblData), tblData.getLines(), writer);
+				writer.flush();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to stream!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Outputs data in the specified format to a channel
+	 * 
+	 * @param channel
+	 *            - The channel that you wish to write to, left open
+	 * @param outputType
+	 *            - The format type that you wish to output as
+	 * @throws IOException
+	 * @see #outputData(OutputStream, OutputType)
+	 */
+	public void outputData(WritableByteChannel channel, OutputType outputType) throws IOException {
+		outputData(Channels.newOutputStream(channel), outputType);
+	}
+
+	/**
+	 * Outputs data in the specified SQL format to a SQL file. The script is streamed to the file, with the
+	 * rows written according to the controller's InsertMode (see SQLScriptWriter)
 	 * 
 	 * @param file
 	 *            - The file object that you wish to write to
@@ -373,23 +572,275 @@ public class FileController {
 	 */
 	public void outputToSQLFile(File file, String databaseName, SQLType sqlType, boolean identity, int idColumn)
 			throws IOException {
-		String output = new SQLHandler(tblData).createSQLFile(databaseName,
-				sqlType, identity, idColumn);
+		SQLHandler sql = createSQLHandler();
+
+		try {
+			// stream the script straight to the file
+			FileChannelWriter writer = FileUtility.openWriter(file);
+			try {
+				sql.writeSQLFile(writer, databaseName, sqlType, identity, idColumn);
+				writer.close();
+			} finally {
+				writer.abort();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to file!", e);
+			}
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Outputs data in the specified SQL format split into a schema file and several data files, so the data
+	 * files can be loaded at the same time by separate clients once the schema file has been run. Each data
+	 * file loads its rows in its own transaction. The data files are named after the schema file, test.sql
+	 * has data files test.1.sql, test.2.sql and so on
+	 * 
+	 * @param file
+	 *            - The file object that you wish to write the schema to
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL format type that you wish to output as
+	 * @param partitions
+	 *            - The number of data files to write
+	 * @param partitionColumn
+	 *            - The column whose value's hash picks each row's data file, or -1 to split the rows into equal ranges <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * File file = new File(&quot;output/&quot;, &quot;TestData.sql&quot;);
+	 * 
+	 * FileController fc = new FileController();
+	 * 
+	 * List&lt;File&gt; files = fc.outputToSQLFiles(file, &quot;Apples&quot;, SQLType.POSTGRESQL, true, -1, 8, -1);
+	 * </pre>
+	 * @return the files written, the schema file first
+	 * @throws IOException
+	 */
+	public List<File> outputToSQLFiles(File file, String databaseName, SQLType sqlType, boolean identity,
+			int idColumn, int partitions, int partitionColumn) throws IOException {
+		SQLHandler sql = createSQLHandler();
+
+		List<File> files = new ArrayList<File>();
+		FileChannelWriter[] dataWriters = new FileChannelWriter[partitions];
+		FileChannelWriter schemaWriter = null;
+		try {
+			files.add(file);
+			schemaWriter = FileUtility.openWriter(file);
+			for (int i = 0; i < partitions; i++) {
+				File partitionFile = getPartitionFile(file, i + 1);
+				files.add(partitionFile);
+				dataWriters[i] = FileUtility.openWriter(partitionFile);
+			}
+			sql.writeSQLFiles(schemaWriter, dataWriters, databaseName, sqlType, identity, idColumn, partitionColumn);
+			schemaWriter.close();
+			for (FileChannelWriter writer : dataWriters) {
+				writer.close();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to file!", e);
+			}
+			throw e;
+		} finally {
+			// the writers still open are those of a failed write
+			if (schemaWriter != null) {
+				schemaWriter.abort();
+			}
+			for (FileChannelWriter writer : dataWriters) {
+				if (writer != null) {
+					writer.abort();
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Outputs data in several formats at once, each written by its own thread from the same table data.
+	 * Nothing is re-read, so the time taken is close to that of the slowest format rather than the sum of
+	 * them all. Every output is written even if another fails, the first error is then thrown
+	 * 
+	 * @param outputFiles
+	 *            - The file to write each format type to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * Map&lt;OutputType, File&gt; outputFiles = new EnumMap&lt;OutputType, File&gt;(OutputType.class);
+	 * outputFiles.put(OutputType.XML, new File(&quot;output/TestData.xml&quot;));
+	 * outputFiles.put(OutputType.JSON, new File(&quot;output/TestData.jsn&quot;));
+	 * 
+	 * FileController fc = new FileController();
+	 * fc.readFile(new File(&quot;TestData.csv&quot;));
+	 * fc.outputDataParallel(outputFiles);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void outputDataParallel(Map<OutputType, File> outputFiles) throws IOException {
+		outputDataParallel(outputFiles, null, null, null, false, -1);
+	}
+
+	/**
+	 * Outputs data in several formats and as a SQL file at once, each written by its own thread from the
+	 * same table data
+	 * 
+	 * @param outputFiles
+	 *            - The file to write each format type to
+	 * @param sqlFile
+	 *            - The file to write the SQL script to, or null for no script
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL format type that you wish to output as <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * fc.outputDataParallel(outputFiles, new File(&quot;output/TestData.sql&quot;), &quot;TestData&quot;, SQLType.MYSQL, true, -1);
+	 * </pre>
+	 * @throws IOException
+	 * @see #outputDataParallel(Map)
+	 */
+	public void outputDataParallel(Map<OutputType, File> outputFiles, final File sqlFile, final String databaseName,
+			final SQLType sqlType, final boolean identity, final int idColumn) throws IOException {
+
+		// the writers only read the table, so they can all share it
+		final TableData data = tblData;
+		List<Callable<Void>> outputs = new ArrayList<Callable<Void>>();
+		for (Map.Entry<OutputType, File> entry : outputFiles.entrySet()) {
+			final OutputType outputType = entry.getKey();
+			final File file = entry.getValue();
+			outputs.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					if (outputType == OutputType.SERIALIZED) {
+						new Serialized<TableData>().save(data, file);
+					} else {
+						writeCursor(new TableDataCursor(data), data.getLines(), file, outputType);
+					}
+					return null;
+				}
+			});
+		}
+		if (sqlFile != null) {
+			final SQLHandler sql = createSQLHandler(data);
+			outputs.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					FileChannelWriter writer = FileUtility.openWriter(sqlFile);
+					try {
+						sql.writeSQLFile(writer, databaseName, sqlType, identity, idColumn);
+						writer.close();
+					} finally {
+						writer.abort();
+					}
+					return null;
+				}
+			});
+		}
+		if (outputs.isEmpty()) {
+			return;
+		}
 
+		ExecutorService executor = Executors.newFixedThreadPool(outputs.size());
 		try {
-			FileUtility.writeFile(file, output);
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (Callable<Void> output : outputs) {
+				futures.add(executor.submit(output));
+			}
+			IOException error = null;
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (error == null) {
+						error = e.getCause() instanceof IOException ? (IOException) e.getCause()
+								: new IOException(e.getCause());
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing the outputs", e);
 		} catch (IOException e) {
 			if (logErrors) {
 				Logging.getInstance().log(Level.SEVERE,
 						"Error writing output to file!", e);
 			}
 			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// reads through the table cache when one is set
+	private TableData readCSV(File csvFile) throws IOException {
+		return tableCache == null ? csvHandler.readCSV(csvFile) : tableCache.readCSV(csvFile, csvHandler);
+	}
+
+	// a snapshot shares the cached table rather than copying it
+	TableSnapshot readSnapshot(File csvFile) throws IOException {
+		try {
+			return tableCache == null ? new TableSnapshot(csvHandler.readCSV(csvFile))
+					: tableCache.readSnapshot(csvFile, csvHandler);
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error reading file: " + csvFile, e);
+			}
+			throw e;
+		}
+	}
+
+	// a handler for the table data with the controller's SQL settings
+	private SQLHandler createSQLHandler() {
+		return createSQLHandler(tblData);
+	}
+
+	SQLHandler createSQLHandler(TableData data) {
+		SQLHandler sql = new SQLHandler(data);
+		sql.setInsertMode(insertMode);
+		sql.setDeferConstraints(deferConstraints);
+		sql.setIndexColumns(indexColumns);
+		sql.setCompactTypes(compactTypes);
+		sql.setJmxEnabled(jmxEnabled);
+		for (LoadListener listener : loadListeners) {
+			sql.addLoadListener(listener);
 		}
+		return sql;
+	}
+
+	// an embedded database has no port, its host is the directory holding it
+	static String getServer(String host, String port) {
+		if (port == null || port.isEmpty()) {
+			return host;
+		}
+		return host + ":" + port;
+	}
 
+	// test.sql becomes test.1.sql
+	private File getPartitionFile(File file, int partition) {
+		String name = file.getName();
+		int extentionPosition = name.lastIndexOf(".");
+		if (extentionPosition == -1) {
+			name = name + "." + partition;
+		} else {
+			name = name.substring(0, extentionPosition) + "." + partition + name.substring(extentionPosition);
+		}
+		return new File(file.getParentFile(), name);
 	}
 
 	/**
-	 * Outputs data directly into the database
+	 * Outputs data directly into the database. Rows are sent using the controller's InsertMode,
+	 * InsertMode.BULK uses the database's native bulk load (COPY, LOAD DATA). If the table is created
+	 * with deferred constraints its primary key and indexes are built once the rows are in
 	 * 
 	 * @param host
 	 *            - The SQL host that you wish to connect to
@@ -414,6 +865,8 @@ public class FileController {
 	 * String password = &quot;EatAnAppleInstead1&quot;;
 	 * 
 	 * FileController fc = new FileController();
+	 * fc.setInsertMode(InsertMode.BULK);
+	 * fc.setDeferConstraints(true);
 	 * 
 	 * fc.outputData(host, port, databaseName, SQLType.MYSQL, userName, passWord);
 	 * </pre>
@@ -424,7 +877,7 @@ public class FileController {
 			throws SQLException {
 
 		// set up the SQL handler with the table data
-		SQLHandler sql = new SQLHandler(tblData);
+		SQLHandler sql = createSQLHandler();
 
 		try {
 
@@ -435,7 +888,7 @@ public class FileController {
 			//sql.createTable(host + ":" + port, databaseName, sqlType, userName, password, identity, idColumn);
 
 			// insert the data
-			sql.insertDatabase(host + ":" + port, databaseName, sqlType,
+			sql.insertDatabase(getServer(host, port), databaseName, sqlType,
 					userName, password, identity, idColumn);
 		} catch (SQLException e) {
 			if (logErrors) {
@@ -447,44 +900,298 @@ public class FileController {
 
 	}
 
-	/* Stream-lined methods */
-
 	/**
-	 * Reads a csv file into the tblData TableData object and exports it as an
-	 * XML File
+	 * Outputs data directly into the database over several connections at once, each loading its own
+	 * range of rows in its own transaction
 	 * 
-	 * @param csvFile
-	 *            - The file object that you wish to read in
-	 * @param outputFile
-	 *            - The file object that you wish to write to <br/>
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL format type that you wish to output as
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param threads
+	 *            - The number of connections to load over
+	 * @param allOrNothing
+	 *            - Load through a staging table so either every row or no row is loaded <br/>
 	 *            <b>USAGE:</b><br/>
 	 * 
 	 *            <pre>
-	 * String outputFile = &quot;TestData.xml&quot;;
-	 * String fileName = &quot;TestData.csv&quot;;
-	 * String directory = &quot;output/&quot;;
-	 * File file = new File(directory, fileName);
-	 * 
 	 * FileController fc = new FileController();
 	 * 
-	 * fc.csvToXML(file, outputFile);
+	 * LoadReport report = fc.outputToDatabaseParallel(host, port, databaseName, SQLType.MYSQL, userName, passWord, true, -1, 8, true);
 	 * </pre>
-	 * @throws IOException
+	 * @return a report with the outcome of each range of rows
+	 * @throws SQLException
+	 * @see LoadReport
 	 */
-	public void csvToXML(File csvFile, File outputFile) throws IOException {
-		readFile(csvFile);
-		outputData(outputFile, OutputType.XML);
+	public LoadReport outputToDatabaseParallel(String host, String port, String databaseName,
+			SQLType sqlType, String userName, String password, boolean identity, int idColumn,
+			int threads, boolean allOrNothing) throws SQLException {
+
+		// set up the SQL handler with the table data
+		SQLHandler sql = createSQLHandler();
+
+		try {
+			return sql.insertDatabaseParallel(getServer(host, port), databaseName, sqlType,
+					userName, password, identity, idColumn, threads, allOrNothing);
+		} catch (SQLException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error outputing to database!", e);
+			}
+			throw e;
+		}
 	}
-	
+
 	/**
-	 * Reads a csv file into the tblData TableData object and exports it as an
-	 * XML Schema File
-	 * 
-	 * @param csvFile
-	 *            - The file object that you wish to read in
-	 * @param outputFile
-	 *            - The file object that you wish to write to <br/>
-	 *            <b>USAGE:</b><br/>
+	 * Inserts new rows into the database and updates the rows that have changed, matching rows on the id
+	 * column. Rows are bulk loaded into a staging table first and merged into the table in one statement
+	 * 
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL format type that you wish to output as
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param idColumn
+	 *            - The column holding each row's key <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.readFile(new File(&quot;TestData/testDataType.csv&quot;));
+	 * 
+	 * fc.upsertToDatabase(host, port, databaseName, SQLType.POSTGRESQL, userName, passWord, 0);
+	 * </pre>
+	 * @throws SQLException
+	 */
+	public void upsertToDatabase(String host, String port, String databaseName,
+			SQLType sqlType, String userName, String password, int idColumn) throws SQLException {
+		SQLHandler sql = createSQLHandler();
+
+		try {
+			sql.upsertDatabase(getServer(host, port), databaseName, sqlType,
+					userName, password, idColumn);
+		} catch (SQLException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error outputing to database!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads a database table into the tblData TableData object
+	 * 
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL database type
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param tableName
+	 *            - The table to read <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.readDatabase(host, port, databaseName, SQLType.MYSQL, userName, passWord, &quot;users&quot;);
+	 * fc.outputData(new File(&quot;users.xml&quot;), OutputType.XML);
+	 * </pre>
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public void readDatabase(String host, String port, String databaseName, SQLType sqlType,
+			String userName, String password, String tableName) throws SQLException, IOException {
+		try {
+			tblData = TableDataCursor.readAll(DatabaseCursor.openTable(getServer(host, port), databaseName,
+					sqlType, userName, password, tableName));
+		} catch (SQLException | IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error reading from database!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Exports a database table to a file without reading it into memory first. The rows are read through
+	 * a server side cursor and written to the file as they arrive, so tables larger than memory can be
+	 * exported. tblData is left untouched
+	 * 
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL database type
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param tableName
+	 *            - The table to export
+	 * @param file
+	 *            - The file object that you wish to write to
+	 * @param outputType
+	 *            - The format type that you wish to output as <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.exportTable(host, port, databaseName, SQLType.POSTGRESQL, userName, passWord, &quot;users&quot;,
+	 * 		new File(&quot;users.csv&quot;), OutputType.CSV);
+	 * </pre>
+	 * @throws SQLException
+	 * @throws IOException
+	 * @see #exportQuery(String, String, String, SQLType, String, String, String, String, File, OutputType)
+	 */
+	public void exportTable(String host, String port, String databaseName, SQLType sqlType,
+			String userName, String password, String tableName, File file, OutputType outputType)
+			throws SQLException, IOException {
+		exportQuery(host, port, databaseName, sqlType, userName, password, "SELECT * FROM " + tableName,
+				tableName, file, outputType);
+	}
+
+	/**
+	 * Exports the results of a query to a file without reading them into memory first. JSON opens with the
+	 * number of rows, so the query is counted before it is read. A serialized export has to build the whole
+	 * TableData, so it is limited by memory like readDatabase
+	 * 
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
+	 * @param databaseName
+	 *            - The name of the database
+	 * @param sqlType
+	 *            - The SQL database type
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param query
+	 *            - The SELECT statement to export
+	 * @param tableName
+	 *            - The name given to the rows in the output
+	 * @param file
+	 *            - The file object that you wish to write to
+	 * @param outputType
+	 *            - The format type that you wish to output as <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.exportQuery(host, port, databaseName, SQLType.MYSQL, userName, passWord,
+	 * 		&quot;SELECT id, name FROM users WHERE active = 1&quot;, &quot;users&quot;, new File(&quot;users.json&quot;), OutputType.JSON);
+	 * </pre>
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public void exportQuery(String host, String port, String databaseName, SQLType sqlType,
+			String userName, String password, String query, String tableName, File file,
+			OutputType outputType) throws SQLException, IOException {
+		String server = getServer(host, port);
+
+		try {
+			long rows = -1;
+			if (outputType == OutputType.JSON) {
+				rows = DatabaseCursor.countRows(server, databaseName, sqlType, userName, password, query);
+			}
+			RowCursor cursor = DatabaseCursor.openQuery(server, databaseName, sqlType, userName, password,
+					query, tableName);
+
+			if (outputType == OutputType.SERIALIZED) {
+				new Serialized<TableData>().save(TableDataCursor.readAll(cursor), file);
+				return;
+			}
+			try {
+				writeCursor(cursor, rows, file, outputType);
+			} finally {
+				cursor.close();
+			}
+		} catch (SQLException | IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error exporting from database!", e);
+			}
+			throw e;
+		}
+	}
+
+	// streams the rows of a cursor to a file in a text output type
+	void writeCursor(RowCursor cursor, long rows, File file, OutputType outputType) throws IOException {
+		TableWriter tableWriter = TableWriter.getInstance(outputType, csvHandler.getColumnDelimiter(),
+				csvHandler.getDateFormat());
+		FileChannelWriter writer = FileUtility.openWriter(file);
+		try {
+			tableWriter.write(cursor, rows, writer);
+			writer.close();
+		} finally {
+			writer.abort();
+		}
+	}
+
+	/* Stream-lined methods */
+
+	/**
+	 * Converts a csv file to an XML File a line at a time, so the file is never held in memory. The
+	 * columns come from the declared schema, or from scanning the file (see setScanLines). tblData is
+	 * left untouched
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * String outputFile = &quot;TestData.xml&quot;;
+	 * String fileName = &quot;TestData.csv&quot;;
+	 * String directory = &quot;output/&quot;;
+	 * File file = new File(directory, fileName);
+	 * 
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.csvToXML(file, outputFile);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void csvToXML(File csvFile, File outputFile) throws IOException {
+		csvToFile(csvFile, outputFile, OutputType.XML);
+	}
+	
+	/**
+	 * Converts a csv file to an XML Schema File without holding it in memory. tblData is left untouched
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 *            <b>USAGE:</b><br/>
 	 * 
 	 *            <pre>
 	 * String outputFile = &quot;TestData.xml&quot;;
@@ -492,77 +1199,516 @@ public class FileController {
 	 * String directory = &quot;output/&quot;;
 	 * File file = new File(directory, fileName);
 	 * 
-	 * FileController fc = new FileController();
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.csvToXML(file, outputFile);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void csvToXMLSCHEMA(File csvFile, File outputFile)
+			throws IOException {
+		csvToFile(csvFile, outputFile, OutputType.XML_SCHEMA);
+	}
+
+	/**
+	 * Converts a csv file to a JSON File a line at a time, so the file is never held in memory. The row
+	 * count JSON opens with is taken when the file is opened. tblData is left untouched
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * String outputFile = &quot;TestData.jsn&quot;;
+	 * String fileName = &quot;TestData.csv&quot;;
+	 * String directory = &quot;output/&quot;;
+	 * File file = new File(directory, fileName);
+	 * 
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.csvToJSON(file, outputFile);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void csvToJSON(File csvFile, File outputFile) throws IOException {
+		csvToFile(csvFile, outputFile, OutputType.JSON);
+	}
+
+	/**
+	 * Converts a csv file to an SQL File a line at a time, so the file is never held in memory. Rows are
+	 * written according to the controller's InsertMode. With compact types on, the file is read once more
+	 * for its column statistics. tblData is left untouched
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 * @param databaseName
+	 *            - The name of the database that you wish to use <br/>
+	 * @param sqlType
+	 *            - The type of sql File you wish to write <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * String databaseName = &quot;TestData&quot;;
+	 * String outputFile = &quot;TestData.sql&quot;;
+	 * String fileName = &quot;TestData.csv&quot;;
+	 * String directory = &quot;output/&quot;;
+	 * File file = new File(directory, fileName);
+	 * 
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.csvToSQLFile(file, outputFile, databaseName, SQLType.mysql);
+	 * </pre>
+	 * @throws IOException
+	 * @see SQLType
+	 */
+	public void csvToSQLFile(File csvFile, File outputFile,
+			String databaseName, SQLType sqlType, boolean identity, int idColumn) throws IOException {
+		String key = getCacheKey(csvFile, "SQL;" + sqlType + ";database=" + databaseName + ";identity=" + identity
+				+ ";idColumn=" + idColumn + ";insertMode=" + insertMode + ";compactTypes=" + compactTypes
+				+ ";deferConstraints=" + deferConstraints + ";indexColumns=" + Arrays.toString(indexColumns));
+		if (key != null && outputCache.fetch(key, outputFile)) {
+			return;
+		}
+		if (key != null) {
+			outputCache.unlink(outputFile);
+		}
+		try {
+			FileChannelWriter writer = FileUtility.openWriter(outputFile);
+			try {
+				writeSQLScript(csvFile, writer, databaseName, sqlType, identity, idColumn);
+				writer.close();
+			} finally {
+				writer.abort();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error converting file: " + csvFile, e);
+			}
+			throw e;
+		}
+		storeOutput(key, outputFile);
+	}
+
+	// streams a csv file to a SQL script, the writer is left open
+	void writeSQLScript(File csvFile, Writer writer, String databaseName, SQLType sqlType, boolean identity,
+			int idColumn) throws IOException {
+		ColumnStatistics[] statistics = null;
+		if (compactTypes) {
+			// the column statistics need a pass of their own as the rows are never all in memory
+			statistics = ColumnStatistics.collect(openCSV(csvFile));
+		}
+		CSVCursor cursor = openCSV(csvFile);
+		try {
+			SQLHandler sql = createSQLHandler(cursor.getColumns());
+			sql.setColumnStatistics(statistics);
+			SQLScriptWriter script = sql.openSQLScript(writer, databaseName, sqlType, identity, idColumn);
+			Object[] row;
+			while ((row = cursor.next()) != null) {
+				script.writeRow(row);
+			}
+			script.finish();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Converts a csv file to the specified format. The text formats are streamed a line at a time like
+	 * csvToXML, a serialized file needs the whole table so it is read into tblData first
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to
+	 * @param outputType
+	 *            - The format type that you wish to output as <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.csvToFile(new File(&quot;TestData.csv&quot;), new File(&quot;TestData.xsd&quot;), OutputType.XML_SCHEMA);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void csvToFile(File csvFile, File outputFile, OutputType outputType) throws IOException {
+		String key = getCacheKey(csvFile, outputType.toString());
+		if (key != null && outputCache.fetch(key, outputFile)) {
+			return;
+		}
+		if (key != null) {
+			outputCache.unlink(outputFile);
+		}
+		if (outputType == OutputType.SERIALIZED) {
+			readFile(csvFile);
+			outputData(outputFile, outputType);
+		} else {
+			streamCSVFile(csvFile, outputFile, outputType);
+		}
+		storeOutput(key, outputFile);
+	}
+
+	// the output cache key of a conversion, or null without an output cache
+	private String getCacheKey(File csvFile, String conversion) throws IOException {
+		if (outputCache == null) {
+			return null;
+		}
+
+		// the table name is taken from the file name, so the name changes the output as much as the settings
+		return outputCache.getKey(csvFile, conversion + ";name=" + csvFile.getName()
+				+ ";delimiter=" + getColumnDelimiter() + ";dateFormat=" + getDateFormat()
+				+ ";header=" + isFirstLineUsedAsColumnHeader() + ";scanLines=" + getScanLines()
+				+ ";schema=" + (schema == null ? "" : OutputCache.describeColumns(schema)));
+	}
+
+	private void storeOutput(String key, File outputFile) throws IOException {
+		if (key != null) {
+			outputCache.store(key, outputFile);
+		}
+	}
+
+	/**
+	 * Converts UTF-8 CSV data from a stream to the specified format on another stream, without a temporary
+	 * file and leaving tblData untouched. With a declared schema (see setSchema) the rows are converted as
+	 * they are read and never held in memory, except for JSON which opens with the number of rows, so its
+	 * rows are read into memory first. Without one the data is read into memory first so its columns can be
+	 * scanned
+	 * 
+	 * @param in
+	 *            - The stream to read the CSV data from, closed once read
+	 * @param tableName
+	 *            - The name to give the table
+	 * @param out
+	 *            - The stream to write to, flushed and left open
+	 * @param outputType
+	 *            - The format type that you wish to output as, other than SERIALIZED <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * fc.setSchema(schema);
+	 * 
+	 * fc.csvToStream(System.in, &quot;TestData&quot;, System.out, OutputType.XML);
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void csvToStream(InputStream in, String tableName, OutputStream out, OutputType outputType)
+			throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		try {
+			writeCSVStream(in, tableName, writer, outputType);
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error converting stream: " + tableName, e);
+			}
+			throw e;
+		}
+		writer.flush();
+	}
+
+	// streams csv data to a writer in a text format, the stream is closed and the writer is left open
+	void writeCSVStream(InputStream in, String tableName, Writer writer, OutputType outputType) throws IOException {
+		if (outputType == OutputType.SERIALIZED) {
+			throw new IllegalArgumentException("Serialized output needs the whole table, use readFile and outputData");
+		}
+		TableWriter tableWriter = TableWriter.getInstance(outputType, csvHandler.getColumnDelimiter(),
+				csvHandler.getDateFormat());
+		RowCursor cursor;
+		long rows;
+		if (schema != null && outputType != OutputType.JSON) {
+			CSVCursor csvCursor = csvHandler.openCSV(in, getStreamSchema(tableName));
+			cursor = csvCursor;
+			rows = csvCursor.getLines();
+		} else {
+			// JSON opens with the number of rows, so they are read before any are written
+			TableData table;
+			try {
+				table = schema == null ? csvHandler.readCSV(in, tableName) : csvHandler.readCSV(in, getStreamSchema(tableName));
+			} finally {
+				in.close();
+			}
+			cursor = new TableDataCursor(table);
+			rows = table.getLines();
+		}
+		try {
+			tableWriter.write(cursor, rows, writer);
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads a csv file into the tblData TableData object once and exports it in several formats at once,
+	 * rather than reading it again for each format
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFiles
+	 *            - The file to write each format type to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * Map&lt;OutputType, File&gt; outputFiles = new EnumMap&lt;OutputType, File&gt;(OutputType.class);
+	 * outputFiles.put(OutputType.XML, new File(&quot;output/TestData.xml&quot;));
+	 * outputFiles.put(OutputType.XML_SCHEMA, new File(&quot;output/TestData.xsd&quot;));
+	 * outputFiles.put(OutputType.SERIALIZED, new File(&quot;output/TestData.ser&quot;));
+	 * 
+	 * FileController fc = new FileController();
+	 * fc.csvToFiles(new File(&quot;TestData.csv&quot;), outputFiles);
+	 * </pre>
+	 * @throws IOException
+	 * @see #outputDataParallel(Map)
+	 */
+	public void csvToFiles(File csvFile, Map<OutputType, File> outputFiles) throws IOException {
+		readFile(csvFile);
+		outputDataParallel(outputFiles);
+	}
+
+	/**
+	 * Reads a csv file into the tblData TableData object once and exports it in several formats and as a
+	 * SQL file at once
+	 * 
+	 * @param csvFile
+	 *            - The file object that you wish to read in
+	 * @param outputFiles
+	 *            - The file to write each format type to
+	 * @param sqlFile
+	 *            - The file to write the SQL script to <br/>
+	 *            <b>USAGE:</b><br/>
 	 * 
-	 * fc.csvToXML(file, outputFile);
+	 *            <pre>
+	 * fc.csvToFiles(new File(&quot;TestData.csv&quot;), outputFiles, new File(&quot;output/TestData.sql&quot;), &quot;TestData&quot;,
+	 * 		SQLType.POSTGRESQL, true, -1);
 	 * </pre>
 	 * @throws IOException
+	 * @see #outputDataParallel(Map, File, String, SQLType, boolean, int)
 	 */
-	public void csvToXMLSCHEMA(File csvFile, File outputFile)
-			throws IOException {
+	public void csvToFiles(File csvFile, Map<OutputType, File> outputFiles, File sqlFile, String databaseName,
+			SQLType sqlType, boolean identity, int idColumn) throws IOException {
 		readFile(csvFile);
-		outputData(outputFile, OutputType.XML_SCHEMA);
+		outputDataParallel(outputFiles, sqlFile, databaseName, sqlType, identity, idColumn);
+	}
+
+	// the declared schema naming the table being read from a stream
+	private TableData getStreamSchema(String tableName) {
+		return new TableData(new Object[0][], schema.getColumnClasses(), tableName, schema.getColumnHeader(), 0,
+				schema.getFields(), schema.getFieldLength(), schema.getFieldPrecision());
+	}
+
+	// opens a csv file with the declared schema, or scans it for its columns if none was declared
+	private CSVCursor openCSV(File csvFile) throws IOException {
+		return schema == null ? csvHandler.openCSV(csvFile) : csvHandler.openCSV(csvFile, schema);
+	}
+
+	// streams a csv file to a writer in a text format, the writer is left open
+	void writeCSVFile(File csvFile, Writer writer, OutputType outputType) throws IOException {
+		CSVCursor cursor = openCSV(csvFile);
+		try {
+			TableWriter.getInstance(outputType, csvHandler.getColumnDelimiter(), csvHandler.getDateFormat())
+					.write(cursor, cursor.getLines(), writer);
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private void streamCSVFile(File csvFile, File outputFile, OutputType outputType) throws IOException {
+		try {
+			CSVCursor cursor = openCSV(csvFile);
+			try {
+				writeCursor(cursor, cursor.getLines(), outputFile, outputType);
+			} finally {
+				cursor.close();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error converting file: " + csvFile, e);
+			}
+			throw e;
+		}
 	}
 
 	/**
-	 * Reads a csv file into the tblData TableData object and exports it as an
-	 * JSON File
+	 * Reads a csv file into the tblData TableData object and exports it as a
+	 * SQL schema file and several data files that can be loaded in parallel
 	 * 
 	 * @param csvFile
 	 *            - The file object that you wish to read in
 	 * @param outputFile
-	 *            - The file object that you wish to write to <br/>
+	 *            - The file object that you wish to write the schema to <br/>
+	 * @param partitions
+	 *            - The number of data files to write <br/>
+	 * @param partitionColumn
+	 *            - The column to hash rows to data files by, or -1 for ranges of rows <br/>
 	 *            <b>USAGE:</b><br/>
 	 * 
 	 *            <pre>
-	 * String outputFile = &quot;TestData.jsn&quot;;
-	 * String fileName = &quot;TestData.csv&quot;;
-	 * String directory = &quot;output/&quot;;
-	 * File file = new File(directory, fileName);
-	 * 
 	 * FileController fc = new FileController();
 	 * 
-	 * fc.csvToJSON(file, outputFile);
+	 * fc.csvToSQLFiles(file, outputFile, databaseName, SQLType.MYSQL, true, -1, 4, -1);
 	 * </pre>
+	 * @return the files written, the schema file first
 	 * @throws IOException
+	 * @see #outputToSQLFiles(File, String, SQLType, boolean, int, int, int)
 	 */
-	public void csvToJSON(File csvFile, File outputFile) throws IOException {
+	public List<File> csvToSQLFiles(File csvFile, File outputFile, String databaseName, SQLType sqlType,
+			boolean identity, int idColumn, int partitions, int partitionColumn) throws IOException {
 		readFile(csvFile);
-		outputData(outputFile, OutputType.JSON);
+		return outputToSQLFiles(outputFile, databaseName, sqlType, identity, idColumn, partitions, partitionColumn);
 	}
 
 	/**
-	 * Reads a csv file into the tblData TableData object and exports it as an
-	 * SQL File
+	 * Loads a csv file into the database while it is still being read. The file is scanned for its columns
+	 * first, then a line at a time its rows are split into batches that the writer threads load as the rest
+	 * of the file is read, so reading and loading overlap and the file is never held in memory. The first
+	 * batch that fails stops the load. The controller's table data is not changed
 	 * 
 	 * @param csvFile
 	 *            - The file object that you wish to read in
-	 * @param outputFile
-	 *            - The file object that you wish to write to <br/>
+	 * @param host
+	 *            - The SQL host that you wish to connect to
+	 * @param port
+	 *            - The port that the database connects with
 	 * @param databaseName
-	 *            - The name of the database that you wish to use <br/>
+	 *            - The name of the database
 	 * @param sqlType
-	 *            - The type of sql File you wish to write <br/>
+	 *            - The SQL format type that you wish to output as
+	 * @param userName
+	 *            - The User Name to connect with
+	 * @param password
+	 *            - The Password to connect with
+	 * @param writers
+	 *            - The number of connections to load over <br/>
 	 *            <b>USAGE:</b><br/>
 	 * 
 	 *            <pre>
-	 * String databaseName = &quot;TestData&quot;;
-	 * String outputFile = &quot;TestData.sql&quot;;
-	 * String fileName = &quot;TestData.csv&quot;;
-	 * String directory = &quot;output/&quot;;
-	 * File file = new File(directory, fileName);
+	 * FileController fc = new FileController();
+	 * fc.setInsertMode(InsertMode.BULK);
+	 * 
+	 * LoadReport report = fc.csvToDatabasePipelined(file, host, port, databaseName, SQLType.POSTGRESQL, userName, passWord, true, -1, 4);
+	 * </pre>
+	 * @return a report with the outcome of each batch that was loaded
+	 * @throws SQLException
+	 * @throws IOException
+	 * @see SQLHandler#insertDatabasePipelined(String, String, SQLType, String, String, boolean, int, RowCursor, int)
+	 */
+	public LoadReport csvToDatabasePipelined(File csvFile, String host, String port, String databaseName,
+			SQLType sqlType, String userName, String password, boolean identity, int idColumn, int writers)
+			throws SQLException, IOException {
+		try {
+			ColumnStatistics[] statistics = null;
+			if (compactTypes) {
+				// the column statistics need a pass of their own as the rows are never all in memory
+				statistics = ColumnStatistics.collect(openCSV(csvFile));
+			}
+			CSVCursor cursor = openCSV(csvFile);
+			SQLHandler sql = createSQLHandler(cursor.getColumns());
+			sql.setColumnStatistics(statistics);
+			return sql.insertDatabasePipelined(getServer(host, port), databaseName, sqlType,
+					userName, password, identity, idColumn, cursor, writers);
+		} catch (SQLException | IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error outputing to database!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Compares two versions of a csv file by their key column and applies only the rows that changed to the
+	 * database. New and changed rows are upserted and removed rows are deleted. The files are read a line at a
+	 * time using the controller's header and column delimiter settings, the controller's table data is not changed
+	 * 
+	 * @param oldFile
+	 *            - The previous version of the file, already loaded into the database
+	 * @param newFile
+	 *            - The current version of the file
+	 * @param keyColumn
+	 *            - The column that identifies each row
+	 * @param method
+	 *            - How the rows of the two files are matched up <br/>
+	 *            <b>USAGE:</b><br/>
 	 * 
+	 *            <pre>
 	 * FileController fc = new FileController();
+	 * fc.setFirstLineUsedAsColumnHeader(true);
 	 * 
-	 * fc.csvToSQLFile(file, outputFile, databaseName, SQLType.mysql);
+	 * TableDiff diff = fc.diffToDatabase(oldFile, newFile, 0, TableDiff.Method.HASH, host, port, databaseName, SQLType.MYSQL, userName, passWord);
 	 * </pre>
+	 * @return the changes that were applied
 	 * @throws IOException
-	 * @see SQLType
+	 * @throws SQLException
+	 * @see TableDiff
 	 */
-	public void csvToSQLFile(File csvFile, File outputFile,
-			String databaseName, SQLType sqlType, boolean identity, int idColumn) throws IOException {
-		readFile(csvFile);
-		outputToSQLFile(outputFile, databaseName, sqlType, identity, idColumn);
+	public TableDiff diffToDatabase(File oldFile, File newFile, int keyColumn, TableDiff.Method method,
+			String host, String port, String databaseName, SQLType sqlType, String userName, String password)
+			throws IOException, SQLException {
+		TableDiff diff = TableDiff.compare(oldFile, newFile, keyColumn, csvHandler, method);
+		try {
+			createSQLHandler(diff.getChanges()).applyDiff(getServer(host, port), databaseName, sqlType,
+					userName, password, diff);
+		} catch (SQLException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error outputing to database!", e);
+			}
+			throw e;
+		}
+		return diff;
+	}
+
+	/**
+	 * Compares two versions of a csv file by their key column and writes a SQL script that applies only the
+	 * rows that changed, as INSERT, UPDATE and DELETE statements in a single transaction
+	 * 
+	 * @param oldFile
+	 *            - The previous version of the file
+	 * @param newFile
+	 *            - The current version of the file
+	 * @param keyColumn
+	 *            - The column that identifies each row
+	 * @param method
+	 *            - How the rows of the two files are matched up
+	 * @param outputFile
+	 *            - The file object that you wish to write the script to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.diffToSQLFile(oldFile, newFile, 0, TableDiff.Method.SORT_MERGE, outputFile, databaseName, SQLType.POSTGRESQL);
+	 * </pre>
+	 * @return the changes that were written
+	 * @throws IOException
+	 * @see TableDiff
+	 */
+	public TableDiff diffToSQLFile(File oldFile, File newFile, int keyColumn, TableDiff.Method method,
+			File outputFile, String databaseName, SQLType sqlType) throws IOException {
+		TableDiff diff = TableDiff.compare(oldFile, newFile, keyColumn, csvHandler, method);
+		FileChannelWriter writer = null;
+		try {
+			writer = FileUtility.openWriter(outputFile);
+			createSQLHandler(diff.getChanges()).writeDiffSQLFile(writer, databaseName, sqlType, diff);
+			writer.close();
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to file!", e);
+			}
+			throw e;
+		} finally {
+			if (writer != null) {
+				writer.abort();
+			}
+		}
+		return diff;
 	}
 
 	/**
@@ -676,6 +1822,78 @@ public class FileController {
 		outputToSQLFile(outputFile, databaseName, sqlType, identity, idColumn);
 	}
 
+	/**
+	 * Converts a .sql dump to an XML File, writing each row as it is read from the dump so the dump is
+	 * never held in memory. tblData is left untouched
+	 * 
+	 * @param sqlFile
+	 *            - The .sql dump that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.sqlFileToXML(new File(&quot;output/TestData.sql&quot;), new File(&quot;output/TestData.xml&quot;));
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void sqlFileToXML(File sqlFile, File outputFile) throws IOException {
+		streamSQLFile(sqlFile, outputFile, OutputType.XML);
+	}
+
+	/**
+	 * Converts a .sql dump to a JSON File without holding it in memory. JSON opens with the number of
+	 * rows, so the dump is read twice: once to count the rows and once to write them. tblData is left
+	 * untouched
+	 * 
+	 * @param sqlFile
+	 *            - The .sql dump that you wish to read in
+	 * @param outputFile
+	 *            - The file object that you wish to write to <br/>
+	 *            <b>USAGE:</b><br/>
+	 * 
+	 *            <pre>
+	 * FileController fc = new FileController();
+	 * 
+	 * fc.sqlFileToJSON(new File(&quot;output/TestData.sql&quot;), new File(&quot;output/TestData.jsn&quot;));
+	 * </pre>
+	 * @throws IOException
+	 */
+	public void sqlFileToJSON(File sqlFile, File outputFile) throws IOException {
+		streamSQLFile(sqlFile, outputFile, OutputType.JSON);
+	}
+
+	private void streamSQLFile(File sqlFile, File outputFile, OutputType outputType) throws IOException {
+		try {
+			long rows = -1;
+			if (outputType == OutputType.JSON) {
+				rows = 0;
+				SQLDumpReader counter = new SQLDumpReader(sqlFile);
+				try {
+					while (counter.next() != null) {
+						rows++;
+					}
+				} finally {
+					counter.close();
+				}
+			}
+			SQLDumpReader dump = new SQLDumpReader(sqlFile);
+			try {
+				writeCursor(dump, rows, outputFile, outputType);
+			} finally {
+				dump.close();
+			}
+		} catch (IOException e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error converting file: " + sqlFile, e);
+			}
+			throw e;
+		}
+	}
+
 	/**
 	 * Writes an encrypted serialized file with the loaded TableData Object
 	 * 
@@ -744,6 +1962,50 @@ public class FileController {
 		}
 	}
 
+	/**
+	 * Encrypts the tblData TableData object to a stream in the same form encryptFile writes a file
+	 * 
+	 * @param out
+	 *            - The stream to write to, left open
+	 * @param password
+	 *            - the password you wish to use to encrypt the data
+	 * @throws Exception
+	 * @see #encryptFile(File, String)
+	 */
+	public void encryptData(OutputStream out, String password) throws Exception {
+		try {
+			new Serialized<Encrypted<TableData>>().save(new Encrypted<TableData>(tblData, password), out);
+		} catch (Exception e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error Encrypting stream!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads data encrypted by encryptFile or encryptData from a stream and loads it into the Table Data Object
+	 * 
+	 * @param in
+	 *            - The stream to read, left open
+	 * @param password
+	 *            - The password you wish to use to decrypt the data
+	 * @throws Exception
+	 * @see #decryptFile(File, String)
+	 */
+	public void decryptData(InputStream in, String password) throws Exception {
+		try {
+			tblData = new Serialized<Encrypted<TableData>>().load(in).decrypt(password);
+		} catch (Exception e) {
+			if (logErrors) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error Decrypting stream!", e);
+			}
+			throw e;
+		}
+	}
+
 	/* Internal settings for fileController */
 
 	public boolean isLogErrors() {
@@ -843,6 +2105,50 @@ public class FileController {
 		tblData.setTableName(tableName);
 	}
 
+	/**
+	 * Takes a snapshot of the table data, later edits to the table data do not reach the snapshot
+	 * 
+	 * @return the snapshot
+	 * @see TableSnapshot
+	 */
+	public TableSnapshot getSnapshot() {
+		return TableSnapshot.of(tblData);
+	}
+
+	/**
+	 * Sets the table data to a copy of a snapshot
+	 * 
+	 * @param snapshot
+	 *            - The snapshot to edit
+	 */
+	public void setSnapshot(TableSnapshot snapshot) {
+		tblData = snapshot.toTableData();
+	}
+
+	/**
+	 * Opens a session with the controller's current settings, for a single request of a server. Sessions
+	 * can be opened and used from many threads at once, as they share nothing but the tables they read
+	 * and the controller's caches
+	 * 
+	 * @return the session<br/>
+	 *         <b>USAGE:</b><br/>
+	 * 
+	 *         <pre>
+	 * FileController settings = new FileController(false);
+	 * settings.setFirstLineUsedAsColumnHeader(true);
+	 * settings.setTableCache(TableCache.getInstance());
+	 * 
+	 * //for each request
+	 * FileSession session = settings.openSession();
+	 * session.readFile(csvFile);
+	 * session.outputData(outputFile, OutputType.XML);
+	 * </pre>
+	 * @see FileSession
+	 */
+	public FileSession openSession() {
+		return new FileSession(new FileController(this));
+	}
+
 	/* Setters and getters for various settings */
 
 	public boolean isFirstLineUsedAsColumnHeader() {
@@ -870,6 +2176,122 @@ public class FileController {
 		csvHandler.setColumnDelimiter(columnDelimiter);
 	}
 
+	public int getScanLines() {
+		return csvHandler.getScanLines();
+	}
+
+	/**
+	 * @see CSVHandler#setScanLines(int)
+	 */
+	public void setScanLines(int scanLines) {
+		csvHandler.setScanLines(scanLines);
+	}
+
+	public TableData getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Declares the columns of the csv files the csvTo methods convert, so the files are not scanned for
+	 * their column classes and field lengths
+	 * @param schema - The columns of the files, any rows it holds are ignored, or null to scan each file
+	 * @see CSVHandler#openCSV(File, TableData)
+	 */
+	public void setSchema(TableData schema) {
+		this.schema = schema;
+	}
+
+	public TableCache getTableCache() {
+		return tableCache;
+	}
+
+	/**
+	 * Sets a cache for readFile to read csv files through, so a file that has already been read with the
+	 * same settings is not parsed again. Controllers can share a cache
+	 * @param tableCache - The cache to use, or null to parse every file
+	 * @see TableCache
+	 */
+	public void setTableCache(TableCache tableCache) {
+		this.tableCache = tableCache;
+	}
+
+	public OutputCache getOutputCache() {
+		return outputCache;
+	}
+
+	/**
+	 * Sets a cache on disk for the csvTo methods that write a single file, so converting an unchanged
+	 * file with the same settings again copies the earlier output
+	 * @param outputCache - The cache to use, or null to convert every file
+	 * @see OutputCache
+	 */
+	public void setOutputCache(OutputCache outputCache) {
+		this.outputCache = outputCache;
+	}
+
+	public InsertMode getInsertMode() {
+		return insertMode;
+	}
+
+	public void setInsertMode(InsertMode insertMode) {
+		this.insertMode = insertMode;
+	}
+
+	public boolean isCompactTypes() {
+		return compactTypes;
+	}
+
+	/**
+	 * @see SQLHandler#setCompactTypes(boolean)
+	 */
+	public void setCompactTypes(boolean compactTypes) {
+		this.compactTypes = compactTypes;
+	}
+
+	public boolean isDeferConstraints() {
+		return deferConstraints;
+	}
+
+	/**
+	 * @see SQLHandler#setDeferConstraints(boolean)
+	 */
+	public void setDeferConstraints(boolean deferConstraints) {
+		this.deferConstraints = deferConstraints;
+	}
+
+	public int[] getIndexColumns() {
+		return indexColumns;
+	}
+
+	/**
+	 * @see SQLHandler#setIndexColumns(int...)
+	 */
+	public void setIndexColumns(int... indexColumns) {
+		this.indexColumns = indexColumns;
+	}
+
+	/**
+	 * @see SQLHandler#addLoadListener(LoadListener)
+	 */
+	public void addLoadListener(LoadListener listener) {
+		loadListeners.add(listener);
+	}
+
+	public void removeLoadListener(LoadListener listener) {
+		loadListeners.remove(listener);
+	}
+
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	/**
+	 * @see SQLHandler#setJmxEnabled(boolean)
+	 */
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
+	}
+
 	public void removeColumn(int colPos){
 		int newFields = tblData.getFields() - 1;
 		String[] newColumnHeader = new String[newFields];
@@ -0,0 +1,159 @@
+package com.jeremy;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+import com.jeremy.FileController.OutputType;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * Used to handle a single request of a server, opened by FileController.openSession(). A session works on
+ * a TableSnapshot rather than a table of its own, so sessions reading the same file through a TableCache
+ * share one table, and any number of threads can convert it at once without locking. Edits replace the
+ * session's snapshot with an edited copy and are never seen by other sessions.
+ * <br/>
+ * A session is meant for one thread, to share a table between requests share its snapshot.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileSession session = settings.openSession();
+ * session.readFile(new File("TestData.csv"));
+ * session.setColumnClass(2, String.class);
+ * session.outputData(new File("output/TestData.xml"), OutputType.XML);
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see FileController#openSession()
+ * @see TableSnapshot
+ */
+public class FileSession {
+	// a private copy of the settings, never changed once the session is open
+	private final FileController settings;
+	private volatile TableSnapshot snapshot;
+
+	FileSession(FileController settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Reads a csv file into the session, through the settings' table cache if one was set
+	 * @param csvFile - The file object that you wish to read in
+	 * @return the snapshot of the file
+	 * @throws IOException
+	 */
+	public TableSnapshot readFile(File csvFile) throws IOException {
+		// each read has its own handler as a CSVHandler keeps the state of the file it is reading
+		snapshot = new FileController(settings).readSnapshot(csvFile);
+		return snapshot;
+	}
+
+	public TableSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @param snapshot - The table to work on, such as one shared by another session
+	 */
+	public void setSnapshot(TableSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public void setTableName(String tableName) {
+		snapshot = snapshot.withTableName(tableName);
+	}
+
+	public void setColumnHeader(int pos, String columnHeader) {
+		snapshot = snapshot.withColumnHeader(pos, columnHeader);
+	}
+
+	public void setColumnClass(int pos, Class<?> columnClass) {
+		snapshot = snapshot.withColumnClass(pos, columnClass);
+	}
+
+	public void removeColumn(int colPos) {
+		snapshot = snapshot.withoutColumn(colPos);
+	}
+
+	/**
+	 * Outputs the session's table in the specified format to the file specified
+	 * @param file - The file object that you wish to write to
+	 * @param outputType - The format type that you wish to output as
+	 * @throws IOException
+	 */
+	public void outputData(File file, OutputType outputType) throws IOException {
+		TableSnapshot table = snapshot;
+		try {
+			if (outputType == OutputType.SERIALIZED) {
+				new Serialized<TableData>().save(table.getTableData(), file);
+			} else {
+				settings.writeCursor(table.openCursor(), table.getLines(), file, outputType);
+			}
+		} catch (IOException e) {
+			if (settings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to file!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Outputs the session's table as a SQL file
+	 * @param file - The file object that you wish to write to
+	 * @param databaseName - The name of the database
+	 * @param sqlType - The SQL format type that you wish to output as
+	 * @param identity - Whether to create a default id field
+	 * @param idColumn - The column to be the id column(Cannot be used if identity is true)
+	 * @throws IOException
+	 * @see FileController#outputToSQLFile(File, String, SQLType, boolean, int)
+	 */
+	public void outputToSQLFile(File file, String databaseName, SQLType sqlType, boolean identity, int idColumn)
+			throws IOException {
+		SQLHandler sql = settings.createSQLHandler(snapshot.getTableData());
+		try {
+			FileChannelWriter writer = FileUtility.openWriter(file);
+			try {
+				sql.writeSQLFile(writer, databaseName, sqlType, identity, idColumn);
+				writer.close();
+			} finally {
+				writer.abort();
+			}
+		} catch (IOException e) {
+			if (settings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error writing output to file!", e);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Outputs the session's table directly into the database
+	 * @param host - The SQL host that you wish to connect to
+	 * @param port - The port that the database connects with
+	 * @param databaseName - The name of the database
+	 * @param sqlType - The SQL database type
+	 * @param userName - The User Name to connect with
+	 * @param password - The Password to connect with
+	 * @param identity - Whether to create a default id field
+	 * @param idColumn - The column to be the id column(Cannot be used if identity is true)
+	 * @throws SQLException
+	 * @see FileController#outputToDatabase(String, String, String, SQLType, String, String, boolean, int)
+	 */
+	public void outputToDatabase(String host, String port, String databaseName, SQLType sqlType,
+			String userName, String password, boolean identity, int idColumn) throws SQLException {
+		try {
+			settings.createSQLHandler(snapshot.getTableData()).insertDatabase(FileController.getServer(host, port),
+					databaseName, sqlType, userName, password, identity, idColumn);
+		} catch (SQLException e) {
+			if (settings.isLogErrors()) {
+				Logging.getInstance().log(Level.SEVERE,
+						"Error outputing to database!", e);
+			}
+			throw e;
+		}
+	}
+}
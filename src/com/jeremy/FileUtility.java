@@ -2,7 +2,8 @@ package com.jeremy;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+
+import com.jeremy.FileChannelWriter.SyncPolicy;
 
 /**
  * Used to write a content to a file and any other file operations
@@ -10,6 +11,9 @@ import java.io.PrintWriter;
  * @version 1.0
  */
 public class FileUtility {
+	private static volatile boolean atomicWrites = false;
+	private static volatile SyncPolicy syncPolicy = SyncPolicy.NEVER;
+	private static volatile boolean writeBehind = false;
 	
 	/**
 	 * Writes given content to a specified file<br/>
@@ -69,27 +73,91 @@ public class FileUtility {
 	 */
 	public static void writeFile(File outputFile, String fileContent) throws IOException{
 		
-		//create directory if non-existent
-		File parent = outputFile.getParentFile();
-		
-		if (!parent.exists() && !parent.mkdirs()){
-			throw new IllegalStateException("Coulld not create directory: " + parent);
-		}
-		
-		//create file
-		outputFile.createNewFile();
-		
 		//setup output
-		PrintWriter output = new PrintWriter(outputFile);
+		FileChannelWriter output = openWriter(outputFile);
 		
 		try{			
 			
 			//write to the file
-			output.print(fileContent);
-		} finally {
+			output.write(fileContent);
 			
 			//last thing is to close
 			output.close();			
+		} finally {
+			
+			//a write that failed leaves the file as it was
+			output.abort();
 		}
 	}
+	
+	/**
+	 * Opens a buffered writer to a specified file so content can be written to it a piece at a time. The
+	 * content is encoded as UTF-8 and written through a FileChannel, atomically, with write-behind and
+	 * forced to the disk as FileUtility's settings say. The writer is closed once the content is complete,
+	 * or aborted if writing it fails, so an atomic writer never replaces the file with a partial one and a
+	 * writer that is not atomic deletes the partial file<br/>
+	 * @param outputFile - The file that you wish to write to<br/>
+	 * @return a writer to the file, which must be closed or aborted once finished with<br/>
+	 * <br/>
+	 * <b>USAGE:</b><br/>
+	 * <pre>
+	 * FileChannelWriter writer = FileUtility.openWriter(new File("TestData", "test.sql"));
+	 * try{
+	 * 	writer.write(...);
+	 * 	writer.close();
+	 * } finally {
+	 * 	writer.abort();
+	 * }
+	 * </pre>
+	 * @throws IOException If file is not writable<br/>
+	 * @see File
+	 * @see FileChannelWriter
+	 */
+	public static FileChannelWriter openWriter(File outputFile) throws IOException{
+		
+		//create directory if non-existent
+		File parent = outputFile.getAbsoluteFile().getParentFile();
+		
+		if (!parent.exists() && !parent.mkdirs()){
+			throw new IllegalStateException("Coulld not create directory: " + parent);
+		}
+		
+		return new FileChannelWriter(outputFile, atomicWrites, syncPolicy, writeBehind);
+	}
+	
+	public static boolean isAtomicWrites() {
+		return atomicWrites;
+	}
+	
+	/**
+	 * @param atomicWrites - Whether files are written to a temporary file and renamed over the output once
+	 * complete, so a half written file is never seen. Off by default, as the rename replaces the output
+	 * with a new file, see FileChannelWriter
+	 */
+	public static void setAtomicWrites(boolean atomicWrites) {
+		FileUtility.atomicWrites = atomicWrites;
+	}
+	
+	public static SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+	
+	/**
+	 * @param syncPolicy - When written files are forced to the disk, NEVER by default
+	 */
+	public static void setSyncPolicy(SyncPolicy syncPolicy) {
+		FileUtility.syncPolicy = syncPolicy;
+	}
+	
+	public static boolean isWriteBehind() {
+		return writeBehind;
+	}
+	
+	/**
+	 * @param writeBehind - Whether files are written by a background thread while the next buffer is
+	 * encoded, off by default
+	 */
+	public static void setWriteBehind(boolean writeBehind) {
+		FileUtility.writeBehind = writeBehind;
+	}
 }
@@ -0,0 +1,51 @@
+package com.jeremy;
+
+/**
+ * Used to follow the progress of the database loads made by a SQLHandler. Loads made over several
+ * connections call batchExecuted() from each of their threads, so implementations must be thread safe
+ * and should return quickly as they hold up the load.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * sqlHandler.addLoadListener(new LoadListener() {
+ * 	public void loadStarted(LoadMetrics metrics) {
+ * 	}
+ *
+ * 	public void batchExecuted(LoadMetrics metrics, int rows, double millis) {
+ * 		if (millis &gt; 1000) {
+ * 			...
+ * 		}
+ * 	}
+ *
+ * 	public void loadFinished(LoadMetrics metrics) {
+ * 		System.out.println(metrics.getRowsPerSecond());
+ * 	}
+ * });
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler#addLoadListener(LoadListener)
+ */
+public interface LoadListener {
+
+	/**
+	 * Called before the first connection of a load is opened
+	 * @param metrics - The metrics the load will be measured in
+	 */
+	void loadStarted(LoadMetrics metrics);
+
+	/**
+	 * Called each time a batch of rows has been executed, a bulk load counts as one batch
+	 * @param metrics - The metrics of the load, already including the batch
+	 * @param rows - The number of rows in the batch
+	 * @param millis - The milliseconds the batch took to execute
+	 */
+	void batchExecuted(LoadMetrics metrics, int rows, double millis);
+
+	/**
+	 * Called once the load has finished, whether or not it succeeded
+	 * @param metrics - The final metrics of the load
+	 */
+	void loadFinished(LoadMetrics metrics);
+}
@@ -0,0 +1,267 @@
+package com.jeremy;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Used to measure a single database load made by a SQLHandler: how many rows went in and how fast, how
+ * long each batch took to execute, and the time spent binding values, reading rows, committing and
+ * waiting for connections. A load run over several connections is measured by one LoadMetrics, so it is
+ * safe to update from many threads.
+ * <br/>
+ * Batch latencies are counted into a histogram, bucket i holds the batches that took no longer than
+ * getBatchLatencyBoundsMillis()[i] and more than the bound before it, the last bucket holds every batch
+ * slower than the largest bound.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * SQLHandler sqlHandler = new SQLHandler(tableData);
+ * sqlHandler.insertDatabase(host, databaseName, SQLType.MYSQL, userName, password, true, -1);
+ *
+ * LoadMetrics metrics = sqlHandler.getLoadMetrics();
+ * System.out.println(metrics.getRowsPerSecond() + " rows/s, " + metrics.getCommitMillis() + "ms committing");
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler#getLoadMetrics()
+ * @see LoadListener
+ */
+public class LoadMetrics implements LoadMetricsMBean {
+	private static final long[] BATCH_LATENCY_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+	private static final double NANOS_PER_MILLI = 1000000.0;
+	//the metrics currently registered under each name
+	private static Map<ObjectName, LoadMetrics> registered = new HashMap<ObjectName, LoadMetrics>();
+
+	private String tableName;
+	private long startMillis;
+	private long finishMillis = -1;
+	private long rows;
+	private long batches;
+	private long[] batchLatencyHistogram = new long[BATCH_LATENCY_BOUNDS_MILLIS.length + 1];
+	private long batchNanos;
+	private long batchMaxNanos;
+	private long bindNanos;
+	private long readNanos;
+	private long commits;
+	private long commitNanos;
+	private long commitMaxNanos;
+	private long connections;
+	private long connectionWaitNanos;
+	private long retries;
+	private ObjectName objectName;
+
+	LoadMetrics(String tableName) {
+		this.tableName = tableName;
+		this.startMillis = System.currentTimeMillis();
+	}
+
+	synchronized void finished() {
+		finishMillis = System.currentTimeMillis();
+	}
+
+	synchronized void batchExecuted(int rowCount, long nanos) {
+		rows += rowCount;
+		batches++;
+		batchNanos += nanos;
+		batchMaxNanos = Math.max(batchMaxNanos, nanos);
+		int bucket = 0;
+		while (bucket < BATCH_LATENCY_BOUNDS_MILLIS.length && nanos > BATCH_LATENCY_BOUNDS_MILLIS[bucket] * NANOS_PER_MILLI) {
+			bucket++;
+		}
+		batchLatencyHistogram[bucket]++;
+	}
+
+	synchronized void bound(long nanos) {
+		bindNanos += nanos;
+	}
+
+	synchronized void read(long nanos) {
+		readNanos += nanos;
+	}
+
+	synchronized void committed(long nanos) {
+		commits++;
+		commitNanos += nanos;
+		commitMaxNanos = Math.max(commitMaxNanos, nanos);
+	}
+
+	synchronized void connected(long waitNanos) {
+		connections++;
+		connectionWaitNanos += waitNanos;
+	}
+
+	synchronized void retried() {
+		retries++;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBeanServer as com.jeremy:type=LoadMetrics,table=tableName,
+	 * replacing the metrics of an earlier load of the same table that is still running
+	 */
+	void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName("com.jeremy:type=LoadMetrics,table=" + ObjectName.quote(String.valueOf(tableName)));
+			synchronized (LoadMetrics.class) {
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+				server.registerMBean(this, name);
+				registered.put(name, this);
+			}
+			objectName = name;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register the load metrics of " + tableName, e);
+		}
+	}
+
+	/**
+	 * Unregisters the metrics from the platform MBeanServer, unless a later load of the same table has
+	 * replaced them
+	 */
+	void unregister() {
+		if (objectName == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		synchronized (LoadMetrics.class) {
+			if (registered.get(objectName) == this) {
+				registered.remove(objectName);
+				try {
+					server.unregisterMBean(objectName);
+				} catch (JMException e) {
+					//already unregistered by someone else
+				}
+			}
+		}
+		objectName = null;
+	}
+
+	@Override
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * @return true once the load has finished, whether or not it succeeded
+	 */
+	@Override
+	public synchronized boolean isFinished() {
+		return finishMillis != -1;
+	}
+
+	/**
+	 * @return the milliseconds from the start of the load to its finish, or to now if it is still running
+	 */
+	@Override
+	public synchronized long getElapsedMillis() {
+		return (finishMillis == -1 ? System.currentTimeMillis() : finishMillis) - startMillis;
+	}
+
+	@Override
+	public synchronized long getRowsLoaded() {
+		return rows;
+	}
+
+	@Override
+	public synchronized double getRowsPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed == 0 ? 0 : rows * 1000.0 / elapsed;
+	}
+
+	/**
+	 * @return the number of batches executed, a bulk load counts as a single batch
+	 */
+	@Override
+	public synchronized long getBatchCount() {
+		return batches;
+	}
+
+	@Override
+	public synchronized double getBatchLatencyMeanMillis() {
+		return batches == 0 ? 0 : batchNanos / NANOS_PER_MILLI / batches;
+	}
+
+	@Override
+	public synchronized double getBatchLatencyMaxMillis() {
+		return batchMaxNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return the upper bound in milliseconds of each histogram bucket but the last
+	 */
+	@Override
+	public long[] getBatchLatencyBoundsMillis() {
+		return BATCH_LATENCY_BOUNDS_MILLIS.clone();
+	}
+
+	/**
+	 * @return the number of batches in each latency bucket
+	 */
+	@Override
+	public synchronized long[] getBatchLatencyHistogram() {
+		return batchLatencyHistogram.clone();
+	}
+
+	/**
+	 * @return the milliseconds spent binding values to statements, outside of executing them
+	 */
+	@Override
+	public synchronized double getBindMillis() {
+		return bindNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return the milliseconds spent reading rows from the source of a pipelined load
+	 */
+	@Override
+	public synchronized double getReadMillis() {
+		return readNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized long getCommitCount() {
+		return commits;
+	}
+
+	@Override
+	public synchronized double getCommitMillis() {
+		return commitNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized double getCommitMaxMillis() {
+		return commitMaxNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return the number of connections borrowed for the load
+	 */
+	@Override
+	public synchronized long getConnectionCount() {
+		return connections;
+	}
+
+	/**
+	 * @return the milliseconds spent waiting for connections, including opening new ones
+	 */
+	@Override
+	public synchronized double getConnectionWaitMillis() {
+		return connectionWaitNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return the number of connection attempts that were made again, such as connecting once a missing
+	 * database had been created
+	 */
+	@Override
+	public synchronized long getRetryCount() {
+		return retries;
+	}
+}
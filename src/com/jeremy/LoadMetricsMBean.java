@@ -0,0 +1,47 @@
+package com.jeremy;
+
+/**
+ * The JMX management interface of LoadMetrics, exposing a load's figures as read-only attributes.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see LoadMetrics
+ */
+public interface LoadMetricsMBean {
+
+	String getTableName();
+
+	boolean isFinished();
+
+	long getElapsedMillis();
+
+	long getRowsLoaded();
+
+	double getRowsPerSecond();
+
+	long getBatchCount();
+
+	double getBatchLatencyMeanMillis();
+
+	double getBatchLatencyMaxMillis();
+
+	long[] getBatchLatencyBoundsMillis();
+
+	long[] getBatchLatencyHistogram();
+
+	double getBindMillis();
+
+	double getReadMillis();
+
+	long getCommitCount();
+
+	double getCommitMillis();
+
+	double getCommitMaxMillis();
+
+	long getConnectionCount();
+
+	double getConnectionWaitMillis();
+
+	long getRetryCount();
+}
@@ -0,0 +1,139 @@
+package com.jeremy;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Used to report the outcome of a partitioned or pipelined database load, one entry for each range
+ * of rows that was loaded in its own transaction.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class LoadReport {
+	private List<Partition> partitions = new ArrayList<Partition>();
+	private boolean allOrNothing;
+	private boolean committed;
+
+	public LoadReport(boolean allOrNothing) {
+		this.allOrNothing = allOrNothing;
+	}
+
+	void addPartition(Partition partition) {
+		partitions.add(partition);
+	}
+
+	public List<Partition> getPartitions() {
+		return partitions;
+	}
+
+	/**
+	 * Gets the number of rows committed to the target table
+	 * @return the rows committed, 0 if an all or nothing load was rolled back
+	 */
+	public long getRowsLoaded() {
+		if (allOrNothing && !committed) {
+			return 0;
+		}
+		long rows = 0;
+		for (Partition partition : partitions) {
+			rows += partition.getRowsLoaded();
+		}
+		return rows;
+	}
+
+	/**
+	 * @return true if every partition loaded without an error
+	 */
+	public boolean isSuccessful() {
+		for (Partition partition : partitions) {
+			if (!partition.isSuccessful()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the error of the first partition that failed, or null if none failed
+	 */
+	public SQLException getFirstError() {
+		for (Partition partition : partitions) {
+			if (!partition.isSuccessful()) {
+				return partition.getError();
+			}
+		}
+		return null;
+	}
+
+	public boolean isAllOrNothing() {
+		return allOrNothing;
+	}
+
+	public boolean isCommitted() {
+		return committed;
+	}
+
+	void setCommitted(boolean committed) {
+		this.committed = committed;
+	}
+
+	/**
+	 * The outcome of loading a single range of rows
+	 */
+	public static class Partition {
+		private int firstRow;
+		private int lastRow;
+		private long rowsLoaded;
+		private long elapsedMillis;
+		private SQLException error;
+
+		Partition(int firstRow, int lastRow) {
+			this.firstRow = firstRow;
+			this.lastRow = lastRow;
+		}
+
+		/**
+		 * @return the first row in the range
+		 */
+		public int getFirstRow() {
+			return firstRow;
+		}
+
+		/**
+		 * @return the row the range stops at, this row is not part of the range
+		 */
+		public int getLastRow() {
+			return lastRow;
+		}
+
+		public long getRowsLoaded() {
+			return rowsLoaded;
+		}
+
+		void setRowsLoaded(long rowsLoaded) {
+			this.rowsLoaded = rowsLoaded;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		void setElapsedMillis(long elapsedMillis) {
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public SQLException getError() {
+			return error;
+		}
+
+		void setError(SQLException error) {
+			this.error = error;
+		}
+
+		public boolean isSuccessful() {
+			return error == null;
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.jeremy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Used to keep the files conversions have written in a directory on disk, so converting an unchanged input
+ * with the same settings again copies the earlier output rather than converting again, even after a
+ * restart. Outputs are stored under a SHA-256 key made from the content of the input and a description of
+ * the conversion, so a file that has only been touched or copied still hits and an edited one misses.
+ * <br/>
+ * Each output is stored with a SHA-256 of its own content that is checked before it is served, an output
+ * that fails the check is deleted and converted again. Once the stored outputs take up more than the
+ * budget, the least recently served are deleted.
+ * <br/>
+ * JSON outputs are served with the created date of the conversion that first wrote them.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileController fc = new FileController();
+ * fc.setOutputCache(new OutputCache(new File("cache/"), 1024L * 1024 * 1024));
+ *
+ * fc.csvToXML(new File("TestData.csv"), new File("output/TestData.xml"));
+ * fc.csvToXML(new File("TestData.csv"), new File("output/TestData.xml")); //copied from the cache
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see FileController#setOutputCache(OutputCache)
+ */
+public class OutputCache {
+	private static final String OUTPUT_EXTENSION = ".out";
+	private static final String DIGEST_EXTENSION = ".sha256";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private File directory;
+	private long maxBytes;
+	private boolean linkOutputs = false;
+	private long hits = 0;
+	private long misses = 0;
+	private long corrupt = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param directory - The directory to store outputs in, created if it does not exist
+	 * @param maxBytes - The bytes of outputs to keep before deleting the least recently served
+	 * @throws IOException if the directory can not be created
+	 */
+	public OutputCache(File directory, long maxBytes) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory.toPath());
+	}
+
+	/**
+	 * Works out the key an output is stored under
+	 * @param inputFile - The file being converted
+	 * @param conversion - A description of every setting that changes the output
+	 * @return the key
+	 * @throws IOException
+	 */
+	public String getKey(File inputFile, String conversion) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(hashFile(inputFile).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '\n');
+		digest.update(conversion.getBytes(StandardCharsets.UTF_8));
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Writes the output stored under a key to a file, if one is stored and passes its check
+	 * @param key - The key the output was stored under
+	 * @param outputFile - The file to write the output to
+	 * @return true if the output was written, false if it has to be converted
+	 */
+	public boolean fetch(String key, File outputFile) {
+		File cached = new File(directory, key + OUTPUT_EXTENSION);
+		File digest = new File(directory, key + DIGEST_EXTENSION);
+		try {
+			if (!cached.isFile() || !digest.isFile()) {
+				missed();
+				return false;
+			}
+			String expected = new String(Files.readAllBytes(digest.toPath()), StandardCharsets.UTF_8).trim();
+			if (!expected.equals(hashFile(cached))) {
+				synchronized (this) {
+					corrupt++;
+				}
+				delete(key);
+				missed();
+				return false;
+			}
+
+			// served outputs are touched so eviction takes the least recently served first
+			cached.setLastModified(System.currentTimeMillis());
+			Files.deleteIfExists(outputFile.toPath());
+			if (!linkOutputs || !link(outputFile, cached)) {
+				Files.copy(cached.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			synchronized (this) {
+				hits++;
+			}
+			return true;
+		} catch (IOException e) {
+			// such as the output being evicted by another thread while it was read
+			missed();
+			return false;
+		}
+	}
+
+	private boolean link(File outputFile, File cached) {
+		try {
+			Files.createLink(outputFile.toPath(), cached.toPath());
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes an output before a conversion writes it, if it may have been served as a link to a stored
+	 * output. A writer that is not atomic rewrites the file in place, which would change the stored output
+	 * through the link
+	 * @param outputFile - The file about to be written
+	 * @throws IOException
+	 */
+	public void unlink(File outputFile) throws IOException {
+		if (linkOutputs && !FileUtility.isAtomicWrites()) {
+			Files.deleteIfExists(outputFile.toPath());
+		}
+	}
+
+	private synchronized void missed() {
+		misses++;
+	}
+
+	/**
+	 * Stores a copy of an output under a key, then deletes the least recently served outputs if the
+	 * budget has been exceeded
+	 * @param key - The key to store the output under
+	 * @param outputFile - The output that was written
+	 * @throws IOException
+	 */
+	public void store(String key, File outputFile) throws IOException {
+		// written under temporary names and moved into place, so a half written output is never served
+		File temp = File.createTempFile(key, ".tmp", directory);
+		File tempDigest = File.createTempFile(key, ".tmp", directory);
+		try {
+			Files.copy(outputFile.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.write(tempDigest.toPath(), hashFile(temp).getBytes(StandardCharsets.UTF_8));
+			Files.move(tempDigest.toPath(), new File(directory, key + DIGEST_EXTENSION).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.move(temp.toPath(), new File(directory, key + OUTPUT_EXTENSION).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+			Files.deleteIfExists(tempDigest.toPath());
+		}
+		evict();
+	}
+
+	private synchronized void evict() throws IOException {
+		File[] outputs = directory.listFiles();
+		if (outputs == null) {
+			return;
+		}
+		List<File> stored = new ArrayList<File>();
+		long bytes = 0;
+		for (File output : outputs) {
+			if (output.getName().endsWith(OUTPUT_EXTENSION)) {
+				stored.add(output);
+				bytes += output.length();
+			}
+		}
+		if (bytes <= maxBytes) {
+			return;
+		}
+		Collections.sort(stored, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File output : stored) {
+			if (bytes <= maxBytes) {
+				break;
+			}
+			bytes -= output.length();
+			String name = output.getName();
+			delete(name.substring(0, name.length() - OUTPUT_EXTENSION.length()));
+			evictions++;
+		}
+	}
+
+	private void delete(String key) throws IOException {
+		Files.deleteIfExists(new File(directory, key + OUTPUT_EXTENSION).toPath());
+		Files.deleteIfExists(new File(directory, key + DIGEST_EXTENSION).toPath());
+	}
+
+	/**
+	 * Deletes every stored output, the statistics are kept
+	 * @throws IOException
+	 */
+	public synchronized void clear() throws IOException {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(OUTPUT_EXTENSION) || file.getName().endsWith(DIGEST_EXTENSION)) {
+					Files.deleteIfExists(file.toPath());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Works out the SHA-256 of a file's content
+	 * @param file - The file to hash
+	 * @return the hash in hexadecimal
+	 * @throws IOException
+	 */
+	public static String hashFile(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Describes a table's columns for a conversion key, such as a declared schema
+	 * @param tableData - The columns to describe
+	 * @return the description
+	 */
+	static String describeColumns(TableData tableData) {
+		return tableData.getTableName() + Arrays.toString(tableData.getColumnHeader())
+				+ Arrays.toString(tableData.getColumnClasses()) + Arrays.toString(tableData.getFieldLength())
+				+ Arrays.toString(tableData.getFieldPrecision());
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public boolean isLinkOutputs() {
+		return linkOutputs;
+	}
+
+	/**
+	 * Sets outputs to be served as hard links to the stored copy where the file system allows, rather than
+	 * as copies. A linked output must not be edited, the stored copy would fail its check and be converted
+	 * again
+	 * @param linkOutputs - Whether to link outputs
+	 */
+	public void setLinkOutputs(boolean linkOutputs) {
+		this.linkOutputs = linkOutputs;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of stored outputs that failed their check and were deleted
+	 */
+	public synchronized long getCorruptCount() {
+		return corrupt;
+	}
+
+	/**
+	 * @return the number of stored outputs deleted to stay within the budget
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+}
@@ -0,0 +1,51 @@
+package com.jeremy;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Used to read a table one row at a time, so tables too large to hold in a TableData can be passed from
+ * a source to an output without keeping more than the current row in memory.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * RowCursor cursor = new TableDataCursor(tableData);
+ * try {
+ * 	Object[] row;
+ * 	while ((row = cursor.next()) != null) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	cursor.close();
+ * }
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see TableDataCursor
+ * @see DatabaseCursor
+ */
+public interface RowCursor extends Closeable {
+
+	/**
+	 * @return the name of the table being read
+	 */
+	String getTableName();
+
+	/**
+	 * @return the column names, in column order
+	 */
+	String[] getColumnHeader();
+
+	/**
+	 * @return the class of the values in each column, in column order
+	 */
+	Class<?>[] getColumnClasses();
+
+	/**
+	 * Reads the next row. The array returned may be reused by the following call
+	 * @return the values of the row in column order, or null once every row has been read
+	 * @throws IOException
+	 */
+	Object[] next() throws IOException;
+}
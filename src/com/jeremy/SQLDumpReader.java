@@ -0,0 +1,658 @@
+package com.jeremy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A RowCursor over the rows of a table in a .sql dump, such as the scripts SQLHandler writes. The dump is
+ * read a character at a time, the CREATE TABLE statement gives the column classes and lengths, and rows
+ * are taken straight from INSERT value lists, including multi-row VALUES lists, and from PostgreSQL COPY
+ * ... FROM stdin blocks. Only the row being read is held in memory and no statement is kept once read.
+ * <br/>
+ * The columns are those named by the first INSERT or COPY of the table, or those of its CREATE TABLE if
+ * the statement names none. Values are read as Strings, the same as CSVHandler reads them, and NULL is
+ * read as null. Any other statement is skipped.
+ * <br/>
+ * A doubled quote is a quote in a string. Backslash escapes such as \' and \\ are read in E'...' strings,
+ * and in every string once the dump shows itself to be from MySQL by a `quoted` name or a /*! comment, or
+ * after setBackslashEscapes(true).
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * SQLDumpReader dump = new SQLDumpReader(new File("TestData/test.sql"));
+ * try {
+ * 	Object[] row;
+ * 	while ((row = dump.next()) != null) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	dump.close();
+ * }
+ *
+ * TableData tableData = TableDataCursor.readAll(new SQLDumpReader(new File("TestData/test.sql")));
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler#createSQLFile(String, com.jeremy.SQLHandler.SQLType, boolean, int)
+ */
+public class SQLDumpReader implements RowCursor {
+	private static final int NONE = 0;
+	private static final int VALUES = 1;
+	private static final int COPY = 2;
+	private static final int NO_PEEK = -2;
+
+	private Reader reader;
+	private int peeked = NO_PEEK;
+	private String tableName;
+	private Map<String, List<Column>> createdTables = new HashMap<String, List<Column>>();
+	private String firstCreatedTable;
+	private String[] columnHeader;
+	private Class<?>[] columnClasses;
+	private int[] fieldLength;
+	private int[] fieldPrecision;
+	//the cursor column each value of the statement being read goes to, -1 for columns not read
+	private int[] statementColumns;
+	private int state = NONE;
+	private Object[] row;
+	private boolean backslashEscapes = false;
+
+	/**
+	 * Opens the dump and reads the rows of the first table in it that has any
+	 * @param sqlFile - The .sql dump to read
+	 * @throws IOException
+	 */
+	public SQLDumpReader(File sqlFile) throws IOException {
+		this(openFile(sqlFile), null);
+	}
+
+	/**
+	 * Reads the rows of a table from a dump
+	 * @param reader - The dump to read, closed along with the cursor
+	 * @param tableName - The table to read, or null to read the first table that has rows
+	 * @throws IOException if the dump has no CREATE TABLE, INSERT or COPY for the table
+	 */
+	public SQLDumpReader(Reader reader, String tableName) throws IOException {
+		this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+		this.tableName = tableName;
+		try {
+			// read ahead to the first rows, so the columns are known before they are asked for
+			if (!nextStatement()) {
+				List<Column> columns = tableName == null ? null : createdTables.get(tableName.toLowerCase());
+				if (columns == null && tableName == null && firstCreatedTable != null) {
+					this.tableName = firstCreatedTable;
+					columns = createdTables.get(firstCreatedTable.toLowerCase());
+				}
+				if (columns == null) {
+					throw new IOException("No table " + (tableName == null ? "" : tableName + " ") + "found in the SQL dump");
+				}
+				setColumns(columns);
+			}
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		}
+	}
+
+	private static Reader openFile(File sqlFile) throws IOException {
+		if (!sqlFile.isFile() || !sqlFile.canRead()) {
+			throw new FileNotFoundException("Could not find file: " + sqlFile.getAbsoluteFile());
+		}
+		return new BufferedReader(new FileReader(sqlFile));
+	}
+
+	@Override
+	public String getTableName() {
+		return tableName;
+	}
+
+	@Override
+	public String[] getColumnHeader() {
+		return columnHeader;
+	}
+
+	@Override
+	public Class<?>[] getColumnClasses() {
+		return columnClasses;
+	}
+
+	/**
+	 * @return the length of each column as declared by CREATE TABLE, 0 where none was declared
+	 */
+	public int[] getFieldLength() {
+		return fieldLength;
+	}
+
+	/**
+	 * @return the decimal places of each column as declared by CREATE TABLE, 0 where none were declared
+	 */
+	public int[] getFieldPrecision() {
+		return fieldPrecision;
+	}
+
+	@Override
+	public Object[] next() throws IOException {
+		while (true) {
+			if (state == VALUES) {
+				int c = readSkippingSpace();
+				if (c == '(') {
+					readTuple();
+					return row;
+				} else if (c == ',') {
+					continue;
+				}
+				// the end of the list, anything after it such as ON DUPLICATE KEY is skipped
+				if (c != ';' && c != -1) {
+					skipStatement();
+				}
+				state = NONE;
+			} else if (state == COPY) {
+				String line = readLine();
+				if (line == null || line.equals("\\.")) {
+					state = NONE;
+					continue;
+				}
+				readCopyLine(line);
+				return row;
+			} else if (!nextStatement()) {
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	public boolean isBackslashEscapes() {
+		return backslashEscapes;
+	}
+
+	/**
+	 * Sets backslashes in strings to be read as escapes, as MySQL writes them. Turned on by itself when a
+	 * MySQL dump is recognised
+	 * @param backslashEscapes - Whether to read backslash escapes
+	 */
+	public void setBackslashEscapes(boolean backslashEscapes) {
+		this.backslashEscapes = backslashEscapes;
+	}
+
+	/**
+	 * Reads statements until the next INSERT or COPY of the table, remembering the columns of each CREATE TABLE
+	 * @return false at the end of the dump
+	 */
+	private boolean nextStatement() throws IOException {
+		while (true) {
+			int c = readSkippingSpace();
+			if (c == -1) {
+				return false;
+			}
+			unread(c);
+			String word = readWord().toUpperCase();
+			if (word.equals("CREATE")) {
+				String next = readWord().toUpperCase();
+				// CREATE UNLOGGED TABLE, CREATE TEMPORARY TABLE
+				if (!next.equals("TABLE")) {
+					next = readWord().toUpperCase();
+				}
+				if (next.equals("TABLE")) {
+					readCreateTable();
+					continue;
+				}
+			} else if (word.equals("INSERT")) {
+				if (readWord().equalsIgnoreCase("INTO") && startRows(readWord())) {
+					if (!readWord().equalsIgnoreCase("VALUES")) {
+						throw new IOException("Only INSERT ... VALUES statements can be read from an SQL dump");
+					}
+					state = VALUES;
+					return true;
+				}
+			} else if (word.equals("COPY")) {
+				if (startRows(readWord())) {
+					// the rows start on the line after the statement
+					skipStatement();
+					readLine();
+					state = COPY;
+					return true;
+				}
+			}
+			skipStatement();
+		}
+	}
+
+	/**
+	 * Reads the column list of an INSERT or COPY, if the statement is for the table
+	 * @return true if the statement's rows are to be read
+	 */
+	private boolean startRows(String name) throws IOException {
+		name = unqualify(name);
+		if (tableName == null) {
+			tableName = name;
+		} else if (!tableName.equalsIgnoreCase(name)) {
+			return false;
+		}
+		List<Column> created = createdTables.get(tableName.toLowerCase());
+		List<String> names = new ArrayList<String>();
+		int c = readSkippingSpace();
+		if (c == '(') {
+			while (c != ')') {
+				names.add(readWord());
+				c = readSkippingSpace();
+				if (c != ',' && c != ')') {
+					throw new IOException("Expected a column name in the column list of " + tableName);
+				}
+			}
+		} else {
+			unread(c);
+			if (created == null) {
+				throw new IOException("No CREATE TABLE found for the columns of " + tableName);
+			}
+			for (Column column : created) {
+				names.add(column.name);
+			}
+		}
+
+		if (columnHeader == null) {
+			List<Column> columns = new ArrayList<Column>();
+			for (String columnName : names) {
+				Column column = find(created, columnName);
+				columns.add(column == null ? new Column(columnName) : column);
+			}
+			setColumns(columns);
+		}
+		statementColumns = new int[names.size()];
+		for (int i = 0; i < names.size(); i++) {
+			statementColumns[i] = -1;
+			for (int j = 0; j < columnHeader.length; j++) {
+				if (columnHeader[j].equalsIgnoreCase(names.get(i))) {
+					statementColumns[i] = j;
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void setColumns(List<Column> columns) {
+		int cols = columns.size();
+		columnHeader = new String[cols];
+		columnClasses = new Class<?>[cols];
+		fieldLength = new int[cols];
+		fieldPrecision = new int[cols];
+		for (int i = 0; i < cols; i++) {
+			Column column = columns.get(i);
+			columnHeader[i] = column.name;
+			columnClasses[i] = column.columnClass;
+			fieldLength[i] = column.length;
+			fieldPrecision[i] = column.precision;
+		}
+		row = new Object[cols];
+	}
+
+	private static Column find(List<Column> columns, String name) {
+		if (columns != null) {
+			for (Column column : columns) {
+				if (column.name.equalsIgnoreCase(name)) {
+					return column;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the column definitions of a CREATE TABLE, skipping its keys and constraints
+	 */
+	private void readCreateTable() throws IOException {
+		String name = readWord();
+		// CREATE TABLE IF NOT EXISTS
+		if (name.equalsIgnoreCase("IF")) {
+			readWord();
+			readWord();
+			name = readWord();
+		}
+		name = unqualify(name);
+		int c = readSkippingSpace();
+		if (c != '(') {
+			// CREATE TABLE ... AS SELECT and the like have no columns to read
+			unread(c);
+			skipStatement();
+			return;
+		}
+		List<Column> columns = new ArrayList<Column>();
+		while (c != ')' && c != -1) {
+			String columnName = readWord();
+			String upper = columnName.toUpperCase();
+			if (!upper.equals("PRIMARY") && !upper.equals("CONSTRAINT") && !upper.equals("KEY")
+					&& !upper.equals("INDEX") && !upper.equals("UNIQUE") && !upper.equals("FOREIGN")
+					&& !upper.equals("CHECK") && !upper.equals("FULLTEXT") && columnName.length() > 0) {
+				Column column = new Column(columnName);
+				column.setType(readWord());
+				c = readSkippingSpace();
+				if (c == '(') {
+					column.length = readNumber();
+					c = readSkippingSpace();
+					if (c == ',') {
+						column.precision = readNumber();
+						c = readSkippingSpace();
+					}
+				} else {
+					unread(c);
+				}
+				columns.add(column);
+			}
+			c = skipDefinition();
+		}
+		skipStatement();
+		createdTables.put(name.toLowerCase(), columns);
+		if (firstCreatedTable == null) {
+			firstCreatedTable = name;
+		}
+	}
+
+	/**
+	 * Skips the rest of a column definition
+	 * @return the ',' or ')' that ended it
+	 */
+	private int skipDefinition() throws IOException {
+		int depth = 0;
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '\'') {
+				readQuoted(backslashEscapes);
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (depth-- == 0) {
+					return c;
+				}
+			} else if (c == ',' && depth == 0) {
+				return c;
+			}
+		}
+		return c;
+	}
+
+	private int readNumber() throws IOException {
+		String number = readWord();
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			// VARCHAR(MAX) and the like
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads one (...) value tuple of a VALUES list, the opening bracket has been read
+	 */
+	private void readTuple() throws IOException {
+		Arrays.fill(row, null);
+		int value = 0;
+		while (true) {
+			Object v = readValue();
+			if (value < statementColumns.length && statementColumns[value] >= 0) {
+				row[statementColumns[value]] = v;
+			}
+			value++;
+			int c = readSkippingSpace();
+			if (c == ')') {
+				return;
+			} else if (c != ',') {
+				throw new IOException("Expected ',' or ')' in a VALUES list of " + tableName);
+			}
+		}
+	}
+
+	private Object readValue() throws IOException {
+		int c = readSkippingSpace();
+		if (c == '\'') {
+			return readQuoted(backslashEscapes);
+		}
+		// N'...' and E'...' strings, the escapes of E'...' are read whatever the dump
+		if ((c == 'N' || c == 'n' || c == 'E' || c == 'e') && peek() == '\'') {
+			read();
+			return readQuoted(backslashEscapes || c == 'E' || c == 'e');
+		}
+		StringBuilder value = new StringBuilder();
+		while (c != -1 && c != ',' && c != ')' && !Character.isWhitespace(c)) {
+			value.append((char) c);
+			c = read();
+		}
+		unread(c);
+		String text = value.toString();
+		return text.equalsIgnoreCase("NULL") ? null : text;
+	}
+
+	/**
+	 * Reads a quoted string, the opening quote has been read. A doubled quote is a quote in the string
+	 * @param escapes - Whether a backslash escapes the character after it
+	 */
+	private String readQuoted(boolean escapes) throws IOException {
+		StringBuilder value = new StringBuilder();
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '\'') {
+				if (peek() != '\'') {
+					return value.toString();
+				}
+				read();
+			} else if (c == '\\' && escapes) {
+				c = readEscape(value);
+				if (c == -1) {
+					break;
+				}
+			}
+			value.append((char) c);
+		}
+		throw new IOException("Unterminated string in the SQL dump");
+	}
+
+	// the character a backslash escape stands for, the backslash has been read
+	private int readEscape(StringBuilder value) throws IOException {
+		int c = read();
+		switch (c) {
+		case '0':
+			return '\0';
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'Z':
+			return '\u001A';
+		case '%':
+		case '_':
+			// kept escaped, as MySQL does, since they are only special in LIKE patterns
+			value.append('\\');
+			return c;
+		default:
+			// \\, \' and \" as well as any other character stand for themselves
+			return c;
+		}
+	}
+
+	/**
+	 * Decodes a line of a COPY data block, the inverse of BulkLoader.RowEncoder
+	 */
+	private void readCopyLine(String line) {
+		Arrays.fill(row, null);
+		String[] values = line.split("\t", -1);
+		for (int i = 0; i < values.length && i < statementColumns.length; i++) {
+			if (statementColumns[i] < 0 || values[i].equals("\\N")) {
+				continue;
+			}
+			String value = values[i];
+			if (value.indexOf('\\') != -1) {
+				StringBuilder s = new StringBuilder();
+				for (int j = 0; j < value.length(); j++) {
+					char c = value.charAt(j);
+					if (c == '\\' && j + 1 < value.length()) {
+						c = value.charAt(++j);
+						if (c == 't') {
+							c = '\t';
+						} else if (c == 'n') {
+							c = '\n';
+						} else if (c == 'r') {
+							c = '\r';
+						}
+					}
+					s.append(c);
+				}
+				value = s.toString();
+			}
+			row[statementColumns[i]] = value;
+		}
+	}
+
+	/**
+	 * Reads a name or keyword, quoted names have their quotes taken off
+	 */
+	private String readWord() throws IOException {
+		int c = readSkippingSpace();
+		if (c == '"' || c == '`' || c == '[') {
+			if (c == '`') {
+				backslashEscapes = true;
+			}
+			int close = c == '[' ? ']' : c;
+			StringBuilder word = new StringBuilder();
+			while ((c = read()) != -1 && c != close) {
+				word.append((char) c);
+			}
+			return word.toString();
+		}
+		StringBuilder word = new StringBuilder();
+		while (c != -1 && (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.')) {
+			word.append((char) c);
+			c = read();
+		}
+		unread(c);
+		return word.toString();
+	}
+
+	// schema.table becomes table
+	private static String unqualify(String name) {
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Skips to the end of the statement, past the ';' that ends it
+	 */
+	private void skipStatement() throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != ';') {
+			if (c == '\'') {
+				readQuoted(backslashEscapes);
+			}
+		}
+	}
+
+	/**
+	 * Reads the next character that is not white space or part of a comment
+	 */
+	private int readSkippingSpace() throws IOException {
+		while (true) {
+			int c = read();
+			if (c == '-' && peek() == '-') {
+				while (c != -1 && c != '\n') {
+					c = read();
+				}
+			} else if (c == '/' && peek() == '*') {
+				read();
+				// /*!40101 ... */ comments are only written by MySQL
+				if (peek() == '!') {
+					backslashEscapes = true;
+				}
+				int last = 0;
+				while ((c = read()) != -1 && !(last == '*' && c == '/')) {
+					last = c;
+				}
+			} else if (c == -1 || !Character.isWhitespace(c)) {
+				return c;
+			}
+		}
+	}
+
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = read()) != -1 && c != '\n') {
+			line.append((char) c);
+		}
+		if (c == -1 && line.length() == 0) {
+			return null;
+		}
+		int end = line.length();
+		if (end > 0 && line.charAt(end - 1) == '\r') {
+			line.setLength(end - 1);
+		}
+		return line.toString();
+	}
+
+	private int read() throws IOException {
+		if (peeked != NO_PEEK) {
+			int c = peeked;
+			peeked = NO_PEEK;
+			return c;
+		}
+		return reader.read();
+	}
+
+	private int peek() throws IOException {
+		if (peeked == NO_PEEK) {
+			peeked = reader.read();
+		}
+		return peeked;
+	}
+
+	private void unread(int c) {
+		peeked = c;
+	}
+
+	/**
+	 * A column of a CREATE TABLE, with the class its type maps to
+	 */
+	private static class Column {
+		private String name;
+		private Class<?> columnClass = String.class;
+		private int length = 0;
+		private int precision = 0;
+
+		Column(String name) {
+			this.name = name;
+		}
+
+		void setType(String type) {
+			type = type.toUpperCase();
+			if (type.equals("INT") || type.equals("INTEGER") || type.equals("SMALLINT") || type.equals("TINYINT")
+					|| type.equals("MEDIUMINT") || type.equals("SERIAL")) {
+				columnClass = Integer.class;
+			} else if (type.equals("BIGINT") || type.equals("BIGSERIAL")) {
+				columnClass = Long.class;
+			} else if (type.equals("DECIMAL") || type.equals("NUMERIC") || type.equals("REAL") || type.equals("FLOAT")
+					|| type.equals("DOUBLE") || type.equals("MONEY")) {
+				columnClass = Double.class;
+			} else if (type.equals("DATE") || type.startsWith("DATETIME") || type.equals("TIMESTAMP")) {
+				columnClass = Date.class;
+			} else if (type.equals("BIT") || type.equals("BOOLEAN") || type.equals("BOOL")) {
+				columnClass = Boolean.class;
+			}
+		}
+	}
+}
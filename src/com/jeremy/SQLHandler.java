@@ -1,12 +1,31 @@
 package com.jeremy;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.sql.DatabaseMetaData;
 
 /**
@@ -16,15 +35,68 @@ import java.sql.DatabaseMetaData;
  * @version 1.0
  */
 public class SQLHandler {
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	//batches read ahead for each writer of a pipelined load, enough to keep the writers busy without holding the file
+	private static final int PIPELINE_BATCHES_PER_WRITER = 2;
+	private static final long PIPELINE_POLL_MILLIS = 100;
+	private static final Random STAGING_NAMES = new Random();
+
 	private TableData tblData;
-	private Connection connection = null;
+	private InsertMode insertMode = InsertMode.BATCH;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private boolean deferConstraints = false;
+	private int[] indexColumns = new int[0];
+	private boolean compactTypes = false;
+	private ColumnStatistics[] columnStatistics;
+	private List<LoadListener> loadListeners = new CopyOnWriteArrayList<LoadListener>();
+	private boolean jmxEnabled = false;
+	private LoadMetrics loadMetrics;
 	
-	//Enum for choosing the SQL database
+	//Enum for choosing the SQL database, along with the most bind parameters a single
+	//statement may carry and the most rows a single VALUES list may hold
+	//H2 - An embedded database run inside this process on a local file, its driver must be on the class path
 	public enum SQLType {
-		SQLSERVER, MYSQL, POSTGRESQL
+		SQLSERVER(2100, 1000), MYSQL(65535, 1000), POSTGRESQL(32767, 1000), H2(65535, 1000);
+		
+		private final int maxParameters;
+		private final int maxRowsPerInsert;
+		
+		private SQLType(int maxParameters, int maxRowsPerInsert) {
+			this.maxParameters = maxParameters;
+			this.maxRowsPerInsert = maxRowsPerInsert;
+		}
+		
+		/**
+		 * Works out how many rows fit into one multi-row INSERT statement without
+		 * going over the database's parameter limit
+		 * 
+		 * @param columns - The number of columns bound for each row
+		 * @return The number of rows to put into each INSERT statement, never less than 1
+		 */
+		public int getRowsPerInsert(int columns) {
+			if (columns <= 0) {
+				return maxRowsPerInsert;
+			}
+			//stay strictly below the limit, SQL Server counts its own parameters against it
+			int rows = (maxParameters - 1) / columns;
+			return Math.max(1, Math.min(rows, maxRowsPerInsert));
+		}
+
+		/**
+		 * @return the most rows a single VALUES list may hold
+		 */
+		public int getMaxRowsPerInsert() {
+			return maxRowsPerInsert;
+		}
 	};
 
-	private static String connectionURL = "";
+	//Enum for choosing how rows are sent to the database
+	//BATCH - One single-row INSERT per row, grouped into JDBC batches
+	//MULTI_ROW - INSERT ... VALUES (...),(...) statements sized to the database's parameter limit
+	//BULK - The database's native bulk load, COPY for PostgreSQL and LOAD DATA for MySQL
+	public enum InsertMode {
+		BATCH, MULTI_ROW, BULK
+	};
  
 	/**
 	 * Gets the TableData, also the class's constructor method
@@ -48,7 +120,7 @@ public class SQLHandler {
 		tblData = data;
 	}
 
-	private String getHost(SQLType sqlType){
+	private static String getHost(SQLType sqlType){
 		String host = "";
 		if (sqlType == SQLType.SQLSERVER) {
 			host = "localhost:1433;";
@@ -56,11 +128,14 @@ public class SQLHandler {
 			host = "localhost:3306/";
 		} else if (sqlType == SQLType.POSTGRESQL) {
 			host = "localhost:5432/";
+		} else if (sqlType == SQLType.H2) {
+			//the directory the database file is kept in
+			host = ".";
 		}
 		return host;
 	}
 	
-	private String getConnectionURL(SQLType sqlType, String host, String databaseName){
+	private static String getConnectionURL(SQLType sqlType, String host, String databaseName){
 		String connectionURL = "";
 		if (sqlType == SQLType.SQLSERVER) {
 			connectionURL = "jdbc:sqlserver://" + host + "/" + databaseName + ";";
@@ -68,6 +143,8 @@ public class SQLHandler {
 			connectionURL = "jdbc:mysql://" + host  + "/" + databaseName;
 		} else if (sqlType == SQLType.POSTGRESQL) {
 			connectionURL = "jdbc:postgresql://" + host  + "/" + databaseName;
+		} else if (sqlType == SQLType.H2) {
+			connectionURL = "jdbc:h2:" + host + "/" + databaseName;
 		}
 		return connectionURL;
 	}
@@ -80,16 +157,29 @@ public class SQLHandler {
 			idField = "id INT NOT NULL AUTO_INCREMENT,";
 		} else if (sqlType == SQLType.POSTGRESQL) {
 			idField = "id SERIAL,";
+		} else if (sqlType == SQLType.H2) {
+			idField = "id INT GENERATED BY DEFAULT AS IDENTITY,";
 		}
 		return idField;
 	}
 	
-	private String getFields(){
+	private String getFields(SQLType sqlType){
 		Class<?>[] columnClasses = tblData.getColumnClasses();
 		Object[] headings = tblData.getColumnHeader();
 		String fields = "";
 		String dataType = "";
 		int cols = tblData.getFields();
+		if (compactTypes) {
+			ColumnStatistics[] statistics = getColumnStatistics();
+			for (int i = 0; i < cols; i++) {
+				dataType = getCompactType(sqlType, columnClasses[i], i, statistics[i]);
+				if (statistics[i].getCount() > 0 && statistics[i].getNullCount() == 0) {
+					dataType += " NOT NULL";
+				}
+				fields += headings[i] + " " + dataType + ", \n";
+			}
+			return fields;
+		}
 		//Gets the unique identification field for the desired SQL database
 		for (int i = 0; i < cols; i++) {
 			if (columnClasses[i] == Integer.class) {
@@ -108,6 +198,56 @@ public class SQLHandler {
 		}
 		return fields;
 	}
+
+	private ColumnStatistics[] getColumnStatistics() {
+		if (columnStatistics == null) {
+			columnStatistics = ColumnStatistics.collect(tblData);
+		}
+		return columnStatistics;
+	}
+
+	/**
+	 * Picks the smallest column type for the designated SQL database type that holds every value in the column
+	 */
+	private String getCompactType(SQLType sqlType, Class<?> columnClass, int column, ColumnStatistics statistics) {
+		if (columnClass == Integer.class || columnClass == Long.class) {
+			//a column with no values has no range to narrow
+			if (!statistics.isNumeric()) {
+				return columnClass == Long.class ? "BIGINT" : "INT";
+			}
+			double min = statistics.getMin();
+			double max = statistics.getMax();
+			//TINYINT is unsigned on SQL Server, signed on MySQL and H2 and missing from PostgreSQL
+			if (sqlType == SQLType.SQLSERVER && min >= 0 && max <= 255) {
+				return "TINYINT";
+			} else if ((sqlType == SQLType.MYSQL || sqlType == SQLType.H2) && min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+				return "TINYINT";
+			} else if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+				return "SMALLINT";
+			} else if (min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE) {
+				return "INT";
+			}
+			return "BIGINT";
+		} else if (columnClass == Double.class) {
+			//a REAL is binary floating point and would not store every decimal exactly
+			return "DECIMAL(" + tblData.getFieldLength()[column] + "," + tblData.getFieldPrecision()[column] + ")";
+		} else if (columnClass == Boolean.class) {
+			if (sqlType == SQLType.SQLSERVER) {
+				return "BIT";
+			} else if (sqlType == SQLType.POSTGRESQL || sqlType == SQLType.H2) {
+				return "BOOLEAN";
+			}
+			//MySQL's BOOLEAN is a TINYINT that rejects 'true' and 'false', an ENUM takes them in a single byte
+			return "ENUM('false','true')";
+		} else if (columnClass == Date.class) {
+			return "DATE";
+		}
+		int length = Math.max(1, statistics.getMaxLength());
+		if (statistics.isFixedWidth() && length <= 255) {
+			return "CHAR(" + length + ")";
+		}
+		return "VARCHAR(" + length + ")";
+	}
 	
 	/**
 	 * Directly creates the Database for the designated SQL database type
@@ -151,8 +291,8 @@ public class SQLHandler {
 				host = getHost(sqlType);
 			}
 			//Creating the connection String used to connect to the database
-			connectionURL = getConnectionURL(sqlType, host, "");
-			connection = DriverManager.getConnection(connectionURL, userName, password);
+			String connectionURL = getConnectionURL(sqlType, host, "");
+			connection = openConnection(sqlType, connectionURL, userName, password);
 			//Statement used to write and execute SQL commands
 			statement = connection.createStatement();
 			String createDatabase = "CREATE DATABASE " + databaseName;
@@ -180,31 +320,21 @@ public class SQLHandler {
 	/**
 	 * Directly creates a Table for the designated SQL database type
 	 * 
-	 * @param host - A string where the user can designate the databases file path, defaults to local host 
-	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param connection - An open connection to the database that the table will be created in
 	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
-	 * @param userName - A string that specifies the user name of the creator for SQL access
-	 * @param password - A string that specifies the password of the creator for SQL access
 	 * @param identity - A boolean that specifies whether to create a default id field
 	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * @param deferred - A boolean that specifies whether to leave out the primary key so it can be built after the load
 	 * <br>
 	 * <b>USAGE:</b></br>
 	 * <pre>
-	 * String host = "localhost:1433";
-	 * String databaseName = "Example";
-	 * String userName = "";
-	 * String password = "";
-	 * private enum SQLType {
-	 * 		SQLSERVER, MYSQL, POSTGRESQL
-	 * };
-	 * 
 	 * CSVHandler csvHandler = new CSVHandler();
 	 * csvHandler.setFirstLineUsedAsColumnHeader(true);
 	 * 
 	 * TableData tableData = csvHandler.readCSV("TestData/testDataType.csv");
 	 * 
 	 * SQLHandler sqlHandler = new SQLHandler(tableData);
-	 * sqlHandler.createTable(host, databaseName, MYSQL, userName, password, true, -1);
+	 * sqlHandler.createTable(connection, MYSQL, true, -1, false);
 	 * 
 	 * </pre>
 	 * @throws SQLException
@@ -212,69 +342,22 @@ public class SQLHandler {
 	 * @see TableData
 	 * @see CSVHandler
 	 */
-	private void createTable(String host, String databaseName, SQLType sqlType,
-			String userName, String password, boolean identity, int idColumn)  throws SQLException, Error{
+	private void createTable(Connection connection, SQLType sqlType, boolean identity, int idColumn, boolean deferred)  throws SQLException, Error{
 		Statement statement = null;
 		try {
-			//If no host has been declared default to local host
-			if (host.equalsIgnoreCase("")) {
-				host = getHost(sqlType);
-				if(sqlType == SQLType.SQLSERVER){
-					host += "databaseName=" + databaseName + ";";
-				}
-			}
-			//Creating the connection String used to connect to the database
-			//Gets the unique identification field for the desired SQL database
-			connectionURL = getConnectionURL(sqlType, host, databaseName);
-			try{
-				connection = DriverManager.getConnection(connectionURL, userName, password);
-			}catch(SQLException se){
-				
-			}finally{
-				if(connection == null){
-					createDatabase(host, databaseName, sqlType, userName, password);
-				}	
-			}
-			connectionURL = getConnectionURL(sqlType, host, databaseName);
-			connection = DriverManager.getConnection(connectionURL, userName, password);
+			String createTable = getCreateTable(sqlType, identity, idColumn, deferred);
 			//Statement used to write and execute SQL commands
 			statement = connection.createStatement();
-			String tableName = tblData.getTableName();
-			String fields = getFields();
-			String idField = "";
-			String primaryKey = "";
-			int cols = tblData.getFields();
-			Object[] headings = tblData.getColumnHeader();
-			if(identity & idColumn != -1){
-				throw new Error("Conflict with 'identity' and 'idColumn' paramaters. Both cannot be valid, change 'identity' to false or 'idColumn' to -1");
-			}else if(identity){
-				idField = getIDField(sqlType) + "\n";
-				primaryKey = "id";
-			}else if(idColumn > cols || idColumn < 0){
-				throw new Error("Conflict with 'idColumn' paramater. 'idColumn' cannot be less than 0 or greater than the columns in the table");
-			}else{
-				primaryKey += headings[idColumn];
-			}
-			String createTable = "CREATE TABLE " + tableName + "(\n"
-					+ idField + fields + "PRIMARY KEY (" + primaryKey + "));";
 			statement.executeUpdate(createTable);
-		} catch (SQLException se) {
-			throw(se);
-		} finally {
-			try {
-				//Closes the statement if it was opened
-				if (statement != null)
-					statement.close();
-			} catch (SQLException se) {
-				throw(se);
-			}
-			try {
-				//Closes the connection if it was opened
-				if (connection != null)
-					connection.close();
-			} catch (SQLException se) {
-				throw(se);
+			if (!deferred) {
+				for (int column : indexColumns) {
+					statement.executeUpdate(getCreateIndex(column));
+				}
 			}
+		} finally {
+			//Closes the statement if it was opened
+			if (statement != null)
+				statement.close();
 		}
 	}
 
@@ -306,24 +389,395 @@ public class SQLHandler {
 	 * </pre>
 	 */
 	private String getInsertStatement(String tableName, String tableFields) {
+		return getInsertStatement(tableName, tableFields, 1);
+	}
+
+	/**
+	 * Creates a multi-row insert statement, INSERT INTO table(fields) values (?, ?), (?, ?), ...
+	 * 
+	 * @param tableName - A string that specifies the name of the table being inserted into
+	 * @param tableFields - A String specifying the fields that are in the table
+	 * @param rowCount - The number of value lists to put into the statement
+	 */
+	private String getInsertStatement(String tableName, String tableFields, int rowCount) {
 		int cols = tblData.getFields();
-		String valuesMarker = "";
-		String insertString = "";
+		StringBuilder valuesMarker = new StringBuilder();
 		//Iterates through the columns to get the value placeholders
 		for (int i = 0; i < cols; i++) {
 			if (i == 0) {
-				valuesMarker = "?";
+				valuesMarker.append("?");
 			} else {
-				valuesMarker += ", ?";
+				valuesMarker.append(", ?");
+			}
+		}
+		StringBuilder insertString = new StringBuilder();
+		insertString.append("INSERT INTO ").append(tableName).append("(").append(tableFields).append(") values ");
+		for (int i = 0; i < rowCount; i++) {
+			if (i > 0) {
+				insertString.append(", ");
+			}
+			insertString.append("(").append(valuesMarker).append(")");
+		}
+		return insertString.toString();
+	}
+
+	/**
+	 * Opens a pooled connection to an existing database for the designated SQL database type
+	 * @param host - The database's host, defaults to local host if empty
+	 */
+	static Connection openDatabase(SQLType sqlType, String host, String databaseName, String userName, String password) throws SQLException {
+		host = resolveHost(sqlType, host, databaseName);
+		return openConnection(sqlType, getConnectionURL(sqlType, host, databaseName), userName, password);
+	}
+
+	/**
+	 * Borrows a pooled connection with the driver settings that suit bulk inserting for the designated SQL database
+	 * type, closing the connection returns it to the ConnectionPool. MySQL is asked to rewrite batches into multi-row inserts and to allow LOAD DATA LOCAL, PostgreSQL is told to let the server
+	 * work out the type of the string parameters being bound
+	 */
+	private static Connection openConnection(SQLType sqlType, String url, String userName, String password) throws SQLException {
+		Properties properties = new Properties();
+		properties.setProperty("user", userName);
+		properties.setProperty("password", password);
+		if (sqlType == SQLType.MYSQL) {
+			properties.setProperty("rewriteBatchedStatements", "true");
+			properties.setProperty("allowLoadLocalInfile", "true");
+		} else if (sqlType == SQLType.POSTGRESQL) {
+			properties.setProperty("stringtype", "unspecified");
+		}
+		return ConnectionPool.getInstance().getConnection(url, properties);
+	}
+
+	/**
+	 * Gets the comma separated list of column headings used in INSERT statements
+	 */
+	private String getInsertFields() {
+		int cols = tblData.getFields();
+		Object[] headings = tblData.getColumnHeader();
+		StringBuilder fields = new StringBuilder();
+		for (int i = 0; i < cols; i++) {
+			if (i == 0) {
+				fields.append(headings[i]);
+			} else {
+				fields.append(", ").append(headings[i]);
+			}
+		}
+		return fields.toString();
+	}
+
+	/**
+	 * Sends the rows from first up to (but not including) last using the handler's InsertMode
+	 */
+	private void insertRows(Connection connection, SQLType sqlType, String tableName, String fields, int first, int last) throws SQLException {
+		if (insertMode == InsertMode.MULTI_ROW) {
+			insertMultiRow(connection, sqlType, tableName, fields, first, last);
+		} else if (insertMode == InsertMode.BULK) {
+			insertBulk(connection, sqlType, tableName, fields, first, last);
+		} else {
+			insertBatch(connection, tableName, fields, first, last);
+		}
+	}
+
+	/**
+	 * Sends every row as its own single-row INSERT, executing them in batches of batchSize
+	 */
+	private void insertBatch(Connection connection, String tableName, String fields, int first, int last) throws SQLException {
+		Object[][] data = tblData.getTableData();
+		int cols = tblData.getFields();
+		int count = 0;
+		//Prepared Statement used to write and execute SQL commands
+		PreparedStatement preparedStatement = connection.prepareStatement(getInsertStatement(tableName, fields));
+		try {
+			long bindStart = System.nanoTime();
+			for (int i = first; i < last; i++) {
+				for (int j = 0; j < cols; j++) {
+					//Writes the INSERT INTO command
+					bindValue(preparedStatement, j + 1, data[i][j]);
+				}
+				//Adds the INSERT INTO command to a batch awaiting execution
+				preparedStatement.addBatch();
+				//Once batchSize commands have been added the batch will execute all of them,
+				//then continue to add more INSERT INTO commands until the file has been read
+				if (++count % batchSize == 0) {
+					loadMetrics.bound(System.nanoTime() - bindStart);
+					executeBatch(preparedStatement, batchSize);
+					bindStart = System.nanoTime();
+				}
+			}
+			loadMetrics.bound(System.nanoTime() - bindStart);
+			//A final execution of any remaining INSERT INTO commands
+			executeBatch(preparedStatement, count % batchSize);
+		} finally {
+			preparedStatement.close();
+		}
+	}
+
+	/**
+	 * Sends the rows as multi-row INSERT statements. Each statement holds as many rows as the
+	 * database's parameter limit allows, a second smaller statement picks up any remaining rows
+	 */
+	private void insertMultiRow(Connection connection, SQLType sqlType, String tableName, String fields, int first, int last) throws SQLException {
+		Object[][] data = tblData.getTableData();
+		int rows = last - first;
+		int cols = tblData.getFields();
+		int rowsPerInsert = sqlType.getRowsPerInsert(cols);
+		//number of multi-row statements to add before executing the batch
+		int statementsPerBatch = Math.max(1, batchSize / rowsPerInsert);
+		int fullStatements = rows / rowsPerInsert;
+		int remainder = rows % rowsPerInsert;
+		int line = first;
+		PreparedStatement preparedStatement = null;
+		try {
+			if (fullStatements > 0) {
+				preparedStatement = connection.prepareStatement(getInsertStatement(tableName, fields, rowsPerInsert));
+				for (int s = 0; s < fullStatements; s++) {
+					line = bindRows(preparedStatement, data, line, rowsPerInsert, cols);
+					preparedStatement.addBatch();
+					if ((s + 1) % statementsPerBatch == 0) {
+						executeBatch(preparedStatement, statementsPerBatch * rowsPerInsert);
+					}
+				}
+				executeBatch(preparedStatement, (fullStatements % statementsPerBatch) * rowsPerInsert);
+				preparedStatement.close();
+				preparedStatement = null;
+			}
+			if (remainder > 0) {
+				preparedStatement = connection.prepareStatement(getInsertStatement(tableName, fields, remainder));
+				bindRows(preparedStatement, data, line, remainder, cols);
+				long start = System.nanoTime();
+				preparedStatement.executeUpdate();
+				batchExecuted(remainder, System.nanoTime() - start);
+			}
+		} finally {
+			if (preparedStatement != null) {
+				preparedStatement.close();
+			}
+		}
+	}
+
+	/**
+	 * Loads the rows through the database's native bulk protocol. The bundled SQL Server driver
+	 * has no bulk copy API, so SQL Server instead takes a table lock, which lets it minimally log
+	 * the inserts, and sends multi-row inserts in a single transaction. H2 runs in this process so
+	 * it has no protocol to skip, its rows are sent the same way in a single transaction
+	 */
+	private void insertBulk(Connection connection, SQLType sqlType, String tableName, String fields, int first, int last) throws SQLException {
+		BulkLoader loader = BulkLoader.getInstance(sqlType);
+		if (loader != null) {
+			long start = System.nanoTime();
+			loader.load(connection, tableName, fields, tblData, first, last);
+			batchExecuted(last - first, System.nanoTime() - start);
+			return;
+		}
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			String target = sqlType == SQLType.SQLSERVER ? tableName + " WITH (TABLOCK)" : tableName;
+			insertMultiRow(connection, sqlType, target, fields, first, last);
+			commit(connection);
+		} catch (SQLException se) {
+			connection.rollback();
+			throw(se);
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Binds rowCount rows starting at line into the statement's parameters
+	 * @return the next line to be bound
+	 */
+	private int bindRows(PreparedStatement preparedStatement, Object[][] data, int line, int rowCount, int cols) throws SQLException {
+		long start = System.nanoTime();
+		int parameter = 1;
+		for (int i = 0; i < rowCount; i++, line++) {
+			for (int j = 0; j < cols; j++) {
+				bindValue(preparedStatement, parameter++, data[line][j]);
+			}
+		}
+		loadMetrics.bound(System.nanoTime() - start);
+		return line;
+	}
+
+	/**
+	 * Binds a value as a string, a missing value, such as a field left off a short csv row, is bound as null
+	 */
+	private static void bindValue(PreparedStatement preparedStatement, int parameter, Object value) throws SQLException {
+		if (value == null) {
+			preparedStatement.setNull(parameter, Types.VARCHAR);
+		} else {
+			preparedStatement.setString(parameter, value.toString());
+		}
+	}
+
+	/**
+	 * Starts measuring a new load, registering its metrics with JMX if enabled
+	 */
+	private void startLoad() {
+		loadMetrics = new LoadMetrics(tblData.getTableName());
+		if (jmxEnabled) {
+			loadMetrics.register();
+		}
+		for (LoadListener listener : loadListeners) {
+			listener.loadStarted(loadMetrics);
+		}
+	}
+
+	private void finishLoad() {
+		loadMetrics.finished();
+		try {
+			for (LoadListener listener : loadListeners) {
+				listener.loadFinished(loadMetrics);
+			}
+		} finally {
+			loadMetrics.unregister();
+		}
+	}
+
+	/**
+	 * Opens a pooled connection, measuring the time spent waiting for it
+	 */
+	private Connection connect(SQLType sqlType, String url, String userName, String password) throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = openConnection(sqlType, url, userName, password);
+		loadMetrics.connected(System.nanoTime() - start);
+		return connection;
+	}
+
+	/**
+	 * Executes the statement's batch of rows, measuring how long it took
+	 */
+	private void executeBatch(PreparedStatement preparedStatement, int rowCount) throws SQLException {
+		if (rowCount == 0) {
+			return;
+		}
+		long start = System.nanoTime();
+		preparedStatement.executeBatch();
+		batchExecuted(rowCount, System.nanoTime() - start);
+	}
+
+	private void batchExecuted(int rowCount, long nanos) {
+		loadMetrics.batchExecuted(rowCount, nanos);
+		for (LoadListener listener : loadListeners) {
+			listener.batchExecuted(loadMetrics, rowCount, nanos / 1000000.0);
+		}
+	}
+
+	private void commit(Connection connection) throws SQLException {
+		long start = System.nanoTime();
+		connection.commit();
+		loadMetrics.committed(System.nanoTime() - start);
+	}
+
+	//If no host has been declared default to local host
+	private static String resolveHost(SQLType sqlType, String host, String databaseName) {
+		if (host.equalsIgnoreCase("")) {
+			host = getHost(sqlType);
+			if(sqlType == SQLType.SQLSERVER){
+				host += "databaseName=" + databaseName + ";";
+			}
+		}
+		return host;
+	}
+
+	/**
+	 * Makes sure the database and table exist, creating either of them if they are missing. A missing table
+	 * is created without its primary key when constraints are deferred
+	 * @return true if the table was created
+	 */
+	private boolean prepareTable(String connectionURL, String host, String databaseName,
+			SQLType sqlType, String userName, String password, boolean identity, int idColumn) throws SQLException {
+		String tableName = tblData.getTableName();
+		Connection connection;
+		try{
+			connection = connect(sqlType, connectionURL, userName, password);
+		}catch(SQLException se){
+			//H2 creates its database file on connecting, so there is nothing to create
+			if (sqlType == SQLType.H2) {
+				throw(se);
+			}
+			//the database does not exist yet
+			createDatabase(host, databaseName, sqlType, userName, password);
+			loadMetrics.retried();
+			connection = connect(sqlType, connectionURL, userName, password);
+		}
+		try {
+			DatabaseMetaData metaData = connection.getMetaData();
+			//an unquoted name is stored in upper case by H2 and in lower case by PostgreSQL
+			String storedName = tableName;
+			if (metaData.storesUpperCaseIdentifiers()) {
+				storedName = tableName.toUpperCase();
+			} else if (metaData.storesLowerCaseIdentifiers()) {
+				storedName = tableName.toLowerCase();
+			}
+			boolean tableExists = tableExists(metaData, tableName)
+					|| (!storedName.equals(tableName) && tableExists(metaData, storedName));
+			if(!tableExists){
+				createTable(connection, sqlType, identity, idColumn, deferConstraints);
+			}
+			return !tableExists;
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static boolean tableExists(DatabaseMetaData metaData, String tableName) throws SQLException {
+		ResultSet resultSet = metaData.getTables(null, null, tableName, null);
+		try {
+			return resultSet.next();
+		} finally {
+			resultSet.close();
+		}
+	}
+
+	/**
+	 * Builds the constraints and indexes left out of a table created with deferred constraints. PostgreSQL
+	 * tables are also switched from UNLOGGED to LOGGED
+	 */
+	private void finishDeferredTable(SQLType sqlType, String url, String userName, String password,
+			boolean identity, int idColumn, boolean loaded) throws SQLException {
+		try {
+			buildDeferredConstraints(sqlType, url, userName, password, identity, idColumn);
+		} catch (SQLException se) {
+			//an error from the load itself is already on its way to the caller
+			if (loaded) {
+				throw(se);
 			}
 		}
-		insertString = "INSERT INTO " + tableName + "(" + tableFields + ") values ("
-			+ valuesMarker + ")";
-		return insertString;
+	}
+
+	private void buildDeferredConstraints(SQLType sqlType, String url, String userName, String password,
+			boolean identity, int idColumn) throws SQLException {
+		String tableName = tblData.getTableName();
+		//MySQL's DISABLE KEYS, unique_checks and foreign_key_checks are not used, the table has no secondary
+		//or unique indexes and no foreign keys while it loads, and DISABLE KEYS does nothing on InnoDB
+		if (sqlType == SQLType.POSTGRESQL) {
+			executeUpdate(sqlType, url, userName, password, "ALTER TABLE " + tableName + " SET LOGGED");
+		}
+		if (!keepsPrimaryKeyInline(sqlType, identity)) {
+			executeUpdate(sqlType, url, userName, password, "ALTER TABLE " + tableName + " ADD CONSTRAINT PK_"
+					+ tableName + " PRIMARY KEY (" + getPrimaryKey(identity, idColumn) + ")");
+		}
+		for (int column : indexColumns) {
+			executeUpdate(sqlType, url, userName, password, getCreateIndex(column));
+		}
+	}
+
+	private String getCreateIndex(int column) {
+		String tableName = tblData.getTableName();
+		Object heading = tblData.getColumnHeader()[column];
+		return "CREATE INDEX IX_" + tableName + "_" + heading + " ON " + tableName + " (" + heading + ")";
+	}
+
+	// MySQL will not create an AUTO_INCREMENT column that is not a key, and InnoDB rebuilds the whole
+	// table to add a primary key later, so the identity key is always declared up front
+	private boolean keepsPrimaryKeyInline(SQLType sqlType, boolean identity) {
+		return sqlType == SQLType.MYSQL && identity;
 	}
 	
 	/**
-	 * Directly inserts data from a .csv file into an existing Table for the designated SQL database type
+	 * Directly inserts data from a .csv file into an existing Table for the designated SQL database type.
+	 * Rows are sent according to the handler's InsertMode, see setInsertMode()
 	 * 
 	 * @param host - A string where the user can designate the databases file path, defaults to local host 
 	 * @param databaseName - A string that specifies the name of the database that the table will be created in
@@ -351,6 +805,7 @@ public class SQLHandler {
 	 * TableData tableData = csvHandler.readCSV("TestData/testDataType.csv");
 	 * 
 	 * SQLHandler sqlHandler = new SQLHandler(tableData);
+	 * sqlHandler.setInsertMode(InsertMode.MULTI_ROW);
 	 * sqlHandler.insertDatabase(host, databaseName, MYSQL, userName, password, identity, idColumn);
 	 * 
 	 * </pre>
@@ -360,93 +815,800 @@ public class SQLHandler {
 	 */
 	public void insertDatabase(String host, String databaseName,
 			SQLType sqlType, String userName, String password, boolean identity, int idColumn) throws SQLException{
-		final int batchSize = 1000;
-		int count = 0;
-		Object[][] data = tblData.getTableData();
-		int line = 0;
-		int rows = tblData.getLines();
-		int cols = tblData.getFields();
-		Object[] headings = tblData.getColumnHeader();
-		String tableName = tblData.getTableName();
-		String fields = "";
-		for (int i = 0; i < cols; i++) {
-			if (i == 0) {
-				fields += headings[i];
-			} else {
-				fields += ", " + headings[i];
-			}
+		startLoad();
+		try {
+			insertTable(host, databaseName, sqlType, userName, password, identity, idColumn);
+		} finally {
+			finishLoad();
 		}
-		String sqlInsertStatement = getInsertStatement(tableName, fields);
-		PreparedStatement preparedStatement = null;
+	}
+
+	private void insertTable(String host, String databaseName,
+			SQLType sqlType, String userName, String password, boolean identity, int idColumn) throws SQLException{
+		String tableName = tblData.getTableName();
+		String fields = getInsertFields();
+		Connection connection = null;
+		host = resolveHost(sqlType, host, databaseName);
+		String url = getConnectionURL(sqlType, host, databaseName);
+		boolean created = prepareTable(url, host, databaseName, sqlType, userName, password, identity, idColumn);
+		boolean loaded = false;
 		try {
-			//If no host has been declared default to local host
-			if (host.equalsIgnoreCase("")) {
-				host = getHost(sqlType);
-				if(sqlType == SQLType.SQLSERVER){
-					host += "databaseName=" + databaseName + ";";
-				}
-			}
-			//Creating the connection String used to connect to the database
-			connectionURL = getConnectionURL(sqlType, host, databaseName);
-			try{
-				connection = DriverManager.getConnection(connectionURL, userName, password);
-			}catch(SQLException se){
-				
-			}finally{
-				if(connection == null){
-					createDatabase(host, databaseName, sqlType, userName, password);
-				}	
-			}
-			connectionURL = getConnectionURL(sqlType, host, databaseName);
-			connection = DriverManager.getConnection(connectionURL, userName, password);
-			DatabaseMetaData metaData = connection.getMetaData();
-			ResultSet resultSet = metaData.getTables(null, null, tableName, null);
-			if(!resultSet.next()){
-				createTable(host, databaseName, sqlType, userName, password, identity, idColumn);
-				connection = DriverManager.getConnection(connectionURL, userName, password);
-			}
-			//Prepared Statement used to write and execute SQL commands
-			preparedStatement = connection.prepareStatement(sqlInsertStatement);
-			for (int i = line; i < rows; i++) {
-				for (int j = 0; j < cols; j++) {
-					//Writes the INSERT INTO command
-					preparedStatement.setString(j + 1, data[i][j].toString());
-				}
-				//Adds the INSERT INTO command to a batch awaiting execution
-				preparedStatement.addBatch();
-				//If the batchSize exceeds 1000 the batch will execute all the INSERT INTO commands
-				//that have been added to it. It will then continue to add more INSERT INTO
-				//commands until the file has been read, using this 'if' statement should the
-				//batchSize exceed 1000 again
-				if (count++ % batchSize == 0) {
-					preparedStatement.executeBatch();
-				}
-			}
-			//A final execution of any remaining INSERT INTO commands
-			preparedStatement.executeBatch();
+			connection = connect(sqlType, url, userName, password);
+			insertRows(connection, sqlType, tableName, fields, 0, tblData.getLines());
+			loaded = true;
 		} catch (SQLException se) {
 			throw(se);
 		} finally {
 			try {
-				//Closes the statement if it was opened
-				if (preparedStatement != null)
-					preparedStatement.close();
+				//Closes the connection if it was opened
+				if (connection != null)
+					connection.close();
 			} catch (SQLException se) {
 				throw(se);
+			} finally {
+				if (created && deferConstraints) {
+					finishDeferredTable(sqlType, url, userName, password, identity, idColumn, loaded);
+				}
+			}
+		}	
+	}
+	
+
+	/**
+	 * Directly inserts data into a Table for the designated SQL database type, splitting the rows into
+	 * ranges that are loaded at the same time over their own connections. Each range is loaded in its
+	 * own transaction.
+	 * 
+	 * @param host - A string where the user can designate the databases file path, defaults to local host 
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param userName - A string that specifies the user name of the creator for SQL access
+	 * @param password - A string that specifies the password of the creator for SQL access
+	 * @param identity - A boolean that specifies whether to create a default id field
+	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * @param threads - The number of connections to load over at the same time
+	 * @param allOrNothing - If true the ranges are loaded into a staging table that is copied into the table in
+	 * a single transaction once every range has loaded, if false each range is committed straight into the table
+	 * @return a report with the outcome of each range
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * SQLHandler sqlHandler = new SQLHandler(tableData);
+	 * LoadReport report = sqlHandler.insertDatabaseParallel(host, databaseName, MYSQL, userName, password, true, -1, 8, false);
+	 * 
+	 * for (LoadReport.Partition partition : report.getPartitions()) {
+	 * 		if (!partition.isSuccessful()) {
+	 * 			...
+	 * 		}
+	 * }
+	 * </pre>
+	 * @throws SQLException if an all or nothing load fails, or the table cannot be prepared
+	 * @see LoadReport
+	 */
+	public LoadReport insertDatabaseParallel(String host, String databaseName, final SQLType sqlType,
+			final String userName, final String password, boolean identity, int idColumn, int threads,
+			boolean allOrNothing) throws SQLException {
+		startLoad();
+		try {
+			return insertTableParallel(host, databaseName, sqlType, userName, password, identity, idColumn, threads, allOrNothing);
+		} finally {
+			finishLoad();
+		}
+	}
+
+	private LoadReport insertTableParallel(String host, String databaseName, final SQLType sqlType,
+			final String userName, final String password, boolean identity, int idColumn, int threads,
+			boolean allOrNothing) throws SQLException {
+		final String fields = getInsertFields();
+		threads = Math.max(1, Math.min(threads, tblData.getLines()));
+		host = resolveHost(sqlType, host, databaseName);
+		final String url = getConnectionURL(sqlType, host, databaseName);
+		boolean created = prepareTable(url, host, databaseName, sqlType, userName, password, identity, idColumn);
+		boolean loaded = false;
+		try {
+			LoadReport report = loadParallel(sqlType, url, userName, password, fields, threads, allOrNothing);
+			loaded = report.isSuccessful();
+			return report;
+		} finally {
+			if (created && deferConstraints) {
+				finishDeferredTable(sqlType, url, userName, password, identity, idColumn, loaded);
+			}
+		}
+	}
+
+	/**
+	 * Loads the rows into an existing table over several connections at once
+	 */
+	private LoadReport loadParallel(final SQLType sqlType, final String url, final String userName,
+			final String password, final String fields, int threads, boolean allOrNothing) throws SQLException {
+		String tableName = tblData.getTableName();
+		int rows = tblData.getLines();
+		LoadReport report = new LoadReport(allOrNothing);
+		String stagingName = getStagingName(tableName);
+		if (allOrNothing) {
+			executeUpdate(sqlType, url, userName, password, getCreateStagingTable(sqlType, tableName, stagingName));
+		}
+		final String target = allOrNothing ? stagingName : tableName;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<LoadReport.Partition>> futures = new ArrayList<Future<LoadReport.Partition>>();
+			int partitionSize = (rows + threads - 1) / threads;
+			for (int first = 0; first < rows; first += partitionSize) {
+				final LoadReport.Partition partition = new LoadReport.Partition(first, Math.min(rows, first + partitionSize));
+				futures.add(executor.submit(new Callable<LoadReport.Partition>() {
+					@Override
+					public LoadReport.Partition call() {
+						loadPartition(sqlType, url, userName, password, target, fields, partition);
+						return partition;
+					}
+				}));
+			}
+			for (Future<LoadReport.Partition> future : futures) {
+				report.addPartition(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted waiting for the load to finish", e);
+		} catch (ExecutionException e) {
+			throw new SQLException("Error loading partition", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!allOrNothing) {
+			report.setCommitted(true);
+			return report;
+		}
+		try {
+			if (report.isSuccessful()) {
+				//copy the staging table across in one transaction
+				executeUpdate(sqlType, url, userName, password, "INSERT INTO " + tableName + "(" + fields
+						+ ") SELECT " + fields + " FROM " + stagingName);
+				report.setCommitted(true);
+			}
+		} finally {
+			executeUpdate(sqlType, url, userName, password, "DROP TABLE " + stagingName);
+		}
+		if (!report.isSuccessful()) {
+			throw report.getFirstError();
+		}
+		return report;
+	}
+
+	/**
+	 * Loads one range of rows over its own connection and transaction, recording the outcome in the partition
+	 */
+	private void loadPartition(SQLType sqlType, String url, String userName, String password,
+			String tableName, String fields, LoadReport.Partition partition) {
+		long start = System.currentTimeMillis();
+		Connection partitionConnection = null;
+		try {
+			partitionConnection = connect(sqlType, url, userName, password);
+			partitionConnection.setAutoCommit(false);
+			try {
+				insertRows(partitionConnection, sqlType, tableName, fields, partition.getFirstRow(), partition.getLastRow());
+				commit(partitionConnection);
+				partition.setRowsLoaded(partition.getLastRow() - partition.getFirstRow());
+			} catch (SQLException | RuntimeException e) {
+				partitionConnection.rollback();
+				throw(e);
 			}
+		} catch (SQLException se) {
+			partition.setError(se);
+		} catch (RuntimeException e) {
+			//recorded like any other failure, so an all or nothing load still drops its staging table
+			partition.setError(new SQLException("Error loading partition", e));
+		} finally {
+			try {
+				if (partitionConnection != null)
+					partitionConnection.close();
+			} catch (SQLException se) {
+				if (partition.isSuccessful()) {
+					partition.setError(se);
+				}
+			}
+			partition.setElapsedMillis(System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Directly inserts rows read from a cursor into a Table for the designated SQL database type, reading and
+	 * loading at the same time. The calling thread reads the rows into batches of batchSize and hands them to
+	 * the writer threads through a bounded queue, so reading waits whenever the writers fall behind and no more
+	 * than a few batches are held in memory. Each batch is loaded in its own transaction. The handler's table
+	 * data only describes the columns, its rows are not loaded.
+	 * <br/>
+	 * The first batch to fail stops the pipeline, no further rows are read and the writers finish the batch
+	 * they are on. Batches loaded before the failure stay committed.
+	 * 
+	 * @param host - A string where the user can designate the databases file path, defaults to local host 
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param userName - A string that specifies the user name of the creator for SQL access
+	 * @param password - A string that specifies the password of the creator for SQL access
+	 * @param identity - A boolean that specifies whether to create a default id field
+	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * @param rows - The rows to load, the cursor is closed once read
+	 * @param writers - The number of connections to load over at the same time
+	 * @return a report with the outcome of each batch that was loaded
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * CSVCursor cursor = csvHandler.openCSV(new File("TestData/testDataType.csv"));
+	 * 
+	 * SQLHandler sqlHandler = new SQLHandler(cursor.getColumns());
+	 * LoadReport report = sqlHandler.insertDatabasePipelined(host, databaseName, MYSQL, userName, password, true, -1, cursor, 4);
+	 * 
+	 * if (!report.isSuccessful()) {
+	 * 		throw report.getFirstError();
+	 * }
+	 * </pre>
+	 * @throws SQLException if the table cannot be prepared
+	 * @throws IOException if the rows cannot be read, loading stops as it would for a failed batch
+	 * @see LoadReport
+	 * @see CSVHandler#openCSV(java.io.File)
+	 */
+	public LoadReport insertDatabasePipelined(String host, String databaseName, SQLType sqlType,
+			String userName, String password, boolean identity, int idColumn, RowCursor rows, int writers)
+			throws SQLException, IOException {
+		startLoad();
+		try {
+			return insertTablePipelined(host, databaseName, sqlType, userName, password, identity, idColumn, rows, writers);
+		} finally {
+			finishLoad();
+		}
+	}
+
+	private LoadReport insertTablePipelined(String host, String databaseName, SQLType sqlType,
+			String userName, String password, boolean identity, int idColumn, RowCursor rows, int writers)
+			throws SQLException, IOException {
+		String fields = getInsertFields();
+		host = resolveHost(sqlType, host, databaseName);
+		String url = getConnectionURL(sqlType, host, databaseName);
+		boolean loaded = false;
+		try {
+			boolean created = prepareTable(url, host, databaseName, sqlType, userName, password, identity, idColumn);
+			try {
+				LoadReport report = loadPipelined(sqlType, url, userName, password, fields, rows, Math.max(1, writers));
+				loaded = report.isSuccessful();
+				return report;
+			} finally {
+				if (created && deferConstraints) {
+					finishDeferredTable(sqlType, url, userName, password, identity, idColumn, loaded);
+				}
+			}
+		} finally {
+			rows.close();
+		}
+	}
+
+	/**
+	 * Reads the cursor into batches on the calling thread while the writer threads load them
+	 */
+	private LoadReport loadPipelined(final SQLType sqlType, final String url, final String userName,
+			final String password, final String fields, RowCursor rows, int writers) throws SQLException, IOException {
+		final LoadReport report = new LoadReport(false);
+		final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(writers * PIPELINE_BATCHES_PER_WRITER);
+		final AtomicBoolean read = new AtomicBoolean(false);
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < writers; i++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						writeBatches(sqlType, url, userName, password, fields, queue, read, stopped, report);
+					}
+				}));
+			}
+			try {
+				readBatches(rows, queue, stopped);
+			} catch (IOException e) {
+				stopped.set(true);
+				throw(e);
+			} finally {
+				read.set(true);
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			stopped.set(true);
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted waiting for the load to finish", e);
+		} catch (ExecutionException e) {
+			throw new SQLException("Error loading batch", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		report.setCommitted(true);
+		//writers finish their batches in any order
+		Collections.sort(report.getPartitions(), new Comparator<LoadReport.Partition>() {
+			@Override
+			public int compare(LoadReport.Partition a, LoadReport.Partition b) {
+				return Integer.compare(a.getFirstRow(), b.getFirstRow());
+			}
+		});
+		return report;
+	}
+
+	/**
+	 * Splits the cursor's rows into batches and queues them, waiting whenever the queue is full
+	 */
+	private void readBatches(RowCursor rows, BlockingQueue<Batch> queue, AtomicBoolean stopped)
+			throws IOException, InterruptedException {
+		int size = Math.max(1, batchSize);
+		int line = 0;
+		List<Object[]> batch = new ArrayList<Object[]>(size);
+		Object[] row;
+		long readStart = System.nanoTime();
+		while (!stopped.get() && (row = rows.next()) != null) {
+			loadMetrics.read(System.nanoTime() - readStart);
+			batch.add(row.clone());
+			if (batch.size() == size) {
+				if (!queueBatch(queue, batch, line, stopped)) {
+					return;
+				}
+				line += batch.size();
+				batch = new ArrayList<Object[]>(size);
+			}
+			readStart = System.nanoTime();
+		}
+		if (!batch.isEmpty() && !stopped.get()) {
+			queueBatch(queue, batch, line, stopped);
+		}
+	}
+
+	/**
+	 * @return false if the pipeline was stopped before the batch could be queued
+	 */
+	private boolean queueBatch(BlockingQueue<Batch> queue, List<Object[]> rows, int line, AtomicBoolean stopped)
+			throws InterruptedException {
+		TableData data = new TableData(rows.toArray(new Object[rows.size()][]), tblData.getColumnClasses(),
+				tblData.getTableName(), tblData.getColumnHeader(), rows.size(), tblData.getFields(),
+				tblData.getFieldLength(), tblData.getFieldPrecision());
+		Batch batch = new Batch(data, new LoadReport.Partition(line, line + rows.size()));
+		while (!queue.offer(batch, PIPELINE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (stopped.get()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads batches from the queue over a single connection until every batch has been read or the pipeline
+	 * is stopped, stopping the pipeline if a batch fails
+	 */
+	private void writeBatches(SQLType sqlType, String url, String userName, String password, String fields,
+			BlockingQueue<Batch> queue, AtomicBoolean read, AtomicBoolean stopped, LoadReport report) {
+		String tableName = tblData.getTableName();
+		Connection connection = null;
+		try {
+			while (!stopped.get()) {
+				//only an empty queue after every batch was read means there is nothing left
+				boolean finished = read.get();
+				Batch batch = queue.poll(PIPELINE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (batch == null) {
+					if (finished) {
+						return;
+					}
+					continue;
+				}
+				LoadReport.Partition partition = batch.partition;
+				long start = System.currentTimeMillis();
+				try {
+					if (connection == null) {
+						connection = connect(sqlType, url, userName, password);
+						connection.setAutoCommit(false);
+					}
+					try {
+						forRows(batch.rows).insertRows(connection, sqlType, tableName, fields, 0, batch.rows.getLines());
+						commit(connection);
+						partition.setRowsLoaded(batch.rows.getLines());
+					} catch (SQLException se) {
+						connection.rollback();
+						throw(se);
+					}
+				} catch (SQLException se) {
+					partition.setError(se);
+					stopped.set(true);
+				} catch (RuntimeException e) {
+					//a writer that dies without stopping the pipeline leaves the reader waiting on a full queue
+					partition.setError(new SQLException("Error loading batch", e));
+					stopped.set(true);
+					rollbackQuietly(connection);
+				} catch (Error e) {
+					partition.setError(new SQLException("Error loading batch", e));
+					stopped.set(true);
+					throw(e);
+				} finally {
+					partition.setElapsedMillis(System.currentTimeMillis() - start);
+					synchronized (report) {
+						report.addPartition(partition);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			stopped.set(true);
+			Thread.currentThread().interrupt();
+		} finally {
 			try {
-				//Closes the connection if it was opened
 				if (connection != null)
 					connection.close();
 			} catch (SQLException se) {
-				throw(se);
+				//every batch on the connection has already been committed or rolled back
 			}
-		}	
+		}
+	}
+
+	private static void rollbackQuietly(Connection connection) {
+		try {
+			if (connection != null)
+				connection.rollback();
+		} catch (SQLException se) {
+			//the batch has already failed
+		}
+	}
+
+	/**
+	 * Gets a handler that loads the designated rows with this handler's insert settings
+	 */
+	private SQLHandler forRows(TableData rows) {
+		SQLHandler handler = new SQLHandler(rows);
+		handler.insertMode = insertMode;
+		handler.batchSize = batchSize;
+		handler.loadListeners = loadListeners;
+		handler.loadMetrics = loadMetrics;
+		return handler;
 	}
-	
 
 	/**
-	 * Creates the String for the the designated SQL database type that can then be used to write the .sql file
+	 * A batch of rows waiting in the pipeline, with the partition its outcome is recorded in
+	 */
+	private static class Batch {
+		private final TableData rows;
+		private final LoadReport.Partition partition;
+
+		Batch(TableData rows, LoadReport.Partition partition) {
+			this.rows = rows;
+			this.partition = partition;
+		}
+	}
+
+	/**
+	 * Directly inserts or updates data in a Table for the designated SQL database type, keyed on the id column.
+	 * The rows are bulk loaded into a staging table and then merged into the table in a single statement, rows
+	 * whose key is new are inserted and rows whose key exists are updated only if one of their values changed.
+	 * The table is created if it does not exist
+	 * 
+	 * @param host - A string where the user can designate the databases file path, defaults to local host 
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param userName - A string that specifies the user name of the creator for SQL access
+	 * @param password - A string that specifies the password of the creator for SQL access
+	 * @param idColumn - An integer that specifies which column is the key the rows are matched on
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * CSVHandler csvHandler = new CSVHandler();
+	 * csvHandler.setFirstLineUsedAsColumnHeader(true);
+	 * 
+	 * TableData tableData = csvHandler.readCSV("TestData/testDataType.csv");
+	 * 
+	 * SQLHandler sqlHandler = new SQLHandler(tableData);
+	 * sqlHandler.upsertDatabase(host, databaseName, POSTGRESQL, userName, password, 0);
+	 * 
+	 * </pre>
+	 * @throws SQLException
+	 * @throws Error
+	 * @see TableData
+	 */
+	public void upsertDatabase(String host, String databaseName,
+			SQLType sqlType, String userName, String password, int idColumn) throws SQLException {
+		startLoad();
+		try {
+			upsertTable(host, databaseName, sqlType, userName, password, idColumn);
+		} finally {
+			finishLoad();
+		}
+	}
+
+	private void upsertTable(String host, String databaseName,
+			SQLType sqlType, String userName, String password, int idColumn) throws SQLException {
+		upsertTable(host, databaseName, sqlType, userName, password, idColumn, new ArrayList<String>());
+	}
+
+	/**
+	 * Loads the rows into a staging table and then merges them into the table and deletes the rows keyed
+	 * on deletedKeys, the merge and the deletes being committed in one transaction
+	 */
+	private void upsertTable(String host, String databaseName, SQLType sqlType, String userName,
+			String password, int idColumn, List<String> deletedKeys) throws SQLException {
+		String tableName = tblData.getTableName();
+		String fields = getInsertFields();
+		String stagingName = null;
+		String upsert = null;
+		host = resolveHost(sqlType, host, databaseName);
+		String url = getConnectionURL(sqlType, host, databaseName);
+		//a diff that only deletes rows has nothing to merge
+		if (tblData.getLines() > 0 || deletedKeys.isEmpty()) {
+			stagingName = getStagingName(tableName);
+			upsert = getUpsertStatement(sqlType, tableName, stagingName, idColumn);
+			if (prepareTable(url, host, databaseName, sqlType, userName, password, false, idColumn) && deferConstraints) {
+				//the key has to exist before rows can be matched on it
+				buildDeferredConstraints(sqlType, url, userName, password, false, idColumn);
+			}
+			executeUpdate(sqlType, url, userName, password, getCreateStagingTable(sqlType, tableName, stagingName));
+		}
+		try {
+			Connection connection = connect(sqlType, url, userName, password);
+			try {
+				if (stagingName != null) {
+					insertBulk(connection, sqlType, stagingName, fields, 0, tblData.getLines());
+				}
+				mergeAndDelete(connection, upsert, idColumn, deletedKeys);
+			} finally {
+				connection.close();
+			}
+		} finally {
+			if (stagingName != null) {
+				executeUpdate(sqlType, url, userName, password, "DROP TABLE " + stagingName);
+			}
+		}
+	}
+
+	/**
+	 * Runs the upsert, when there is one, and deletes the rows keyed on deletedKeys in a single transaction,
+	 * rolling both back if either fails
+	 */
+	private void mergeAndDelete(Connection connection, String upsert, int keyColumn,
+			List<String> deletedKeys) throws SQLException {
+		connection.setAutoCommit(false);
+		Statement statement = null;
+		PreparedStatement preparedStatement = null;
+		try {
+			if (upsert != null) {
+				statement = connection.createStatement();
+				statement.executeUpdate(upsert);
+			}
+			if (!deletedKeys.isEmpty()) {
+				preparedStatement = connection.prepareStatement("DELETE FROM " + tblData.getTableName()
+						+ " WHERE " + tblData.getColumnHeader()[keyColumn] + " = ?");
+				int count = 0;
+				for (String key : deletedKeys) {
+					preparedStatement.setString(1, key);
+					preparedStatement.addBatch();
+					if (++count % batchSize == 0) {
+						executeBatch(preparedStatement, batchSize);
+					}
+				}
+				executeBatch(preparedStatement, count % batchSize);
+			}
+			commit(connection);
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw(e);
+		} finally {
+			if (statement != null)
+				statement.close();
+			if (preparedStatement != null)
+				preparedStatement.close();
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Directly applies the changes found by a TableDiff to a Table for the designated SQL database type. The
+	 * handler must be created with the diff's changes. Its rows are loaded into a staging table, then merged
+	 * into the table keyed on the diff's key column and the deleted rows removed, the merge and the deletes
+	 * being committed together in a single transaction
+	 * 
+	 * @param host - A string where the user can designate the databases file path, defaults to local host 
+	 * @param databaseName - A string that specifies the name of the database that holds the table
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param userName - A string that specifies the user name of the creator for SQL access
+	 * @param password - A string that specifies the password of the creator for SQL access
+	 * @param diff - The changes to apply
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * TableDiff diff = TableDiff.compare(oldData, newData, 0);
+	 * 
+	 * SQLHandler sqlHandler = new SQLHandler(diff.getChanges());
+	 * sqlHandler.applyDiff(host, databaseName, MYSQL, userName, password, diff);
+	 * 
+	 * </pre>
+	 * @throws SQLException
+	 * @see TableDiff
+	 */
+	public void applyDiff(String host, String databaseName,
+			SQLType sqlType, String userName, String password, TableDiff diff) throws SQLException {
+		startLoad();
+		try {
+			applyTableDiff(host, databaseName, sqlType, userName, password, diff);
+		} finally {
+			finishLoad();
+		}
+	}
+
+	private void applyTableDiff(String host, String databaseName,
+			SQLType sqlType, String userName, String password, TableDiff diff) throws SQLException {
+		if (tblData.getLines() == 0 && diff.getDeletedKeys().isEmpty()) {
+			return;
+		}
+		upsertTable(host, databaseName, sqlType, userName, password, diff.getKeyColumn(), diff.getDeletedKeys());
+	}
+
+	/**
+	 * Writes the changes found by a TableDiff as a .sql script that applies them in a single transaction.
+	 * The handler must be created with the diff's changes. New rows are written according to the handler's
+	 * InsertMode, followed by an UPDATE for each changed row and a DELETE for each removed row
+	 * 
+	 * @param writer - The writer to send the script to, it is flushed but not closed
+	 * @param databaseName - A string that specifies the name of the database that holds the table
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param diff - The changes to write
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * TableDiff diff = TableDiff.compare(oldData, newData, 0);
+	 * 
+	 * Writer writer = new BufferedWriter(new FileWriter("TestData/changes.sql"));
+	 * SQLHandler sqlHandler = new SQLHandler(diff.getChanges());
+	 * sqlHandler.writeDiffSQLFile(writer, databaseName, POSTGRESQL, diff);
+	 * writer.close();
+	 * 
+	 * </pre>
+	 * @throws IOException
+	 * @see TableDiff
+	 */
+	public void writeDiffSQLFile(Writer writer, String databaseName, SQLType sqlType, TableDiff diff) throws IOException {
+		Object[] headings = tblData.getColumnHeader();
+		int keyColumn = diff.getKeyColumn();
+		SQLScriptWriter script = new SQLScriptWriter(writer, sqlType, insertMode,
+				tblData.getTableName(), getInsertFields(), tblData.getFields());
+		script.beginTransaction(databaseName);
+		Object[][] data = tblData.getTableData();
+		int inserts = diff.getInsertCount();
+		for (int i = 0; i < tblData.getLines(); i++) {
+			if (i < inserts) {
+				script.writeRow(data[i]);
+			} else {
+				script.writeUpdate(data[i], headings, keyColumn);
+			}
+		}
+		for (String key : diff.getDeletedKeys()) {
+			script.writeDelete(headings[keyColumn], key);
+		}
+		script.finish();
+	}
+
+	/**
+	 * Gets the statement that merges the staging table into the table for the designated SQL database type,
+	 * leaving rows that have not changed untouched
+	 */
+	private String getUpsertStatement(SQLType sqlType, String tableName, String stagingName, int idColumn) {
+		Object[] headings = tblData.getColumnHeader();
+		int cols = tblData.getFields();
+		if (idColumn < 0 || idColumn >= cols) {
+			throw new Error("Conflict with 'idColumn' paramater. 'idColumn' cannot be less than 0 or greater than the columns in the table");
+		}
+		String key = headings[idColumn].toString();
+		String fields = getInsertFields();
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < cols; i++) {
+			if (i != idColumn) {
+				values.add(headings[i].toString());
+			}
+		}
+		String upsert = "";
+		if (sqlType == SQLType.SQLSERVER) {
+			upsert = "MERGE INTO " + tableName + " AS t USING " + stagingName + " AS s ON t." + key + " = s." + key;
+			if (!values.isEmpty()) {
+				//EXCEPT treats two nulls as equal, unlike <>
+				upsert += " WHEN MATCHED AND EXISTS (SELECT " + join(values, "s.", ", ") + " EXCEPT SELECT "
+						+ join(values, "t.", ", ") + ") THEN UPDATE SET " + joinAssignments(values, "s.");
+			}
+			upsert += " WHEN NOT MATCHED THEN INSERT (" + fields + ") VALUES (" + join(headingList(), "s.", ", ") + ");";
+		} else if (sqlType == SQLType.MYSQL) {
+			//MySQL does not write a row when the new values are the same as the old ones
+			upsert = "INSERT INTO " + tableName + "(" + fields + ") SELECT " + fields + " FROM " + stagingName
+					+ " ON DUPLICATE KEY UPDATE ";
+			if (values.isEmpty()) {
+				upsert += key + " = " + key;
+			} else {
+				for (int i = 0; i < values.size(); i++) {
+					upsert += (i == 0 ? "" : ", ") + values.get(i) + " = VALUES(" + values.get(i) + ")";
+				}
+			}
+		} else if (sqlType == SQLType.POSTGRESQL) {
+			upsert = "INSERT INTO " + tableName + "(" + fields + ") SELECT " + fields + " FROM " + stagingName
+					+ " ON CONFLICT (" + key + ") DO ";
+			if (values.isEmpty()) {
+				upsert += "NOTHING";
+			} else {
+				upsert += "UPDATE SET " + joinAssignments(values, "EXCLUDED.") + " WHERE ("
+						+ join(values, tableName + ".", ", ") + ") IS DISTINCT FROM (" + join(values, "EXCLUDED.", ", ") + ")";
+			}
+		} else if (sqlType == SQLType.H2) {
+			//H2 writes every matched row, changed or not
+			upsert = "MERGE INTO " + tableName + "(" + fields + ") KEY (" + key + ") SELECT " + fields + " FROM " + stagingName;
+		}
+		return upsert;
+	}
+
+	private List<String> headingList() {
+		List<String> headings = new ArrayList<String>();
+		for (Object heading : tblData.getColumnHeader()) {
+			headings.add(heading.toString());
+		}
+		return headings;
+	}
+
+	// c1, c2 becomes prefix.c1, prefix.c2
+	private String join(List<String> columns, String prefix, String separator) {
+		String joined = "";
+		for (int i = 0; i < columns.size(); i++) {
+			joined += (i == 0 ? "" : separator) + prefix + columns.get(i);
+		}
+		return joined;
+	}
+
+	// c1, c2 becomes c1 = prefix.c1, c2 = prefix.c2
+	private String joinAssignments(List<String> columns, String prefix) {
+		String joined = "";
+		for (int i = 0; i < columns.size(); i++) {
+			joined += (i == 0 ? "" : ", ") + columns.get(i) + " = " + prefix + columns.get(i);
+		}
+		return joined;
+	}
+
+	/**
+	 * Gets a staging table name that no other load is using, so loads of the same table at the same time
+	 * never fill or drop each other's staging table
+	 */
+	private static String getStagingName(String tableName) {
+		return tableName + "_staging_" + Integer.toString(STAGING_NAMES.nextInt(Integer.MAX_VALUE), 36);
+	}
+
+	/**
+	 * Gets the statement that creates an empty copy of the table for the designated SQL database type
+	 */
+	private String getCreateStagingTable(SQLType sqlType, String tableName, String stagingName) {
+		String createStaging = "";
+		if (sqlType == SQLType.SQLSERVER) {
+			createStaging = "SELECT * INTO " + stagingName + " FROM " + tableName + " WHERE 1 = 0";
+		} else if (sqlType == SQLType.MYSQL) {
+			createStaging = "CREATE TABLE " + stagingName + " LIKE " + tableName;
+		} else if (sqlType == SQLType.POSTGRESQL) {
+			//the staging table is dropped once copied, so it never needs to be written to the WAL
+			createStaging = "CREATE UNLOGGED TABLE " + stagingName + " (LIKE " + tableName + " INCLUDING DEFAULTS)";
+		} else if (sqlType == SQLType.H2) {
+			createStaging = "CREATE TABLE " + stagingName + " AS SELECT * FROM " + tableName + " WHERE 1 = 0";
+		}
+		return createStaging;
+	}
+
+	/**
+	 * Executes a single statement over its own connection
+	 */
+	private void executeUpdate(SQLType sqlType, String url, String userName, String password, String sql) throws SQLException {
+		Connection updateConnection = connect(sqlType, url, userName, password);
+		Statement statement = null;
+		try {
+			statement = updateConnection.createStatement();
+			statement.executeUpdate(sql);
+		} finally {
+			if (statement != null)
+				statement.close();
+			updateConnection.close();
+		}
+	}
+
+	/**
+	 * Creates the String for the the designated SQL database type that can then be used to write the .sql file.
+	 * Large tables should use writeSQLFile() to stream the script instead
 	 * 
 	 * @param databaseName - A string that specifies the name of the database that the table will be created in
 	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
@@ -476,61 +1638,282 @@ public class SQLHandler {
 	 * @see FileUtility
 	 */
 	public String createSQLFile(String databaseName, SQLType sqlType, boolean identity, int idColumn) {
-		String tableName = tblData.getTableName();
-		String fields = getFields();
-		String useDatabase = "";
-		String insertFields = "";
-		String values = "";
-		String insertString = "";
-		int line = 0;
-		int rows = tblData.getLines();
-		int cols = tblData.getFields();
-		Object[] headings = tblData.getColumnHeader();
+		StringWriter writer = new StringWriter();
+		try {
+			writeSQLFile(writer, databaseName, sqlType, identity, idColumn);
+		} catch (IOException e) {
+			//a StringWriter never throws
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the .sql script for the designated SQL database type straight to a writer, one statement at
+	 * a time. Rows are written according to the handler's InsertMode, see SQLScriptWriter
+	 * 
+	 * @param writer - The writer to send the script to, it is flushed but not closed
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param identity - A boolean that specifies whether to create a default id field
+	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * SQLHandler sqlHandler = new SQLHandler(tableData);
+	 * sqlHandler.setInsertMode(InsertMode.MULTI_ROW);
+	 * 
+	 * Writer writer = new BufferedWriter(new FileWriter("TestData/test.sql"));
+	 * sqlHandler.writeSQLFile(writer, databaseName, MYSQL, true, -1);
+	 * writer.close();
+	 * 
+	 * </pre>
+	 * @throws IOException
+	 * @throws Error
+	 * @see SQLScriptWriter
+	 */
+	public void writeSQLFile(Writer writer, String databaseName, SQLType sqlType, boolean identity, int idColumn) throws IOException {
+		SQLScriptWriter script = openSQLScript(writer, databaseName, sqlType, identity, idColumn);
 		Object[][] data = tblData.getTableData();
-		if (sqlType == SQLType.MYSQL) {
-			useDatabase = "USE " + databaseName;
+		int rows = tblData.getLines();
+		for (int i = 0; i < rows; i++) {
+			script.writeRow(data[i]);
 		}
-		for (int i = 0; i < cols; i++) {
-			if (i == 0) {
-				insertFields += headings[i];
+		script.finish();
+	}
+
+	/**
+	 * Writes the CREATE statements of the .sql script to a writer and returns a SQLScriptWriter that the
+	 * rows can then be written to as they arrive. Only the table's name, headers and column details are
+	 * used, so the TableData does not need to hold any rows
+	 * 
+	 * @param writer - The writer to send the script to
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param identity - A boolean that specifies whether to create a default id field
+	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * @return the writer for the script's rows, finish() must be called once every row has been written
+	 * @throws IOException
+	 * @throws Error
+	 * @see SQLScriptWriter
+	 */
+	public SQLScriptWriter openSQLScript(Writer writer, String databaseName, SQLType sqlType, boolean identity, int idColumn) throws IOException {
+		String createTable = getCreateTable(sqlType, identity, idColumn);
+		SQLScriptWriter script = new SQLScriptWriter(writer, sqlType, insertMode,
+				tblData.getTableName(), getInsertFields(), tblData.getFields());
+		script.writeHeader(databaseName, createTable);
+		return script;
+	}
+
+	/**
+	 * Writes the .sql script split into a schema script and several data scripts that can be loaded at
+	 * the same time by separate clients once the schema script has been run. Each data script loads its
+	 * rows in its own transaction. Rows are written according to the handler's InsertMode
+	 * 
+	 * @param schemaWriter - The writer to send the CREATE statements to
+	 * @param dataWriters - The writers to share the rows between, one for each data script
+	 * @param databaseName - A string that specifies the name of the database that the table will be created in
+	 * @param sqlType - An enum that specifies which designates what SQL type the database shall be
+	 * @param identity - A boolean that specifies whether to create a default id field
+	 * @param idColumn - An integer that specifies which column to be the id column(Cannot be used if identity is true)
+	 * @param partitionColumn - The column whose value's hash chooses each row's data script, or -1 to give each
+	 * data script an equal range of rows. Rows with a null value are kept together in one data script
+	 * <br>
+	 * <b>USAGE:</b></br>
+	 * <pre>
+	 * Writer schema = new BufferedWriter(new FileWriter("test.sql"));
+	 * Writer[] data = {new BufferedWriter(new FileWriter("test.1.sql")), new BufferedWriter(new FileWriter("test.2.sql"))};
+	 * 
+	 * SQLHandler sqlHandler = new SQLHandler(tableData);
+	 * sqlHandler.writeSQLFiles(schema, data, databaseName, POSTGRESQL, true, -1, -1);
+	 * 
+	 * </pre>
+	 * @throws IOException
+	 * @throws Error
+	 */
+	public void writeSQLFiles(Writer schemaWriter, Writer[] dataWriters, String databaseName, SQLType sqlType,
+			boolean identity, int idColumn, int partitionColumn) throws IOException {
+		String createTable = getCreateTable(sqlType, identity, idColumn);
+		if (partitionColumn >= tblData.getFields()) {
+			throw new Error("Conflict with 'partitionColumn' paramater. 'partitionColumn' cannot be greater than the columns in the table");
+		}
+		if (dataWriters.length == 0) {
+			throw new Error("Conflict with 'dataWriters' paramater. 'dataWriters' must have at least one writer");
+		}
+		SQLScriptWriter schema = new SQLScriptWriter(schemaWriter, sqlType, insertMode,
+				tblData.getTableName(), getInsertFields(), tblData.getFields());
+		schema.writeHeader(databaseName, createTable);
+		schema.finish();
+		
+		int partitions = dataWriters.length;
+		SQLScriptWriter[] scripts = new SQLScriptWriter[partitions];
+		for (int i = 0; i < partitions; i++) {
+			scripts[i] = new SQLScriptWriter(dataWriters[i], sqlType, insertMode,
+					tblData.getTableName(), getInsertFields(), tblData.getFields());
+			scripts[i].beginTransaction(databaseName);
+		}
+		Object[][] data = tblData.getTableData();
+		int rows = tblData.getLines();
+		int rangeSize = Math.max(1, (rows + partitions - 1) / partitions);
+		for (int i = 0; i < rows; i++) {
+			int partition;
+			if (partitionColumn < 0) {
+				partition = i / rangeSize;
 			} else {
-				insertFields += ", " + headings[i];
+				partition = (String.valueOf(data[i][partitionColumn]).hashCode() & Integer.MAX_VALUE) % partitions;
 			}
+			scripts[partition].writeRow(data[i]);
 		}
+		for (int i = 0; i < partitions; i++) {
+			scripts[i].finish();
+		}
+	}
+
+	/**
+	 * Creates the CREATE TABLE statement for the designated SQL database type
+	 * @throws Error if identity and idColumn conflict
+	 */
+	private String getCreateTable(SQLType sqlType, boolean identity, int idColumn) {
+		return getCreateTable(sqlType, identity, idColumn, false);
+	}
+
+	/**
+	 * Gets the CREATE TABLE statement, a deferred table leaves out its primary key and on PostgreSQL
+	 * is created UNLOGGED, both are added back by buildDeferredConstraints() once the data is in
+	 */
+	private String getCreateTable(SQLType sqlType, boolean identity, int idColumn, boolean deferred) {
+		String tableName = tblData.getTableName();
+		String fields = getFields(sqlType);
 		String idField = "";
-		String primaryKey = "";
+		int cols = tblData.getFields();
+		String primaryKey = getPrimaryKey(identity, idColumn);
+		if(identity){
+			//Gets the unique identification field for the desired SQL database
+			idField = getIDField(sqlType) + "\n";
+		}
+		for (int column : indexColumns) {
+			if (column < 0 || column >= cols) {
+				throw new Error("Conflict with 'indexColumns' setting. An index column cannot be less than 0 or greater than the columns in the table");
+			}
+		}
+		if (deferred && !keepsPrimaryKeyInline(sqlType, identity)) {
+			String columns = idField + fields;
+			String unlogged = sqlType == SQLType.POSTGRESQL ? "UNLOGGED " : "";
+			return "CREATE " + unlogged + "TABLE " + tableName + "(\n"
+					+ columns.substring(0, columns.lastIndexOf(',')) + ");";
+		}
+		return "CREATE TABLE " + tableName + "(\n"
+				+ idField + fields + "PRIMARY KEY (" + primaryKey + "));";
+	}
+
+	private String getPrimaryKey(boolean identity, int idColumn) {
+		int cols = tblData.getFields();
 		if(identity & idColumn != -1){
 			throw new Error("Conflict with 'identity' and 'idColumn' paramaters. Both cannot be valid, change 'identity' to false or 'idColumn' to -1");
 		}else if(identity){
-			idField = getIDField(sqlType) + "\n";
-			primaryKey = "id";
+			return "id";
 		}else if(idColumn > cols || idColumn < 0){
 			throw new Error("Conflict with 'idColumn' paramater. 'idColumn' cannot be less than 0 or greater than the columns in the table");
-		}else{
-			primaryKey += headings[idColumn];
-		}
-		String createTable = "CREATE TABLE " + tableName + "(\n"
-				+ idField + fields + "PRIMARY KEY (" + primaryKey + "));";
-		rows = tblData.getLines();
-		cols = tblData.getFields();
-		for (int i = line; i < rows; i++) {
-			values = "";
-			for (int j = 0; j < cols; j++) {
-				if(j == 0){
-					values += ("'" + data[i][j].toString() + "'");
-				}else{
-					values += (", '" + data[i][j].toString() + "'");
-				}
-			}
-			insertString += "INSERT INTO " + tableName + "(" + insertFields + ") values ("
-					+ values + ");\n";
 		}
-		//Creates a String that can be sent to a file writer to be output as a SQL File
-		String SQLFileBuildString = "CREATE DATABASE "
-				+ databaseName
-				+ ";\n" + useDatabase + ";\n"
-				+ createTable + "\n"
-				+ insertString;
-		return SQLFileBuildString;
+		return tblData.getColumnHeader()[idColumn].toString();
+	}
+
+	public InsertMode getInsertMode() {
+		return insertMode;
+	}
+
+	public void setInsertMode(InsertMode insertMode) {
+		this.insertMode = insertMode;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isCompactTypes() {
+		return compactTypes;
+	}
+
+	/**
+	 * Sets whether column types are picked from the statistics of each column rather than from its class
+	 * alone. Whole numbers get the smallest of TINYINT, SMALLINT, INT and BIGINT that holds them, decimals
+	 * stay DECIMAL, booleans become BIT or BOOLEAN, values that are all the same length become CHAR
+	 * and columns without nulls are declared NOT NULL. The statistics are gathered from the table data
+	 * the first time they are needed
+	 * @see ColumnStatistics
+	 */
+	public void setCompactTypes(boolean compactTypes) {
+		this.compactTypes = compactTypes;
+	}
+
+	/**
+	 * Sets the statistics compact types are picked from, for when the handler's table data does not hold the
+	 * rows being loaded
+	 */
+	void setColumnStatistics(ColumnStatistics[] columnStatistics) {
+		this.columnStatistics = columnStatistics;
+	}
+
+	public boolean isDeferConstraints() {
+		return deferConstraints;
+	}
+
+	/**
+	 * Sets whether a table created by insertDatabase() or insertDatabaseParallel() is loaded before its
+	 * primary key and indexes are built. PostgreSQL tables are loaded UNLOGGED and set LOGGED afterwards,
+	 * SQL Server tables are loaded as heaps so InsertMode.BULK's TABLOCK inserts can be minimally logged.
+	 * MySQL keeps an identity primary key, only its other indexes are deferred.
+	 * Has no effect when loading into a table that already exists
+	 */
+	public void setDeferConstraints(boolean deferConstraints) {
+		this.deferConstraints = deferConstraints;
+	}
+
+	public int[] getIndexColumns() {
+		return indexColumns;
+	}
+
+	/**
+	 * Sets the columns to build secondary indexes on when insertDatabase() or insertDatabaseParallel()
+	 * creates the table, the indexes are built after the load if constraints are deferred
+	 */
+	public void setIndexColumns(int... indexColumns) {
+		this.indexColumns = indexColumns;
+	}
+
+	/**
+	 * Gets the metrics of the handler's latest database load, a load that is still running is measured live
+	 * @return the metrics, or null if the handler has not loaded a database
+	 */
+	public LoadMetrics getLoadMetrics() {
+		return loadMetrics;
+	}
+
+	/**
+	 * Adds a listener told about the progress of each database load, see LoadListener
+	 */
+	public void addLoadListener(LoadListener listener) {
+		loadListeners.add(listener);
+	}
+
+	public void removeLoadListener(LoadListener listener) {
+		loadListeners.remove(listener);
+	}
+
+	public boolean isJmxEnabled() {
+		return jmxEnabled;
+	}
+
+	/**
+	 * Sets whether the metrics of each database load are registered with the platform MBeanServer, as
+	 * com.jeremy:type=LoadMetrics,table=tableName, while the load runs. They are unregistered once it has
+	 * finished, getLoadMetrics() still returns them. The latest load of a table replaces the one before it
+	 */
+	public void setJmxEnabled(boolean jmxEnabled) {
+		this.jmxEnabled = jmxEnabled;
 	}
 }
\ No newline at end of file
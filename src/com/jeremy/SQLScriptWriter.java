@@ -0,0 +1,231 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.jeremy.SQLHandler.InsertMode;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * Writes the data section of a .sql script one row at a time, so a script can be written straight to a
+ * file as rows arrive rather than being built up in memory first. Rows are written according to the
+ * InsertMode:<br/>
+ * BATCH - One INSERT statement per row<br/>
+ * MULTI_ROW - INSERT statements holding up to rowsPerInsert rows each<br/>
+ * BULK - A COPY ... FROM stdin data block for PostgreSQL, multi-row INSERT statements for other databases
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * SQLHandler sqlHandler = new SQLHandler(tableData);
+ * sqlHandler.setInsertMode(InsertMode.BULK);
+ *
+ * Writer writer = new BufferedWriter(new FileWriter("TestData/test.sql"));
+ * SQLScriptWriter script = sqlHandler.openSQLScript(writer, "Example", SQLType.POSTGRESQL, true, -1);
+ * script.writeRow(row);
+ * ...
+ * script.finish();
+ * writer.close();
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler
+ */
+public class SQLScriptWriter {
+	private static final int DEFAULT_ROWS_PER_INSERT = 1000;
+
+	private Writer writer;
+	private SQLType sqlType;
+	private String tableName;
+	private String fields;
+	private int cols;
+	private boolean copy;
+	private int rowsPerInsert;
+	private int pendingRows = 0;
+	private long rowsWritten = 0;
+	private boolean inTransaction = false;
+	private boolean copyOpen = false;
+
+	SQLScriptWriter(Writer writer, SQLType sqlType, InsertMode insertMode, String tableName, String fields, int cols) {
+		this.writer = writer;
+		this.sqlType = sqlType;
+		this.tableName = tableName;
+		this.fields = fields;
+		this.cols = cols;
+		this.copy = insertMode == InsertMode.BULK && sqlType == SQLType.POSTGRESQL;
+		if (insertMode == InsertMode.BATCH) {
+			rowsPerInsert = 1;
+		} else {
+			rowsPerInsert = Math.min(DEFAULT_ROWS_PER_INSERT, sqlType.getMaxRowsPerInsert());
+		}
+	}
+
+	/**
+	 * Writes the CREATE DATABASE, USE and CREATE TABLE statements at the top of the script, H2 scripts only
+	 * create the table
+	 */
+	void writeHeader(String databaseName, String createTable) throws IOException {
+		//an H2 script is run against the database file it is loading
+		if (sqlType == SQLType.H2) {
+			writer.write(createTable + "\n");
+			return;
+		}
+		String useDatabase = "";
+		if (sqlType == SQLType.MYSQL) {
+			useDatabase = "USE " + databaseName;
+		}
+		writer.write("CREATE DATABASE " + databaseName + ";\n" + useDatabase + ";\n" + createTable + "\n");
+	}
+
+	/**
+	 * Starts a transaction that finish() commits, so the script can be loaded on its own alongside other
+	 * scripts for the same table. MySQL scripts also select the database
+	 */
+	void beginTransaction(String databaseName) throws IOException {
+		if (sqlType == SQLType.SQLSERVER) {
+			writer.write("BEGIN TRANSACTION;\n");
+		} else if (sqlType == SQLType.MYSQL) {
+			writer.write("USE " + databaseName + ";\nSTART TRANSACTION;\n");
+		} else if (sqlType == SQLType.H2) {
+			writer.write("SET AUTOCOMMIT FALSE;\n");
+		} else {
+			writer.write("BEGIN;\n");
+		}
+		inTransaction = true;
+	}
+
+	/**
+	 * Writes a row to the script
+	 * @param row - The values of the row, in column order
+	 * @throws IOException
+	 */
+	public void writeRow(Object[] row) throws IOException {
+		if (copy) {
+			if (!copyOpen) {
+				writer.write("COPY " + tableName + "(" + fields + ") FROM stdin;\n");
+				copyOpen = true;
+			}
+			writer.write(BulkLoader.RowEncoder.encodeRow(row, cols));
+		} else if (rowsPerInsert == 1) {
+			writer.write("INSERT INTO " + tableName + "(" + fields + ") values (");
+			writeValues(row);
+			writer.write(");\n");
+		} else {
+			if (pendingRows == 0) {
+				writer.write("INSERT INTO " + tableName + "(" + fields + ") values\n(");
+			} else {
+				writer.write(",\n(");
+			}
+			writeValues(row);
+			writer.write(")");
+			if (++pendingRows == rowsPerInsert) {
+				writer.write(";\n");
+				pendingRows = 0;
+			}
+		}
+		rowsWritten++;
+	}
+
+	/**
+	 * Ends any statement or COPY block still open, commits the transaction if one was started and flushes
+	 * the writer. The writer is not closed.
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		endStatement();
+		if (inTransaction) {
+			writer.write(sqlType == SQLType.SQLSERVER ? "COMMIT TRANSACTION;\n" : "COMMIT;\n");
+			inTransaction = false;
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes an UPDATE statement that sets every column of the row with the same key
+	 * @param row - The new values of the row, in column order
+	 * @param headings - The column names, in column order
+	 * @param keyColumn - The column that identifies the row
+	 * @throws IOException
+	 */
+	public void writeUpdate(Object[] row, Object[] headings, int keyColumn) throws IOException {
+		endStatement();
+		writer.write("UPDATE " + tableName + " SET ");
+		boolean first = true;
+		for (int j = 0; j < cols; j++) {
+			if (j == keyColumn) {
+				continue;
+			}
+			if (!first) {
+				writer.write(", ");
+			}
+			first = false;
+			writer.write(headings[j] + " = ");
+			writeValue(row[j]);
+		}
+		writer.write(" WHERE " + headings[keyColumn] + " = ");
+		writeValue(row[keyColumn]);
+		writer.write(";\n");
+	}
+
+	/**
+	 * Writes a DELETE statement for the row with the key
+	 * @param keyHeading - The name of the column that identifies the row
+	 * @param key - The key of the row
+	 * @throws IOException
+	 */
+	public void writeDelete(Object keyHeading, Object key) throws IOException {
+		endStatement();
+		writer.write("DELETE FROM " + tableName + " WHERE " + keyHeading + " = ");
+		writeValue(key);
+		writer.write(";\n");
+	}
+
+	// close an open COPY block or multi-row INSERT so another statement can follow
+	private void endStatement() throws IOException {
+		if (copyOpen) {
+			writer.write("\\.\n");
+			copyOpen = false;
+		} else if (pendingRows > 0) {
+			writer.write(";\n");
+			pendingRows = 0;
+		}
+	}
+
+	// quoted values, single quotes are doubled so they cannot end the string early and nulls are left unquoted
+	private void writeValues(Object[] row) throws IOException {
+		for (int j = 0; j < cols; j++) {
+			if (j > 0) {
+				writer.write(", ");
+			}
+			writeValue(row[j]);
+		}
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value == null) {
+			writer.write("NULL");
+			return;
+		}
+		writer.write('\'');
+		writer.write(value.toString().replace("'", "''"));
+		writer.write('\'');
+	}
+
+	public int getRowsPerInsert() {
+		return rowsPerInsert;
+	}
+
+	/**
+	 * Sets the most rows written into each INSERT statement when not writing a single row per statement
+	 */
+	public void setRowsPerInsert(int rowsPerInsert) {
+		if (pendingRows > 0) {
+			throw new IllegalStateException("Cannot change rows per insert in the middle of a statement");
+		}
+		this.rowsPerInsert = Math.max(1, rowsPerInsert);
+	}
+
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+}
@@ -1,18 +1,24 @@
 package com.jeremy;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * A class for saving and loading Serializable objects to and from the file system.
+ * A class for saving and loading Serializable objects to and from the file system, streams and channels.
  * @author Scott Micklethwaite
  * @version 1.0
  * @param <T> An object to be serialized. Must implement the Serializable interface.
@@ -25,17 +31,29 @@ public class Serialized<T extends Serializable>{
 	 * @return an instance of T
 	 * @throws Exception
 	 */
-	@SuppressWarnings("unchecked")
 	public T load(File file) throws Exception{
+		InputStream fs = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return load(fs);
+		} finally {
+			fs.close();
+		}
+	}
+	
+	/**
+	 * A method for loading an object from a stream, such as a socket or an in-memory buffer.
+	 * @param in the stream to read the serialized object from, left open
+	 * @return an instance of T
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	public T load(InputStream in) throws Exception{
 		T o;
 		try {
-			FileInputStream fs = new FileInputStream(file);
-			ObjectInput oi = new ObjectInputStream(fs);
+			ObjectInput oi = new ObjectInputStream(in);
 			
 			Object ob = oi.readObject();
 			o = (T) ob;
-			
-			oi.close();
 		} catch (IOException | ClassNotFoundException e) {
 			throw e;
 		}
@@ -43,6 +61,16 @@ public class Serialized<T extends Serializable>{
 		return o;
 	}
 	
+	/**
+	 * A method for loading an object from a channel.
+	 * @param channel the channel to read the serialized object from, left open
+	 * @return an instance of T
+	 * @throws Exception
+	 */
+	public T load(ReadableByteChannel channel) throws Exception{
+		return load(Channels.newInputStream(channel));
+	}
+	
 	/**
 	 * A method for serializing an object and saving it to a file.
 	 * @param o the object to be serialized
@@ -50,17 +78,37 @@ public class Serialized<T extends Serializable>{
 	 * @throws IOException
 	 */
 	public void save(T o, File file) throws IOException{
+		OutputStream fs = new BufferedOutputStream(new FileOutputStream(file));
 		try{
-			ByteArrayOutputStream bStream = new ByteArrayOutputStream();
-			ObjectOutput oo = new ObjectOutputStream(bStream);
-			oo.writeObject(o);
-			oo.close();
-
-			FileOutputStream fs = new FileOutputStream(file);
-			fs.write(bStream.toByteArray());
+			save(o, fs);
+		} finally {
 			fs.close();
+		}
+	}
+	
+	/**
+	 * A method for serializing an object straight to a stream, such as a socket or an in-memory buffer.
+	 * @param o the object to be serialized
+	 * @param out the stream to write the serialized object to, flushed and left open
+	 * @throws IOException
+	 */
+	public void save(T o, OutputStream out) throws IOException{
+		try{
+			ObjectOutput oo = new ObjectOutputStream(out);
+			oo.writeObject(o);
+			oo.flush();
 		} catch (IOException e){
 			throw e;
 		}
 	}
+	
+	/**
+	 * A method for serializing an object straight to a channel.
+	 * @param o the object to be serialized
+	 * @param channel the channel to write the serialized object to, left open
+	 * @throws IOException
+	 */
+	public void save(T o, WritableByteChannel channel) throws IOException{
+		save(o, Channels.newOutputStream(channel));
+	}
 }
@@ -0,0 +1,305 @@
+package com.jeremy;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Used to keep the tables of csv files that have already been read, so reading the same file again with
+ * the same settings does not parse it again. A file is matched by its canonical path, size and last
+ * modified time along with the CSVHandler's column delimiter, date format, header and scan settings, so a
+ * file that has changed is read afresh.
+ * <br/>
+ * Tables are held up to a budget of bytes, once it is spent the least recently used tables are pushed out
+ * to SoftReferences, where they can still be found until the garbage collector needs the memory. The
+ * tables held are never handed out to be edited, readCSV returns a copy that can be edited freely and
+ * readSnapshot a TableSnapshot that shares the table without copying it.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * FileController fc = new FileController();
+ * fc.setTableCache(TableCache.getInstance());
+ *
+ * fc.readFile(new File("TestData.csv"));
+ * fc.readFile(new File("TestData.csv")); //not parsed again
+ *
+ * System.out.println(TableCache.getInstance().getHitRate());
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see FileController#setTableCache(TableCache)
+ */
+public class TableCache {
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static TableCache instance;
+
+	private long maxBytes;
+	private long bytes = 0;
+	private LinkedHashMap<Key, Entry> tables = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private Map<Key, SoftEntry> softTables = new HashMap<Key, SoftEntry>();
+	private ReferenceQueue<TableData> clearedTables = new ReferenceQueue<TableData>();
+	private long hits = 0;
+	private long softHits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param maxBytes - The estimated bytes of tables to hold before pushing tables out to SoftReferences
+	 */
+	public TableCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return a cache shared by the whole JVM, holding up to DEFAULT_MAX_BYTES
+	 */
+	public synchronized static TableCache getInstance() {
+		if (instance == null) {
+			instance = new TableCache(DEFAULT_MAX_BYTES);
+		}
+		return instance;
+	}
+
+	/**
+	 * Reads a csv file, from the cache if it has been read with the same settings and has not changed since
+	 * @param csvFile - The file to read
+	 * @param csvHandler - The handler to read the file with if it is not in the cache
+	 * @return a copy of the file's table
+	 * @throws IOException
+	 */
+	public TableData readCSV(File csvFile, CSVHandler csvHandler) throws IOException {
+		return load(csvFile, csvHandler).copy();
+	}
+
+	/**
+	 * Reads a csv file as a snapshot, from the cache if it has been read with the same settings and has not
+	 * changed since. Nothing is copied, every snapshot of the file shares the table held by the cache
+	 * @param csvFile - The file to read
+	 * @param csvHandler - The handler to read the file with if it is not in the cache
+	 * @return a snapshot of the file's table
+	 * @throws IOException
+	 */
+	public TableSnapshot readSnapshot(File csvFile, CSVHandler csvHandler) throws IOException {
+		return new TableSnapshot(load(csvFile, csvHandler));
+	}
+
+	private TableData load(File csvFile, CSVHandler csvHandler) throws IOException {
+		// the key is taken before reading so a file changed while it is read is not cached as unchanged
+		Key key = new Key(csvFile, csvHandler);
+		TableData tableData = get(key);
+		if (tableData == null) {
+			tableData = csvHandler.readCSV(csvFile);
+			put(key, tableData);
+		}
+		return tableData;
+	}
+
+	private synchronized TableData get(Key key) {
+		purgeCleared();
+		Entry entry = tables.get(key);
+		if (entry != null) {
+			hits++;
+			return entry.tableData;
+		}
+
+		// a table pushed out is moved back in if the garbage collector has not taken it
+		SoftEntry softEntry = softTables.remove(key);
+		TableData tableData = softEntry == null ? null : softEntry.get();
+		if (tableData != null) {
+			hits++;
+			softHits++;
+			put(key, tableData);
+			return tableData;
+		}
+		misses++;
+		return null;
+	}
+
+	private synchronized void put(Key key, TableData tableData) {
+		Entry entry = new Entry(tableData);
+		Entry replaced = tables.put(key, entry);
+		if (replaced != null) {
+			bytes -= replaced.bytes;
+		}
+		bytes += entry.bytes;
+
+		// push the least recently used tables out until the budget is met
+		Iterator<Map.Entry<Key, Entry>> eldest = tables.entrySet().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<Key, Entry> next = eldest.next();
+			eldest.remove();
+			bytes -= next.getValue().bytes;
+			softTables.put(next.getKey(), new SoftEntry(next.getKey(), next.getValue().tableData, clearedTables));
+			evictions++;
+		}
+	}
+
+	// forget the keys of tables the garbage collector has taken
+	private void purgeCleared() {
+		SoftEntry cleared;
+		while ((cleared = (SoftEntry) clearedTables.poll()) != null) {
+			if (softTables.get(cleared.key) == cleared) {
+				softTables.remove(cleared.key);
+			}
+		}
+	}
+
+	/**
+	 * Empties the cache, the statistics are kept
+	 */
+	public synchronized void clear() {
+		tables.clear();
+		softTables.clear();
+		bytes = 0;
+	}
+
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @param maxBytes - The estimated bytes of tables to hold, taking effect from the next table cached
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the estimated bytes of the tables held, not counting those pushed out to SoftReferences
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of tables held, not counting those pushed out to SoftReferences
+	 */
+	public synchronized int getSize() {
+		return tables.size();
+	}
+
+	/**
+	 * @return the number of reads served from the cache, including those from SoftReferences
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of reads served by a table that had been pushed out to a SoftReference
+	 */
+	public synchronized long getSoftHits() {
+		return softHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of tables pushed out to SoftReferences to stay within the budget
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		long reads = hits + misses;
+		return reads == 0 ? 0 : (double) hits / reads;
+	}
+
+	/**
+	 * Estimates the memory a table takes up, counting its rows and String values
+	 * @param tableData - The table to measure
+	 * @return the estimated bytes
+	 */
+	static long estimateBytes(TableData tableData) {
+		long estimate = 64;
+		Object[][] data = tableData.getTableData();
+		if (data == null) {
+			return estimate;
+		}
+		estimate += 16 + 8L * data.length;
+		for (Object[] row : data) {
+			if (row == null) {
+				continue;
+			}
+			estimate += 16 + 8L * row.length;
+			for (Object value : row) {
+				if (value instanceof String) {
+					estimate += 40 + 2L * ((String) value).length();
+				} else if (value != null) {
+					estimate += 24;
+				}
+			}
+		}
+		return estimate;
+	}
+
+	/**
+	 * A file as it was when read and the settings it was read with
+	 */
+	private static class Key {
+		private String path;
+		private long length;
+		private long lastModified;
+		private String columnDelimiter;
+		private String dateFormat;
+		private boolean firstLineUsedAsColumnHeader;
+		private int scanLines;
+
+		Key(File csvFile, CSVHandler csvHandler) throws IOException {
+			path = csvFile.getCanonicalPath();
+			length = csvFile.length();
+			lastModified = csvFile.lastModified();
+			columnDelimiter = csvHandler.getColumnDelimiter();
+			dateFormat = csvHandler.getDateFormat();
+			firstLineUsedAsColumnHeader = csvHandler.isFirstLineUsedAsColumnHeader();
+			scanLines = csvHandler.getScanLines();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return path.equals(other.path) && length == other.length && lastModified == other.lastModified
+					&& Objects.equals(columnDelimiter, other.columnDelimiter) && Objects.equals(dateFormat, other.dateFormat)
+					&& firstLineUsedAsColumnHeader == other.firstLineUsedAsColumnHeader && scanLines == other.scanLines;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, length, lastModified, columnDelimiter, dateFormat, firstLineUsedAsColumnHeader,
+					scanLines);
+		}
+	}
+
+	private static class Entry {
+		private TableData tableData;
+		private long bytes;
+
+		Entry(TableData tableData) {
+			this.tableData = tableData;
+			this.bytes = estimateBytes(tableData);
+		}
+	}
+
+	private static class SoftEntry extends SoftReference<TableData> {
+		private Key key;
+
+		SoftEntry(Key key, TableData tableData, ReferenceQueue<TableData> queue) {
+			super(tableData, queue);
+			this.key = key;
+		}
+	}
+}
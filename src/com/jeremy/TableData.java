@@ -44,6 +44,27 @@ public class TableData implements Serializable {
 		this.fieldPrecision = fieldPrecision;
 	}
 
+	/**
+	 * Copies the table so that edits made to either one, including through the arrays the getters return,
+	 * do not reach the other. The values themselves are shared
+	 * @return the copy
+	 */
+	public TableData copy() {
+		Object[][] data = null;
+		if (tableData != null) {
+			data = new Object[tableData.length][];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = tableData[i] == null ? null : tableData[i].clone();
+			}
+		}
+		return new TableData(data, clone(columnClasses), tableName, clone(columnHeader), lines, fields,
+				fieldLength == null ? null : fieldLength.clone(), fieldPrecision == null ? null : fieldPrecision.clone());
+	}
+
+	private static <T> T[] clone(T[] array) {
+		return array == null ? null : array.clone();
+	}
+
 	public Object[][] getTableData() {
 		return tableData;
 	}
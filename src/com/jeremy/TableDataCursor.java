@@ -0,0 +1,98 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A RowCursor over the rows of a TableData, and the means of reading any RowCursor back into a TableData.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * RowCursor cursor = new TableDataCursor(tableData);
+ *
+ * TableData copy = TableDataCursor.readAll(DatabaseCursor.openTable("", "Example", SQLType.MYSQL, "root", "", "users"));
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class TableDataCursor implements RowCursor {
+	private TableData tblData;
+	private int line = 0;
+
+	public TableDataCursor(TableData data) {
+		this.tblData = data;
+	}
+
+	@Override
+	public String getTableName() {
+		return tblData.getTableName();
+	}
+
+	@Override
+	public String[] getColumnHeader() {
+		return tblData.getColumnHeader();
+	}
+
+	@Override
+	public Class<?>[] getColumnClasses() {
+		return tblData.getColumnClasses();
+	}
+
+	@Override
+	public Object[] next() {
+		if (line >= tblData.getLines()) {
+			return null;
+		}
+		return tblData.getTableData()[line++];
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Reads every remaining row of the cursor into a TableData and closes the cursor. Field lengths and
+	 * decimal precisions are measured from the values the same way CSVHandler measures them
+	 *
+	 * @param cursor - The cursor to read
+	 * @return the rows read
+	 * @throws IOException
+	 */
+	public static TableData readAll(RowCursor cursor) throws IOException {
+		try {
+			String[] headers = cursor.getColumnHeader();
+			Class<?>[] classes = cursor.getColumnClasses();
+			int fields = headers.length;
+			int[] fieldLength = new int[fields];
+			int[] fieldPrecision = new int[fields];
+			List<Object[]> rows = new ArrayList<Object[]>();
+			Object[] row;
+			while ((row = cursor.next()) != null) {
+				row = row.clone();
+				for (int i = 0; i < fields; i++) {
+					if (row[i] == null) {
+						continue;
+					}
+					String value = row[i].toString();
+					if (classes[i] == Double.class) {
+						//decimal length is the digits either side of the decimal place
+						int point = value.indexOf('.');
+						int scale = point == -1 ? 0 : value.length() - point - 1;
+						int digits = value.replace("-", "").replace(".", "").length();
+						fieldLength[i] = Math.max(fieldLength[i], digits);
+						fieldPrecision[i] = Math.max(fieldPrecision[i], scale);
+					} else {
+						fieldLength[i] = Math.max(fieldLength[i], value.length());
+					}
+				}
+				rows.add(row);
+			}
+			return new TableData(rows.toArray(new Object[rows.size()][]), classes, cursor.getTableName(), headers,
+					rows.size(), fields, fieldLength, fieldPrecision);
+		} finally {
+			cursor.close();
+		}
+	}
+}
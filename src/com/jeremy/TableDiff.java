@@ -0,0 +1,376 @@
+package com.jeremy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Used to find the rows that changed between two versions of a table, matched on a key column. Rows whose
+ * key is only in the new version are inserts, rows whose key is in both versions with different values are
+ * updates and keys only in the old version are deletes.
+ * <br/>
+ * Two csv files can be compared without reading either into a TableData. The HASH method keeps only the
+ * key and a fingerprint of each old row in memory, SORT_MERGE keeps nothing but the changes and needs
+ * both files sorted by the key column. Keys that are numbers are sorted as numbers, so 2 comes before 10,
+ * and before any keys that are not, which are sorted as text.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * CSVHandler csvHandler = new CSVHandler();
+ * csvHandler.setFirstLineUsedAsColumnHeader(true);
+ *
+ * TableDiff diff = TableDiff.compare(new File("yesterday.csv"), new File("today.csv"), 0, csvHandler, TableDiff.Method.HASH);
+ *
+ * SQLHandler sqlHandler = new SQLHandler(diff.getChanges());
+ * sqlHandler.applyDiff(host, databaseName, SQLType.MYSQL, userName, password, diff);
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see SQLHandler#applyDiff(String, String, com.jeremy.SQLHandler.SQLType, String, String, TableDiff)
+ */
+public class TableDiff {
+	//Enum for choosing how two files are matched up
+	//HASH - Holds the key and a fingerprint of every old row in memory, the files can be in any order
+	//SORT_MERGE - Reads both files side by side, both must be sorted by the key column, numeric keys as numbers
+	public enum Method {
+		HASH, SORT_MERGE
+	};
+
+	private String tableName;
+	private String[] columnHeader;
+	private Class<?>[] columnClasses;
+	private int[] fieldLength;
+	private int[] fieldPrecision;
+	private int keyColumn;
+	private List<Object[]> inserts = new ArrayList<Object[]>();
+	private List<Object[]> updates = new ArrayList<Object[]>();
+	private List<String> deletedKeys = new ArrayList<String>();
+
+	private TableDiff(int keyColumn) {
+		this.keyColumn = keyColumn;
+	}
+
+	/**
+	 * Compares two versions of a table held in memory
+	 *
+	 * @param oldData - The previous version of the table
+	 * @param newData - The current version of the table
+	 * @param keyColumn - The column that identifies each row
+	 * @return the changes that turn the old version into the new one
+	 * @throws Error if the tables do not have the same number of columns
+	 */
+	public static TableDiff compare(TableData oldData, TableData newData, int keyColumn) {
+		int cols = newData.getFields();
+		if (oldData.getFields() != cols) {
+			throw new Error("Conflict with 'oldData' and 'newData' paramaters. Both tables must have the same columns");
+		} else if (keyColumn < 0 || keyColumn >= cols) {
+			throw new Error("Conflict with 'keyColumn' paramater. 'keyColumn' cannot be less than 0 or greater than the columns in the table");
+		}
+		TableDiff diff = new TableDiff(keyColumn);
+		diff.tableName = newData.getTableName();
+		diff.columnHeader = newData.getColumnHeader();
+		diff.columnClasses = newData.getColumnClasses();
+		diff.fieldLength = newData.getFieldLength();
+		diff.fieldPrecision = newData.getFieldPrecision();
+
+		Map<String, Object[]> oldRows = new LinkedHashMap<String, Object[]>();
+		Object[][] data = oldData.getTableData();
+		for (int i = 0; i < oldData.getLines(); i++) {
+			oldRows.put(String.valueOf(data[i][keyColumn]), data[i]);
+		}
+		data = newData.getTableData();
+		for (int i = 0; i < newData.getLines(); i++) {
+			Object[] oldRow = oldRows.remove(String.valueOf(data[i][keyColumn]));
+			if (oldRow == null) {
+				diff.inserts.add(data[i]);
+			} else if (!rowsEqual(oldRow, data[i], cols)) {
+				diff.updates.add(data[i]);
+			}
+		}
+		diff.deletedKeys.addAll(oldRows.keySet());
+		return diff;
+	}
+
+	/**
+	 * Compares two versions of a csv file a line at a time. The rows in the result are kept as strings
+	 *
+	 * @param oldFile - The previous version of the file
+	 * @param newFile - The current version of the file
+	 * @param keyColumn - The column that identifies each row
+	 * @param csvHandler - The handler whose header and column delimiter settings the files are read with
+	 * @param method - How the rows of the two files are matched up
+	 * @return the changes that turn the old file into the new one
+	 * @throws IOException if either file cannot be read or has a line with fewer fields than the columns, or a
+	 *         SORT_MERGE file is not sorted by the key column
+	 */
+	public static TableDiff compare(File oldFile, File newFile, int keyColumn, CSVHandler csvHandler, Method method) throws IOException {
+		TableDiff diff = new TableDiff(keyColumn);
+		String name = newFile.getName();
+		int extentionPosition = name.lastIndexOf(".");
+		diff.tableName = extentionPosition == -1 ? name : name.substring(0, extentionPosition);
+
+		LineReader oldReader = new LineReader(oldFile, csvHandler, keyColumn);
+		LineReader newReader = new LineReader(newFile, csvHandler, keyColumn);
+		try {
+			diff.columnHeader = newReader.header;
+			if (method == Method.SORT_MERGE) {
+				diff.sortMerge(oldReader, newReader);
+			} else {
+				diff.hash(oldReader, newReader);
+			}
+		} finally {
+			oldReader.close();
+			newReader.close();
+		}
+
+		//the files are only ever read as text
+		int cols = diff.columnHeader.length;
+		diff.columnClasses = new Class<?>[cols];
+		diff.fieldLength = new int[cols];
+		diff.fieldPrecision = new int[cols];
+		for (int i = 0; i < cols; i++) {
+			diff.columnClasses[i] = String.class;
+		}
+		diff.countFieldLengths(diff.inserts);
+		diff.countFieldLengths(diff.updates);
+		return diff;
+	}
+
+	private void countFieldLengths(List<Object[]> rows) {
+		for (Object[] row : rows) {
+			for (int i = 0; i < fieldLength.length; i++) {
+				fieldLength[i] = Math.max(fieldLength[i], row[i].toString().length());
+			}
+		}
+	}
+
+	// holds a fingerprint of every old line rather than the line itself
+	private void hash(LineReader oldReader, LineReader newReader) throws IOException {
+		Map<String, Long> oldLines = new HashMap<String, Long>();
+		while (oldReader.next()) {
+			oldLines.put(oldReader.key, fingerprint(oldReader.line));
+		}
+		while (newReader.next()) {
+			Long oldFingerprint = oldLines.remove(newReader.key);
+			if (oldFingerprint == null) {
+				inserts.add(newReader.fields);
+			} else if (oldFingerprint.longValue() != fingerprint(newReader.line)) {
+				updates.add(newReader.fields);
+			}
+		}
+		deletedKeys.addAll(oldLines.keySet());
+	}
+
+	// walks both files in key order, whichever side has the smaller key is missing from the other
+	private void sortMerge(LineReader oldReader, LineReader newReader) throws IOException {
+		boolean hasOld = oldReader.next();
+		boolean hasNew = newReader.next();
+		while (hasOld || hasNew) {
+			int compare;
+			if (!hasOld) {
+				compare = 1;
+			} else if (!hasNew) {
+				compare = -1;
+			} else {
+				compare = compareKeys(oldReader.key, newReader.key);
+			}
+			if (compare < 0) {
+				deletedKeys.add(oldReader.key);
+				hasOld = oldReader.nextSorted();
+			} else if (compare > 0) {
+				inserts.add(newReader.fields);
+				hasNew = newReader.nextSorted();
+			} else {
+				if (!oldReader.line.equals(newReader.line)) {
+					updates.add(newReader.fields);
+				}
+				hasOld = oldReader.nextSorted();
+				hasNew = newReader.nextSorted();
+			}
+		}
+	}
+
+	// numbers in numeric order ahead of text in text order, keys equal as numbers but written differently
+	// are still different keys, the same as they are to HASH
+	private static int compareKeys(String a, String b) {
+		BigDecimal numberA = toNumber(a);
+		BigDecimal numberB = toNumber(b);
+		if (numberA != null && numberB != null) {
+			int compare = numberA.compareTo(numberB);
+			return compare != 0 ? compare : a.compareTo(b);
+		} else if (numberA != null) {
+			return -1;
+		} else if (numberB != null) {
+			return 1;
+		}
+		return a.compareTo(b);
+	}
+
+	private static BigDecimal toNumber(String key) {
+		try {
+			return new BigDecimal(key.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static boolean rowsEqual(Object[] oldRow, Object[] newRow, int cols) {
+		for (int i = 0; i < cols; i++) {
+			if (!String.valueOf(oldRow[i]).equals(String.valueOf(newRow[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// 64 bit FNV-1a, so a changed line is very unlikely to keep its fingerprint
+	private static long fingerprint(String line) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < line.length(); i++) {
+			hash ^= line.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Reads a csv file a line at a time, splitting each line the same way CSVHandler does
+	 */
+	private static class LineReader {
+		private BufferedReader reader;
+		private File file;
+		private String columnDelimiter;
+		private int keyColumn;
+		private String[] header;
+		private String line;
+		private String[] fields;
+		private String key;
+		private String pending;
+		private int lineNumber = 0;
+
+		public LineReader(File file, CSVHandler csvHandler, int keyColumn) throws IOException {
+			this.file = file;
+			this.columnDelimiter = csvHandler.getColumnDelimiter();
+			this.keyColumn = keyColumn;
+			this.reader = new BufferedReader(new FileReader(file));
+			if (csvHandler.isFirstLineUsedAsColumnHeader()) {
+				String first = reader.readLine();
+				lineNumber++;
+				header = first == null ? new String[0] : first.split(columnDelimiter, -1);
+				for (int i = 0; i < header.length; i++) {
+					header[i] = header[i].trim();
+				}
+			} else {
+				//column names come from the first row, which is kept to be read again by next()
+				pending = reader.readLine();
+				int cols = pending == null ? 0 : pending.split(columnDelimiter, -1).length;
+				header = new String[cols];
+				for (int i = 0; i < cols; i++) {
+					header[i] = "Column" + i;
+				}
+			}
+			if (keyColumn < 0 || (header.length > 0 && keyColumn >= header.length)) {
+				reader.close();
+				throw new Error("Conflict with 'keyColumn' paramater. 'keyColumn' cannot be less than 0 or greater than the columns in the table");
+			}
+		}
+
+		public boolean next() throws IOException {
+			if (pending != null) {
+				line = pending;
+				pending = null;
+			} else {
+				line = reader.readLine();
+			}
+			if (line == null) {
+				return false;
+			}
+			lineNumber++;
+			fields = line.split(columnDelimiter, -1);
+			if (fields.length <= keyColumn) {
+				throw new IOException(file.getName() + " line " + lineNumber + " has no key column");
+			} else if (fields.length < header.length) {
+				throw new IOException(file.getName() + " line " + lineNumber + " has " + fields.length
+						+ " fields, fewer than the " + header.length + " columns");
+			}
+			key = fields[keyColumn];
+			return true;
+		}
+
+		// as next(), checking the keys never go backwards
+		public boolean nextSorted() throws IOException {
+			String previous = key;
+			if (!next()) {
+				return false;
+			}
+			if (compareKeys(previous, key) >= 0) {
+				throw new IOException(file.getName() + " is not sorted by the key column at line " + lineNumber);
+			}
+			return true;
+		}
+
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return the rows to insert followed by the rows to update, as a single table
+	 */
+	public TableData getChanges() {
+		List<Object[]> changes = new ArrayList<Object[]>(inserts);
+		changes.addAll(updates);
+		return toTableData(changes);
+	}
+
+	public TableData getInserts() {
+		return toTableData(inserts);
+	}
+
+	public TableData getUpdates() {
+		return toTableData(updates);
+	}
+
+	/**
+	 * @return the keys of the rows to delete
+	 */
+	public List<String> getDeletedKeys() {
+		return deletedKeys;
+	}
+
+	public int getKeyColumn() {
+		return keyColumn;
+	}
+
+	public int getInsertCount() {
+		return inserts.size();
+	}
+
+	public int getUpdateCount() {
+		return updates.size();
+	}
+
+	public int getDeleteCount() {
+		return deletedKeys.size();
+	}
+
+	/**
+	 * @return true if the two versions hold the same rows
+	 */
+	public boolean isEmpty() {
+		return inserts.isEmpty() && updates.isEmpty() && deletedKeys.isEmpty();
+	}
+
+	private TableData toTableData(List<Object[]> rows) {
+		return new TableData(rows.toArray(new Object[rows.size()][]), columnClasses, tableName, columnHeader,
+				rows.size(), columnHeader.length, fieldLength, fieldPrecision);
+	}
+}
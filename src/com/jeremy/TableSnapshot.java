@@ -0,0 +1,183 @@
+package com.jeremy;
+
+/**
+ * An unchangeable view of a table, so one table can be read and converted by many threads at once
+ * without locking. Edits never change a snapshot, they return a new one: edits to the columns' names,
+ * classes and lengths share the rows with the snapshot they were made from, only removing a column copies
+ * the rows.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * TableSnapshot snapshot = TableSnapshot.of(csvHandler.readCSV("TestData.csv"));
+ *
+ * TableSnapshot edited = snapshot.withColumnClass(2, String.class).withoutColumn(0);
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ * @see FileSession
+ */
+public final class TableSnapshot {
+	private final TableData tableData;
+
+	// takes the table as it is, nothing may change it once it has been wrapped
+	TableSnapshot(TableData tableData) {
+		this.tableData = tableData;
+	}
+
+	/**
+	 * Takes a snapshot of a table, later edits to the table do not reach the snapshot
+	 * @param tableData - The table to take a snapshot of
+	 * @return the snapshot
+	 */
+	public static TableSnapshot of(TableData tableData) {
+		return new TableSnapshot(tableData.copy());
+	}
+
+	// the table behind the snapshot, only for the handlers that read it
+	TableData getTableData() {
+		return tableData;
+	}
+
+	/**
+	 * @return a copy of the table that can be edited freely
+	 */
+	public TableData toTableData() {
+		return tableData.copy();
+	}
+
+	/**
+	 * @return a cursor over the rows of the snapshot
+	 */
+	public RowCursor openCursor() {
+		return new TableDataCursor(tableData);
+	}
+
+	public String getTableName() {
+		return tableData.getTableName();
+	}
+
+	public int getLines() {
+		return tableData.getLines();
+	}
+
+	public int getFields() {
+		return tableData.getFields();
+	}
+
+	public String[] getColumnHeader() {
+		return tableData.getColumnHeader().clone();
+	}
+
+	public String getColumnHeader(int pos) {
+		return tableData.getColumnHeader()[pos];
+	}
+
+	public Class<?>[] getColumnClasses() {
+		return tableData.getColumnClasses().clone();
+	}
+
+	public Class<?> getColumnClass(int pos) {
+		return tableData.getColumnClasses()[pos];
+	}
+
+	public int[] getFieldLength() {
+		return tableData.getFieldLength() == null ? null : tableData.getFieldLength().clone();
+	}
+
+	public int[] getFieldPrecision() {
+		return tableData.getFieldPrecision() == null ? null : tableData.getFieldPrecision().clone();
+	}
+
+	/**
+	 * @param line - The row to read
+	 * @return a copy of the row's values
+	 */
+	public Object[] getRow(int line) {
+		return tableData.getTableData()[line].clone();
+	}
+
+	public Object getValue(int line, int field) {
+		return tableData.getTableData()[line][field];
+	}
+
+	public TableSnapshot withTableName(String tableName) {
+		return with(tableName, tableData.getColumnHeader(), tableData.getColumnClasses(), tableData.getFieldLength(),
+				tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withColumnHeader(String[] columnHeader) {
+		return with(tableData.getTableName(), columnHeader.clone(), tableData.getColumnClasses(),
+				tableData.getFieldLength(), tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withColumnHeader(int pos, String columnHeader) {
+		String[] headers = tableData.getColumnHeader().clone();
+		headers[pos] = columnHeader;
+		return with(tableData.getTableName(), headers, tableData.getColumnClasses(), tableData.getFieldLength(),
+				tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withColumnClasses(Class<?>[] columnClasses) {
+		return with(tableData.getTableName(), tableData.getColumnHeader(), columnClasses.clone(),
+				tableData.getFieldLength(), tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withColumnClass(int pos, Class<?> columnClass) {
+		Class<?>[] classes = tableData.getColumnClasses().clone();
+		classes[pos] = columnClass;
+		return with(tableData.getTableName(), tableData.getColumnHeader(), classes, tableData.getFieldLength(),
+				tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withFieldLength(int[] fieldLength) {
+		return with(tableData.getTableName(), tableData.getColumnHeader(), tableData.getColumnClasses(),
+				fieldLength.clone(), tableData.getFieldPrecision());
+	}
+
+	public TableSnapshot withFieldPrecision(int[] fieldPrecision) {
+		return with(tableData.getTableName(), tableData.getColumnHeader(), tableData.getColumnClasses(),
+				tableData.getFieldLength(), fieldPrecision.clone());
+	}
+
+	// a snapshot of the same rows with other column details
+	private TableSnapshot with(String tableName, String[] columnHeader, Class<?>[] columnClasses, int[] fieldLength,
+			int[] fieldPrecision) {
+		return new TableSnapshot(new TableData(tableData.getTableData(), columnClasses, tableName, columnHeader,
+				tableData.getLines(), tableData.getFields(), fieldLength, fieldPrecision));
+	}
+
+	/**
+	 * Removes a column, copying every row without it
+	 * @param colPos - The column to remove
+	 * @return the snapshot without the column
+	 */
+	public TableSnapshot withoutColumn(int colPos) {
+		int fields = tableData.getFields() - 1;
+		Object[][] data = tableData.getTableData();
+		Object[][] newData = new Object[tableData.getLines()][];
+		for (int i = 0; i < newData.length; i++) {
+			newData[i] = remove(data[i], colPos, new Object[fields]);
+		}
+		int[] fieldLength = tableData.getFieldLength();
+		int[] fieldPrecision = tableData.getFieldPrecision();
+		return new TableSnapshot(new TableData(newData,
+				remove(tableData.getColumnClasses(), colPos, new Class<?>[fields]), tableData.getTableName(),
+				remove(tableData.getColumnHeader(), colPos, new String[fields]), tableData.getLines(), fields,
+				fieldLength == null ? null : remove(fieldLength, colPos),
+				fieldPrecision == null ? null : remove(fieldPrecision, colPos)));
+	}
+
+	private static <T> T[] remove(T[] array, int pos, T[] into) {
+		System.arraycopy(array, 0, into, 0, pos);
+		System.arraycopy(array, pos + 1, into, pos, into.length - pos);
+		return into;
+	}
+
+	private static int[] remove(int[] array, int pos) {
+		int[] into = new int[array.length - 1];
+		System.arraycopy(array, 0, into, 0, pos);
+		System.arraycopy(array, pos + 1, into, pos, into.length - pos);
+		return into;
+	}
+}
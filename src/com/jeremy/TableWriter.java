@@ -0,0 +1,197 @@
+package com.jeremy;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import com.jeremy.FileController.OutputType;
+
+/**
+ * Writes the rows of a RowCursor to a text output one row at a time, producing the same documents as
+ * XMLHandler and JSONHandler without holding the table in memory.
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+abstract class TableWriter {
+	private SimpleDateFormat dateFormat;
+
+	/**
+	 * Gets the writer for the designated output type
+	 *
+	 * @param outputType - The output to write
+	 * @param columnDelimiter - The delimiter between CSV columns
+	 * @param dateFormat - The format Date values are written in
+	 * @return the writer, or null if the output type is not a text document
+	 */
+	static TableWriter getInstance(OutputType outputType, String columnDelimiter, String dateFormat) {
+		TableWriter tableWriter = null;
+		switch (outputType) {
+		case CSV:
+			tableWriter = new CSVTableWriter(columnDelimiter);
+			break;
+		case JSON:
+			tableWriter = new JSONTableWriter();
+			break;
+		case XML:
+			tableWriter = new XMLTableWriter(true);
+			break;
+		case XML_SCHEMA:
+			tableWriter = new XMLSchemaWriter();
+			break;
+		default:
+			return null;
+		}
+		tableWriter.dateFormat = new SimpleDateFormat(dateFormat);
+		return tableWriter;
+	}
+
+	/**
+	 * Writes every remaining row of the cursor. The writer is flushed but not closed
+	 *
+	 * @param cursor - The rows to write
+	 * @param rows - The number of rows the cursor holds, or -1 if it is not known
+	 * @param writer - The writer to send the document to
+	 * @throws IOException
+	 */
+	abstract void write(RowCursor cursor, long rows, Writer writer) throws IOException;
+
+	// nulls are written empty and dates in the same format CSVHandler reads them in
+	protected String toText(Object value) {
+		if (value == null) {
+			return "";
+		} else if (value instanceof Date) {
+			return dateFormat.format((Date) value);
+		}
+		return value.toString();
+	}
+
+	// a table with the cursor's columns and no rows, for the handlers that only need the columns
+	protected static TableData getColumns(RowCursor cursor) {
+		String[] headers = cursor.getColumnHeader();
+		return new TableData(new Object[0][], cursor.getColumnClasses(), cursor.getTableName(), headers,
+				0, headers.length);
+	}
+
+	/**
+	 * A header line of column names followed by a line for each row
+	 */
+	private static class CSVTableWriter extends TableWriter {
+		private String columnDelimiter;
+
+		public CSVTableWriter(String columnDelimiter) {
+			this.columnDelimiter = columnDelimiter;
+		}
+
+		@Override
+		void write(RowCursor cursor, long rows, Writer writer) throws IOException {
+			writeLine(cursor.getColumnHeader(), writer);
+			Object[] row;
+			while ((row = cursor.next()) != null) {
+				writeLine(row, writer);
+			}
+			writer.flush();
+		}
+
+		private void writeLine(Object[] values, Writer writer) throws IOException {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					writer.write(columnDelimiter);
+				}
+				writer.write(toText(values[i]));
+			}
+			writer.write('\n');
+		}
+	}
+
+	/**
+	 * The document JSONHandler.stringifyJSON() produces, which opens with the number of rows
+	 */
+	private static class JSONTableWriter extends TableWriter {
+		@Override
+		void write(RowCursor cursor, long rows, Writer writer) throws IOException {
+			if (rows < 0) {
+				throw new IllegalArgumentException("The number of rows must be known before writing JSON");
+			}
+			String[] headings = cursor.getColumnHeader();
+			Class<?>[] classes = cursor.getColumnClasses();
+			writer.write("{\"numRows\":\"" + rows + "\",\"numColumns\":\"" + headings.length
+					+ "\",\"created\":\"" + new SimpleDateFormat().format(new Date())
+					+ "\",\"fileName\":\"" + cursor.getTableName() + ".csv\",\"user\":\"\",\"columnInfo\": [{");
+			for (int i = 0; i < classes.length; i++) {
+				writer.write((i > 0 ? "," : "") + "\"Column " + i + "\":\"" + classes[i].getSimpleName() + "\"");
+			}
+			writer.write("}],\"data\": [");
+			Object[] row;
+			boolean first = true;
+			while ((row = cursor.next()) != null) {
+				writer.write(first ? "{" : ",{");
+				first = false;
+				for (int j = 0; j < headings.length; j++) {
+					writer.write((j > 0 ? "," : "") + "\"" + headings[j] + "\":\"" + toText(row[j]) + "\"");
+				}
+				writer.write("}");
+			}
+			writer.write("]}");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * The document XMLHandler.getXMLString() produces
+	 */
+	private static class XMLTableWriter extends TableWriter {
+		private boolean fieldAsElement;
+
+		public XMLTableWriter(boolean fieldAsElement) {
+			this.fieldAsElement = fieldAsElement;
+		}
+
+		@Override
+		void write(RowCursor cursor, long rows, Writer writer) throws IOException {
+			String[] headings = cursor.getColumnHeader();
+			//the header and DTD only depend on the columns, an empty table ends with a single line root tag
+			String empty = new XMLHandler(getColumns(cursor), fieldAsElement).getXMLString();
+			int root = empty.lastIndexOf("<Table");
+			writer.write(empty, 0, root);
+
+			Object[] row = cursor.next();
+			if (row == null) {
+				writer.write(empty.substring(root));
+				writer.flush();
+				return;
+			}
+			writer.write("<Table name=\"" + cursor.getTableName() + "\">\n");
+			while (row != null) {
+				if (fieldAsElement) {
+					writer.write("\t<Row>\n");
+					for (int j = 0; j < headings.length; j++) {
+						writer.write("\t\t<" + headings[j] + ">" + toText(row[j]) + "</" + headings[j] + ">\n");
+					}
+					writer.write("\t</Row>\n");
+				} else {
+					writer.write("\t<Row");
+					for (int j = 0; j < headings.length; j++) {
+						writer.write(" " + headings[j] + "=\"" + toText(row[j]) + "\"");
+					}
+					writer.write("/>\n");
+				}
+				row = cursor.next();
+			}
+			writer.write("</Table>");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * The schema XMLHandler.getSchemaString() produces, the rows are not read
+	 */
+	private static class XMLSchemaWriter extends TableWriter {
+		@Override
+		void write(RowCursor cursor, long rows, Writer writer) throws IOException {
+			writer.write(new XMLHandler(getColumns(cursor), true).getSchemaString());
+			writer.flush();
+		}
+	}
+}
@@ -1,12 +1,21 @@
 package com.jeremy.junit;
 
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.jeremy.CSVCursor;
 import com.jeremy.CSVHandler;
+import com.jeremy.TableData;
 
 public class CSVHandlerTest {
 
@@ -38,4 +47,107 @@ public class CSVHandlerTest {
 		csvHandler.readCSV(directory, existingFile);
 	}
 	
+	@Test
+	public void testOpenCSV() throws IOException {
+		TableData tableData = csvHandler.readCSV(directory, existingFile);
+		CSVCursor cursor = csvHandler.openCSV(new File(directory, existingFile));
+		try {
+			assertEquals(tableData.getLines(), cursor.getLines());
+			assertArrayEquals(tableData.getColumnHeader(), cursor.getColumnHeader());
+			assertArrayEquals(tableData.getColumnClasses(), cursor.getColumnClasses());
+			assertArrayEquals(tableData.getFieldLength(), cursor.getColumns().getFieldLength());
+			
+			Object[] row;
+			int line = 0;
+			while ((row = cursor.next()) != null) {
+				assertArrayEquals(tableData.getTableData()[line++], row);
+			}
+			assertEquals(tableData.getLines(), line);
+		} finally {
+			cursor.close();
+		}
+	}
+	
+	
+	@Test
+	public void testScanLines() throws IOException {
+		File file = new File(directory, "testDataType.csv");
+		assertEquals(String.class, csvHandler.openCSV(file).getColumnClasses()[6]);
+		
+		//the third row's bananas is past the scan
+		csvHandler.setScanLines(2);
+		CSVCursor cursor = csvHandler.openCSV(file);
+		cursor.close();
+		assertEquals(Boolean.class, cursor.getColumnClasses()[6]);
+		assertEquals(13, cursor.getColumns().getFieldLength()[0]);
+	}
+	
+	@Test
+	public void testOpenCSVSchema() throws IOException {
+		TableData schema = new TableData(new Object[0][], new Class<?>[] {String.class, String.class}, "declared",
+				new String[] {"first", "second"}, 0, 2);
+		CSVCursor cursor = csvHandler.openCSV(new File(directory, "testDataType.csv"), schema);
+		try {
+			assertEquals("declared", cursor.getTableName());
+			assertArrayEquals(new String[] {"first", "second"}, cursor.getColumnHeader());
+			assertArrayEquals(new int[2], cursor.getColumns().getFieldLength());
+			assertEquals(4, cursor.getLines());
+			assertArrayEquals(new Object[] {"blah.blah", "C"}, cursor.next());
+		} finally {
+			cursor.close();
+		}
+	}
+	
+	@Test
+	public void testReadCSVStream() throws IOException {
+		TableData tableData = csvHandler.readCSV(directory, existingFile);
+		InputStream in = new FileInputStream(new File(directory, existingFile));
+		TableData streamed;
+		try {
+			streamed = csvHandler.readCSV(in, "LasData");
+		} finally {
+			in.close();
+		}
+		assertEquals(tableData.getTableName(), streamed.getTableName());
+		assertEquals(tableData.getLines(), streamed.getLines());
+		assertArrayEquals(tableData.getColumnHeader(), streamed.getColumnHeader());
+		assertArrayEquals(tableData.getColumnClasses(), streamed.getColumnClasses());
+		assertArrayEquals(tableData.getFieldLength(), streamed.getFieldLength());
+		assertArrayEquals(tableData.getTableData(), streamed.getTableData());
+	}
+	
+	@Test
+	public void testReadCSVStreamSchema() throws IOException {
+		TableData schema = new TableData(new Object[0][], new Class<?>[] {String.class, String.class}, "declared",
+				new String[] {"first", "second"}, 0, 2);
+		byte[] csv = "first,second\ncaf\u00e9,b\nc,d\n".getBytes("UTF-8");
+		
+		// read once with the declared columns, the rows not sharing the cursor's row
+		TableData streamed = csvHandler.readCSV(new ByteArrayInputStream(csv), schema);
+		assertEquals("declared", streamed.getTableName());
+		assertEquals(2, streamed.getLines());
+		assertArrayEquals(new Object[][] {{"caf\u00e9", "b"}, {"c", "d"}}, streamed.getTableData());
+		
+		// scanned for its columns, decoded as UTF-8 whatever the platform's encoding
+		streamed = csvHandler.readCSV(new ByteArrayInputStream(csv), "scanned");
+		assertEquals(2, streamed.getLines());
+		assertEquals("caf\u00e9", streamed.getTableData()[0][0]);
+	}
+	
+	@Test
+	public void testOpenCSVStream() throws IOException {
+		TableData schema = new TableData(new Object[0][], new Class<?>[] {String.class, String.class}, "declared",
+				new String[] {"first", "second"}, 0, 2);
+		byte[] csv = "first,second\na,b\nc,d\n".getBytes("UTF-8");
+		CSVCursor cursor = csvHandler.openCSV(Channels.newChannel(new ByteArrayInputStream(csv)), schema);
+		try {
+			assertEquals(-1, cursor.getLines());
+			assertArrayEquals(new Object[] {"a", "b"}, cursor.next());
+			assertArrayEquals(new Object[] {"c", "d"}, cursor.next());
+			assertNull(cursor.next());
+		} finally {
+			cursor.close();
+		}
+	}
+	
 }
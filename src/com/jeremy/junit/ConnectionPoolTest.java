@@ -0,0 +1,159 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jeremy.ConnectionPool;
+
+/**
+ * A JUnit test class for the ConnectionPool class. Uses a stub JDBC driver so no database server is needed.
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class ConnectionPoolTest {
+	private static final String URL = "jdbc:stub://pool";
+	private static StubDriver driver = new StubDriver();
+
+	@BeforeClass
+	public static void registerDriver() throws SQLException {
+		DriverManager.registerDriver(driver);
+	}
+
+	@AfterClass
+	public static void deregisterDriver() throws SQLException {
+		ConnectionPool.getInstance().close();
+		DriverManager.deregisterDriver(driver);
+	}
+
+	/**
+	 * Test that a closed connection is handed out again rather than a new one being opened
+	 */
+	@Test
+	public void testReuse() throws SQLException {
+		Properties properties = getProperties("reuse");
+		ConnectionPool pool = ConnectionPool.getInstance();
+
+		Connection first = pool.getConnection(URL, properties);
+		first.close();
+		Connection second = pool.getConnection(URL, properties);
+		second.close();
+
+		ConnectionPool.Metrics metrics = pool.getMetrics(URL, "reuse");
+		assertEquals("Connection was not reused", 1, metrics.getCreated());
+		assertEquals(2, metrics.getBorrowed());
+		assertEquals(0, metrics.getActive());
+		assertEquals(1, metrics.getIdle());
+		assertTrue(first.isClosed());
+	}
+
+	/**
+	 * Test that the pool will not hand out more than maxConnections at once
+	 */
+	@Test(expected = SQLException.class)
+	public void testBounded() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		int max = pool.getMaxConnections();
+		long wait = pool.getWaitTimeout();
+		pool.setMaxConnections(1);
+		pool.setWaitTimeout(50);
+		try {
+			Properties properties = getProperties("bounded");
+			pool.getConnection(URL, properties);
+			pool.getConnection(URL, properties);
+		} finally {
+			pool.setMaxConnections(max);
+			pool.setWaitTimeout(wait);
+		}
+	}
+
+	/**
+	 * Test that a connection opened with one password is not handed to a caller with another
+	 */
+	@Test
+	public void testChangedPassword() throws SQLException {
+		ConnectionPool pool = ConnectionPool.getInstance();
+		Properties properties = getProperties("password");
+		properties.setProperty("password", "old");
+		pool.getConnection(URL, properties).close();
+
+		properties.setProperty("password", "new");
+		pool.getConnection(URL, properties).close();
+
+		ConnectionPool.Metrics metrics = pool.getMetrics(URL, "password");
+		assertEquals("Connection opened with the old password was reused", 1, metrics.getCreated());
+		assertEquals(1, metrics.getBorrowed());
+	}
+
+	private Properties getProperties(String user) {
+		Properties properties = new Properties();
+		properties.setProperty("user", user);
+		properties.setProperty("password", "");
+		return properties;
+	}
+
+	/**
+	 * A driver whose connections are always valid and do nothing
+	 */
+	private static class StubDriver implements Driver {
+		public Connection connect(String url, Properties info) {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new InvocationHandler() {
+						private boolean closed = false;
+
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							String name = method.getName();
+							if (name.equals("close")) {
+								closed = true;
+							} else if (name.equals("isClosed")) {
+								return closed;
+							} else if (name.equals("isValid") || name.equals("getAutoCommit")) {
+								return !closed;
+							}
+							return null;
+						}
+					});
+		}
+
+		public boolean acceptsURL(String url) {
+			return url.startsWith("jdbc:stub:");
+		}
+
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+	}
+}
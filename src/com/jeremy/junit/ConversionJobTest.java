@@ -0,0 +1,86 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.ConversionJob;
+import com.jeremy.ConversionReport;
+import com.jeremy.FileController;
+import com.jeremy.FileController.OutputType;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * A JUnit test class for the ConversionJob class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class ConversionJobTest {
+	private File inputDirectory;
+	private File outputDirectory;
+	private ConversionJob job;
+
+	@Before
+	public void testBefore() throws IOException {
+		inputDirectory = Files.createTempDirectory("input").toFile();
+		outputDirectory = new File(Files.createTempDirectory("output").toFile(), "converted");
+		for (String name : new String[] {"testDataType.csv", "LasDataSmall.csv"}) {
+			Files.copy(new File("TestData", name).toPath(), new File(inputDirectory, name).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		Files.write(new File(inputDirectory, "notes.txt").toPath(), "not a csv".getBytes());
+
+		FileController settings = new FileController(false);
+		settings.setFirstLineUsedAsColumnHeader(true);
+		job = new ConversionJob(settings, outputDirectory);
+		job.setThreads(2);
+	}
+
+	/**
+	 * Test that every matching file is converted to every output and reported in order
+	 */
+	@Test
+	public void testRun() throws IOException, InterruptedException {
+		job.addFiles(inputDirectory, "*.csv");
+		job.setOutputTypes(OutputType.XML, OutputType.JSON);
+		job.setSQLFile("db", SQLType.MYSQL, true, -1);
+
+		ConversionReport report = job.run();
+
+		assertTrue(report.isSuccessful());
+		assertEquals(2, report.getFileCount());
+		assertEquals("LasDataSmall.csv", report.getConversions().get(0).getInputFile().getName());
+		for (String name : new String[] {"LasDataSmall", "testDataType"}) {
+			for (String extension : new String[] {"xml", "jsn", "sql"}) {
+				assertTrue(new File(outputDirectory, name + "." + extension).isFile());
+			}
+		}
+		assertEquals(3, report.getConversions().get(1).getOutputFiles().size());
+		assertEquals(new File(inputDirectory, "testDataType.csv").length()
+				+ new File(inputDirectory, "LasDataSmall.csv").length(), report.getBytesRead());
+	}
+
+	/**
+	 * Test that a file that fails is reported without stopping the others
+	 */
+	@Test
+	public void testFailedFile() throws InterruptedException {
+		job.addFile(new File(inputDirectory, "missing.csv"));
+		job.addFile(new File(inputDirectory, "testDataType.csv"));
+		job.setOutputTypes(OutputType.XML_SCHEMA);
+
+		ConversionReport report = job.run();
+
+		assertEquals(1, report.getFailedCount());
+		assertFalse(report.getConversions().get(0).isSuccessful());
+		assertTrue(report.getConversions().get(0).getOutputFiles().isEmpty());
+		assertTrue(report.getConversions().get(1).isSuccessful());
+		assertTrue(new File(outputDirectory, "testDataType.xsd").isFile());
+	}
+}
@@ -0,0 +1,133 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.ConversionServer;
+import com.jeremy.FileController;
+import com.jeremy.SQLHandler.SQLType;
+import com.jeremy.TableData;
+
+/**
+ * A JUnit test class for the ConversionServer class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class ConversionServerTest {
+	private File csvFile = new File("TestData/LasDataSmall.csv");
+	private FileController fc;
+	private ConversionServer server;
+
+	@Before
+	public void testBefore() throws IOException {
+		fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+		server = new ConversionServer(fc, 0);
+		server.setThreads(2);
+		server.start();
+	}
+
+	@After
+	public void testAfter() {
+		server.close();
+	}
+
+	/**
+	 * Test that a posted csv file is streamed back chunked the same as converting the file
+	 */
+	@Test
+	public void testConvert() throws IOException {
+		File expected = Files.createTempFile("expected", ".xml").toFile();
+		fc.csvToXML(csvFile, expected);
+		HttpURLConnection connection = post("xml?name=LasDataSmall");
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), read(connection));
+
+		expected = Files.createTempFile("expected", ".sql").toFile();
+		fc.csvToSQLFile(csvFile, expected, "db", SQLType.POSTGRESQL, true, -1);
+		connection = post("sql?name=LasDataSmall&database=db&type=postgresql&identity=true");
+		assertEquals(200, connection.getResponseCode());
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), read(connection));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	/**
+	 * Test that with a declared schema the body is converted as it arrives, without being spooled
+	 */
+	@Test
+	public void testSchema() throws IOException {
+		server.close();
+		fc.readFile(csvFile);
+		fc.setSchema(new TableData(new Object[0][], fc.getColumnClasses(), null, fc.getColumnHeader(), 0,
+				fc.getFields(), fc.getFieldLength(), fc.getFieldPrecision()));
+		server = new ConversionServer(fc, 0);
+		// a spool directory that cannot be created, so any request that spools fails
+		server.setSpoolDirectory(new File(csvFile, "spool"));
+		server.start();
+
+		File expected = Files.createTempFile("expected", ".xml").toFile();
+		fc.csvToXML(csvFile, expected);
+		HttpURLConnection connection = post("xml?name=LasDataSmall");
+		assertEquals(200, connection.getResponseCode());
+		assertArrayEquals(Files.readAllBytes(expected.toPath()), read(connection));
+		// spooling failing is the server's fault rather than the request's
+		assertEquals(500, post("json").getResponseCode());
+	}
+
+	/**
+	 * Test that requests that cannot be converted are refused with an error status
+	 */
+	@Test
+	public void testErrors() throws IOException {
+		assertEquals(404, post("pdf").getResponseCode());
+		assertEquals(400, post("xml?name=../data").getResponseCode());
+		assertEquals(400, post("sql?type=oracle").getResponseCode());
+
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort()
+				+ ConversionServer.CONTEXT + "xml").openConnection();
+		assertEquals(405, connection.getResponseCode());
+	}
+
+	private HttpURLConnection post(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort()
+				+ ConversionServer.CONTEXT + path).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setChunkedStreamingMode(4096);
+		OutputStream out = connection.getOutputStream();
+		try {
+			Files.copy(csvFile.toPath(), out);
+		} finally {
+			out.close();
+		}
+		return connection;
+	}
+
+	private static byte[] read(HttpURLConnection connection) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		InputStream in = connection.getInputStream();
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,135 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.ConversionReport;
+import com.jeremy.DirectoryWatcher;
+import com.jeremy.FileController;
+import com.jeremy.FileController.OutputType;
+
+/**
+ * A JUnit test class for the DirectoryWatcher class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class DirectoryWatcherTest {
+	private File csvFile = new File("TestData/LasDataSmall.csv");
+	private File landingDirectory;
+	private File outputDirectory;
+	private DirectoryWatcher watcher;
+	private BlockingQueue<ConversionReport.Conversion> handled = new LinkedBlockingQueue<ConversionReport.Conversion>();
+
+	@Before
+	public void testBefore() throws IOException {
+		landingDirectory = Files.createTempDirectory("landing").toFile();
+		outputDirectory = Files.createTempDirectory("output").toFile();
+		FileController settings = new FileController(false);
+		settings.setFirstLineUsedAsColumnHeader(true);
+		watcher = new DirectoryWatcher(settings, landingDirectory, outputDirectory);
+		watcher.setOutputTypes(OutputType.XML);
+		watcher.setQuietMillis(200);
+		watcher.addListener(new DirectoryWatcher.Listener() {
+			@Override
+			public void fileHandled(ConversionReport.Conversion conversion) {
+				handled.add(conversion);
+			}
+		});
+	}
+
+	@After
+	public void testAfter() throws IOException {
+		watcher.close();
+	}
+
+	/**
+	 * Test that files already in the landing directory and files dropped in later are converted and moved
+	 */
+	@Test
+	public void testConvert() throws Exception {
+		Files.copy(csvFile.toPath(), new File(landingDirectory, "before.csv").toPath());
+		watcher.start();
+		assertTrue(next().isSuccessful());
+
+		Files.copy(csvFile.toPath(), new File(landingDirectory, "after.csv").toPath());
+		Files.write(new File(landingDirectory, "ignored.txt").toPath(), "a,b".getBytes());
+		assertTrue(next().isSuccessful());
+
+		assertEquals(2, watcher.getConvertedCount());
+		assertTrue(new File(outputDirectory, "before.xml").isFile());
+		assertTrue(new File(outputDirectory, "after.xml").isFile());
+		assertTrue(new File(watcher.getDoneDirectory(), "before.csv").isFile());
+		assertTrue(new File(watcher.getDoneDirectory(), "after.csv").isFile());
+		assertTrue(new File(landingDirectory, "ignored.txt").isFile());
+		assertFalse(new File(landingDirectory, "before.csv").exists());
+	}
+
+	/**
+	 * Test that a file still being written is not taken until it has been quiet
+	 */
+	@Test
+	public void testPartialWrite() throws Exception {
+		watcher.setQuietMillis(1000);
+		watcher.start();
+		byte[] content = Files.readAllBytes(csvFile.toPath());
+		File landed = new File(landingDirectory, "partial.csv");
+		OutputStream out = Files.newOutputStream(landed.toPath());
+		try {
+			int half = content.length / 2;
+			out.write(content, 0, half);
+			out.flush();
+			for (int i = 0; i < 5; i++) {
+				Thread.sleep(100);
+				out.write(content, half + i, 1);
+				out.flush();
+			}
+			assertNull(handled.poll(100, TimeUnit.MILLISECONDS));
+			out.write(content, half + 5, content.length - half - 5);
+		} finally {
+			out.close();
+		}
+		assertTrue(next().isSuccessful());
+
+		FileController fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+		// the table is named after the file, so the expected output is converted from a file of the same name
+		File copy = new File(Files.createTempDirectory("expected").toFile(), "partial.csv");
+		Files.copy(csvFile.toPath(), copy.toPath());
+		File expected = new File(outputDirectory, "expected.xml");
+		fc.csvToXML(copy, expected);
+		assertArrayEquals(Files.readAllBytes(expected.toPath()),
+				Files.readAllBytes(new File(outputDirectory, "partial.xml").toPath()));
+	}
+
+	/**
+	 * Test that a file that cannot be converted is moved to the failed directory
+	 */
+	@Test
+	public void testFailed() throws Exception {
+		watcher.setOutputTypes(OutputType.SERIALIZED);
+		watcher.start();
+		new File(outputDirectory, "locked.ser").mkdir();
+		Files.copy(csvFile.toPath(), new File(landingDirectory, "locked.csv").toPath());
+
+		assertFalse(next().isSuccessful());
+		assertEquals(1, watcher.getFailedCount());
+		assertTrue(new File(watcher.getFailedDirectory(), "locked.csv").isFile());
+	}
+
+	private ConversionReport.Conversion next() throws InterruptedException {
+		ConversionReport.Conversion conversion = handled.poll(10, TimeUnit.SECONDS);
+		assertNotNull("no file was handled", conversion);
+		return conversion;
+	}
+}
@@ -3,8 +3,11 @@ package com.jeremy.junit;
 import com.jeremy.Encrypted;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.file.Files;
 import java.util.Scanner;
 
 import org.junit.After;
@@ -46,4 +49,17 @@ public class EncryptedTest {
 		Encrypted<String> enc = new Encrypted<String>(content, password);
 		String result = enc.decrypt("incorrect password");
 	}
+	
+	@Test
+	public void testEncryptStream() throws Exception{
+		String password = "testPass";
+		String content = new String(Files.readAllBytes(new File("TestData/LasData.csv").toPath()));
+		
+		//encrypt csv straight to a stream
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Encrypted.encrypt(content, password, out);
+		String result = Encrypted.decrypt(new ByteArrayInputStream(out.toByteArray()), password);
+		
+		assertEquals("Ouput string does not match input", content, result);
+	}
 }
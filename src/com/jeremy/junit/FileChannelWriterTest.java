@@ -0,0 +1,125 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.FileChannelWriter;
+import com.jeremy.FileChannelWriter.SyncPolicy;
+
+/**
+ * A JUnit test class for the FileChannelWriter class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class FileChannelWriterTest {
+	private File directory;
+	private String content;
+
+	@Before
+	public void testBefore() throws IOException {
+		directory = Files.createTempDirectory("writer").toFile();
+
+		// several buffers of text with characters of every UTF-8 length, some split across buffers
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; builder.length() < 3 * FileChannelWriter.BUFFER_SIZE; i++) {
+			builder.append(i).append(",caf\u00e9,\u20ac,\ud83d\ude00\n");
+		}
+		content = builder.toString();
+	}
+
+	/**
+	 * Test that text written a piece at a time is encoded as UTF-8, with and without write-behind
+	 */
+	@Test
+	public void testWrite() throws IOException {
+		for (boolean writeBehind : new boolean[] {false, true}) {
+			File file = new File(directory, "output" + writeBehind + ".txt");
+			FileChannelWriter writer = new FileChannelWriter(file, false, SyncPolicy.EVERY_BUFFER, writeBehind);
+			try {
+				for (int i = 0; i < content.length(); i += 1000) {
+					writer.write(content, i, Math.min(1000, content.length() - i));
+				}
+			} finally {
+				writer.close();
+			}
+			assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+		}
+	}
+
+	/**
+	 * Test that an atomic writer only replaces the output once closed and leaves no temporary files
+	 */
+	@Test
+	public void testAtomic() throws IOException {
+		File file = new File(directory, "output.txt");
+		Files.write(file.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+		FileChannelWriter writer = new FileChannelWriter(file, true, SyncPolicy.ON_CLOSE, true);
+		writer.write(content);
+		writer.flush();
+		assertEquals("old", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		writer.close();
+
+		assertEquals(content, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		assertEquals(1, directory.list().length);
+	}
+
+	/**
+	 * Test that an atomic writer keeps the output's permissions, gives a new output the permissions of any
+	 * other new file, and replaces the file a symbolic link points to rather than the link
+	 */
+	@Test
+	public void testAtomicAttributes() throws IOException {
+		Assume.assumeNotNull(Files.getFileAttributeView(directory.toPath(), PosixFileAttributeView.class));
+
+		Path existing = new File(directory, "existing.txt").toPath();
+		Files.write(existing, "old".getBytes(StandardCharsets.UTF_8));
+		Files.setPosixFilePermissions(existing, PosixFilePermissions.fromString("rw-r-----"));
+		FileChannelWriter writer = new FileChannelWriter(existing.toFile(), true, SyncPolicy.NEVER, false);
+		writer.write(content);
+		writer.close();
+		assertEquals("rw-r-----", PosixFilePermissions.toString(Files.getPosixFilePermissions(existing)));
+
+		Path created = Files.createFile(new File(directory, "created.txt").toPath());
+		File output = new File(directory, "new.txt");
+		writer = new FileChannelWriter(output, true, SyncPolicy.NEVER, false);
+		writer.close();
+		assertEquals(Files.getPosixFilePermissions(created), Files.getPosixFilePermissions(output.toPath()));
+
+		Path link = Files.createSymbolicLink(new File(directory, "link.txt").toPath(), existing.getFileName());
+		writer = new FileChannelWriter(link.toFile(), true, SyncPolicy.NEVER, false);
+		writer.write("linked");
+		writer.close();
+		assertTrue(Files.isSymbolicLink(link));
+		assertEquals("linked", new String(Files.readAllBytes(existing), StandardCharsets.UTF_8));
+		assertEquals(4, directory.list().length);
+	}
+
+	/**
+	 * Test that an aborted atomic writer leaves the output as it was
+	 */
+	@Test
+	public void testAbort() throws IOException {
+		File file = new File(directory, "output.txt");
+		Files.write(file.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+		FileChannelWriter writer = new FileChannelWriter(file, true, SyncPolicy.NEVER, false);
+		writer.write(content);
+		writer.abort();
+		writer.close();
+
+		assertEquals("old", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		assertEquals(1, directory.list().length);
+	}
+}
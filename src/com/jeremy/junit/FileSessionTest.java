@@ -0,0 +1,101 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.FileController;
+import com.jeremy.FileController.OutputType;
+import com.jeremy.FileSession;
+import com.jeremy.TableCache;
+import com.jeremy.TableSnapshot;
+
+/**
+ * A JUnit test class for the FileSession and TableSnapshot classes
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class FileSessionTest {
+	private File csvFile = new File("TestData/LasDataSmall.csv");
+	private FileController settings;
+
+	@Before
+	public void testBefore() {
+		settings = new FileController(false);
+		settings.setFirstLineUsedAsColumnHeader(true);
+		settings.setTableCache(new TableCache(TableCache.DEFAULT_MAX_BYTES));
+	}
+
+	/**
+	 * Test that edits made in one session are not seen by another reading the same cached table
+	 */
+	@Test
+	public void testCopyOnWrite() throws IOException {
+		FileSession first = settings.openSession();
+		FileSession second = settings.openSession();
+		TableSnapshot original = first.readFile(csvFile);
+		second.readFile(csvFile);
+		assertEquals(1, settings.getTableCache().getHits());
+
+		int fields = original.getFields();
+		first.setColumnClass(0, Object.class);
+		first.setColumnHeader(1, "renamed");
+		first.removeColumn(2);
+
+		assertEquals(fields - 1, first.getSnapshot().getFields());
+		assertEquals(Object.class, first.getSnapshot().getColumnClass(0));
+		assertEquals("renamed", first.getSnapshot().getColumnHeader(1));
+		assertEquals(original.getValue(0, 3), first.getSnapshot().getValue(0, 2));
+
+		assertEquals(fields, second.getSnapshot().getFields());
+		assertEquals(original.getColumnClass(0), second.getSnapshot().getColumnClass(0));
+		assertEquals(original.getColumnHeader(1), second.getSnapshot().getColumnHeader(1));
+	}
+
+	/**
+	 * Test that many threads converting one snapshot all write the same output
+	 */
+	@Test
+	public void testConcurrentOutput() throws Exception {
+		final File directory = Files.createTempDirectory("sessions").toFile();
+		final TableSnapshot snapshot = settings.openSession().readFile(csvFile);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<File>> futures = new ArrayList<Future<File>>();
+			for (int i = 0; i < 8; i++) {
+				final File output = new File(directory, i + ".xml");
+				futures.add(executor.submit(new Callable<File>() {
+					@Override
+					public File call() throws IOException {
+						FileSession session = settings.openSession();
+						session.setSnapshot(snapshot);
+						session.outputData(output, OutputType.XML);
+						return output;
+					}
+				}));
+			}
+
+			FileController fc = new FileController(false);
+			fc.setFirstLineUsedAsColumnHeader(true);
+			fc.readFile(csvFile);
+			File expected = new File(directory, "expected.xml");
+			fc.outputData(expected, OutputType.XML);
+			for (Future<File> future : futures) {
+				assertArrayEquals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(future.get().toPath()));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.LoadListener;
+import com.jeremy.LoadMetrics;
+import com.jeremy.SQLHandler;
+import com.jeremy.SQLHandler.SQLType;
+import com.jeremy.TableData;
+
+/**
+ * A JUnit test class for the LoadMetrics class. Uses a stub JDBC driver so no database server is needed.
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class LoadMetricsTest {
+	private StubDriver driver;
+	private SQLHandler handler;
+
+	@Before
+	public void testBefore() throws SQLException {
+		driver = StubDriver.install();
+		Object[][] data = {{"1", "one"}, {"2", "two"}, {"3", "three"}, {"4", "four"}, {"5", "five"}, {"6", "six"}};
+		handler = new SQLHandler(new TableData(data, new Class<?>[] {Integer.class, String.class}, "metrics",
+				new String[] {"id", "name"}, 6, 2, new int[] {1, 5}, new int[] {0, 0}));
+		handler.setBatchSize(2);
+	}
+
+	@After
+	public void testAfter() throws SQLException {
+		driver.uninstall();
+	}
+
+	/**
+	 * Test that each batch is counted into the bucket whose bound is the first not below its latency
+	 */
+	@Test
+	public void testHistogram() throws SQLException {
+		driver.setBatchDelayMillis(120);
+		handler.insertDatabase("", "db", SQLType.MYSQL, "user", "", false, 0);
+
+		LoadMetrics metrics = handler.getLoadMetrics();
+		assertEquals(6, metrics.getRowsLoaded());
+		assertEquals(3, metrics.getBatchCount());
+		assertTrue(metrics.isFinished());
+
+		// 120ms is over the 100ms bound, and well under the 200ms one
+		long[] bounds = metrics.getBatchLatencyBoundsMillis();
+		long[] histogram = metrics.getBatchLatencyHistogram();
+		assertEquals(bounds.length + 1, histogram.length);
+		for (int i = 0; i < histogram.length; i++) {
+			assertEquals("bucket " + i, i < bounds.length && bounds[i] == 200 ? 3 : 0, histogram[i]);
+		}
+		assertTrue(metrics.getBatchLatencyMaxMillis() >= 120);
+	}
+
+	/**
+	 * Test that the metrics are registered with JMX while the load runs and unregistered once it finishes
+	 */
+	@Test
+	public void testJmx() throws Exception {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName("com.jeremy:type=LoadMetrics,table=\"metrics\"");
+		final boolean[] registered = new boolean[1];
+		handler.setJmxEnabled(true);
+		handler.addLoadListener(new LoadListener() {
+			@Override
+			public void loadStarted(LoadMetrics metrics) {
+				registered[0] = server.isRegistered(name);
+			}
+
+			@Override
+			public void batchExecuted(LoadMetrics metrics, int rows, double millis) {
+			}
+
+			@Override
+			public void loadFinished(LoadMetrics metrics) {
+			}
+		});
+		handler.insertDatabase("", "db", SQLType.MYSQL, "user", "", false, 0);
+
+		assertTrue(registered[0]);
+		assertFalse(server.isRegistered(name));
+	}
+}
@@ -0,0 +1,132 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.LoadReport;
+import com.jeremy.SQLHandler;
+import com.jeremy.SQLHandler.SQLType;
+import com.jeremy.TableData;
+
+/**
+ * A JUnit test class for the LoadReport class and the partitioned loads that fill it. Uses a stub JDBC
+ * driver so no database server is needed.
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class LoadReportTest {
+	private StubDriver driver;
+	private SQLHandler handler;
+
+	@Before
+	public void testBefore() throws SQLException {
+		driver = StubDriver.install();
+		Object[][] data = {{"1", "one"}, {"2", "two"}, {"3", "three"}, {"4", "four"}, {"5", "five"}, {"6", "six"}};
+		handler = new SQLHandler(new TableData(data, new Class<?>[] {Integer.class, String.class}, "report",
+				new String[] {"id", "name"}, 6, 2, new int[] {1, 5}, new int[] {0, 0}));
+	}
+
+	@After
+	public void testAfter() throws SQLException {
+		driver.uninstall();
+	}
+
+	/**
+	 * Test that a load split three ways reports each range and the rows they loaded between them
+	 */
+	@Test
+	public void testPartitions() throws SQLException {
+		LoadReport report = handler.insertDatabaseParallel("", "db", SQLType.MYSQL, "user", "", false, 0, 3, false);
+
+		assertTrue(report.isSuccessful());
+		assertTrue(report.isCommitted());
+		assertNull(report.getFirstError());
+		assertEquals(6, report.getRowsLoaded());
+		List<LoadReport.Partition> partitions = report.getPartitions();
+		assertEquals(3, partitions.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i * 2, partitions.get(i).getFirstRow());
+			assertEquals(i * 2 + 2, partitions.get(i).getLastRow());
+			assertEquals(2, partitions.get(i).getRowsLoaded());
+		}
+	}
+
+	/**
+	 * Test that only the ranges that loaded count towards the rows loaded, and that the failed range's error
+	 * is reported
+	 */
+	@Test
+	public void testPartialFailure() throws SQLException {
+		driver.setBatchFailure(new IllegalStateException("broken driver"), 2);
+		LoadReport report = handler.insertDatabaseParallel("", "db", SQLType.MYSQL, "user", "", false, 0, 3, false);
+
+		assertFalse(report.isSuccessful());
+		assertEquals(4, report.getRowsLoaded());
+		int failed = 0;
+		for (LoadReport.Partition partition : report.getPartitions()) {
+			if (!partition.isSuccessful()) {
+				failed++;
+				assertEquals(0, partition.getRowsLoaded());
+				assertSame(partition.getError(), report.getFirstError());
+			}
+		}
+		assertEquals(1, failed);
+		assertTrue(report.getFirstError().getCause() instanceof IllegalStateException);
+	}
+
+	/**
+	 * Test that an all or nothing load copies its staging table across, and that each load stages its rows
+	 * in a table of its own
+	 */
+	@Test
+	public void testAllOrNothing() throws SQLException {
+		LoadReport report = handler.insertDatabaseParallel("", "db", SQLType.POSTGRESQL, "user", "", false, 0, 2, true);
+		assertTrue(report.isCommitted());
+		assertEquals(6, report.getRowsLoaded());
+		String first = getStagingTables().get(0);
+		assertTrue(driver.getStatements().contains("INSERT INTO report(id, name) SELECT id, name FROM " + first));
+		assertTrue(driver.getStatements().contains("DROP TABLE " + first));
+
+		handler.insertDatabaseParallel("", "db", SQLType.POSTGRESQL, "user", "", false, 0, 2, true);
+		List<String> staging = getStagingTables();
+		assertEquals(2, staging.size());
+		assertFalse(staging.get(0).equals(staging.get(1)));
+	}
+
+	/**
+	 * Test that a failed all or nothing load throws the error and still drops its staging table
+	 */
+	@Test
+	public void testAllOrNothingFailure() {
+		driver.setBatchFailure(new IllegalStateException("broken driver"), 1);
+		try {
+			handler.insertDatabaseParallel("", "db", SQLType.POSTGRESQL, "user", "", false, 0, 2, true);
+			fail("the load did not fail");
+		} catch (SQLException se) {
+			assertTrue(se.getCause() instanceof IllegalStateException);
+		}
+		List<String> statements = driver.getStatements();
+		assertTrue(statements.contains("DROP TABLE " + getStagingTables().get(0)));
+		for (String statement : statements) {
+			assertFalse(statement.startsWith("INSERT INTO report("));
+		}
+	}
+
+	// the staging tables created, in the order they were created
+	private List<String> getStagingTables() {
+		List<String> staging = new ArrayList<String>();
+		for (String statement : driver.getStatements()) {
+			if (statement.startsWith("CREATE UNLOGGED TABLE ")) {
+				staging.add(statement.split(" ")[3]);
+			}
+		}
+		return staging;
+	}
+}
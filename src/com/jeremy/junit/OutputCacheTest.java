@@ -0,0 +1,119 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.FileController;
+import com.jeremy.FileUtility;
+import com.jeremy.OutputCache;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * A JUnit test class for the OutputCache class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class OutputCacheTest {
+	private File csvFile = new File("TestData/LasDataSmall.csv");
+	private File cacheDirectory;
+	private File outputDirectory;
+	private FileController fc;
+
+	@Before
+	public void testBefore() throws IOException {
+		cacheDirectory = Files.createTempDirectory("cache").toFile();
+		outputDirectory = Files.createTempDirectory("output").toFile();
+		fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+	}
+
+	/**
+	 * Test that the same conversion is served from the cache and a different one is not
+	 */
+	@Test
+	public void testFetch() throws IOException {
+		OutputCache cache = new OutputCache(cacheDirectory, Long.MAX_VALUE);
+		fc.setOutputCache(cache);
+		File first = new File(outputDirectory, "first.xml");
+		File second = new File(outputDirectory, "second.xml");
+
+		fc.csvToXML(csvFile, first);
+		fc.csvToXML(csvFile, second);
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+
+		fc.csvToSQLFile(csvFile, new File(outputDirectory, "first.sql"), "db", SQLType.MYSQL, true, -1);
+		fc.csvToSQLFile(csvFile, new File(outputDirectory, "second.sql"), "db", SQLType.POSTGRESQL, true, -1);
+		assertEquals(3, cache.getMisses());
+	}
+
+	/**
+	 * Test that a stored output that has been changed is converted again
+	 */
+	@Test
+	public void testCorrupt() throws IOException {
+		OutputCache cache = new OutputCache(cacheDirectory, Long.MAX_VALUE);
+		fc.setOutputCache(cache);
+		File output = new File(outputDirectory, "output.xsd");
+		fc.csvToXMLSCHEMA(csvFile, output);
+		byte[] expected = Files.readAllBytes(output.toPath());
+
+		for (File stored : cacheDirectory.listFiles()) {
+			if (stored.getName().endsWith(".out")) {
+				Files.write(stored.toPath(), "corrupt".getBytes());
+			}
+		}
+		fc.csvToXMLSCHEMA(csvFile, output);
+
+		assertEquals(1, cache.getCorruptCount());
+		assertEquals(0, cache.getHits());
+		assertArrayEquals(expected, Files.readAllBytes(output.toPath()));
+	}
+
+	/**
+	 * Test that converting to an output that was served as a link does not change the stored output
+	 */
+	@Test
+	public void testLinkedOutputRewritten() throws IOException {
+		OutputCache cache = new OutputCache(cacheDirectory, Long.MAX_VALUE);
+		cache.setLinkOutputs(true);
+		fc.setOutputCache(cache);
+		File output = new File(outputDirectory, "output");
+		boolean atomicWrites = FileUtility.isAtomicWrites();
+		FileUtility.setAtomicWrites(false);
+		try {
+			fc.csvToXML(csvFile, output);
+			byte[] expected = Files.readAllBytes(output.toPath());
+			fc.csvToXML(csvFile, output);
+			fc.csvToJSON(csvFile, output);
+
+			File second = new File(outputDirectory, "second.xml");
+			fc.csvToXML(csvFile, second);
+			assertEquals(0, cache.getCorruptCount());
+			assertEquals(2, cache.getHits());
+			assertArrayEquals(expected, Files.readAllBytes(second.toPath()));
+		} finally {
+			FileUtility.setAtomicWrites(atomicWrites);
+		}
+	}
+
+	/**
+	 * Test that outputs over the budget are deleted
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		OutputCache cache = new OutputCache(cacheDirectory, 1);
+		fc.setOutputCache(cache);
+		fc.csvToXML(csvFile, new File(outputDirectory, "output.xml"));
+
+		assertEquals(1, cache.getEvictions());
+		assertEquals(0, cacheDirectory.listFiles().length);
+	}
+}
@@ -0,0 +1,150 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.SQLDumpReader;
+import com.jeremy.SQLHandler;
+import com.jeremy.TableData;
+import com.jeremy.TableDataCursor;
+import com.jeremy.SQLHandler.InsertMode;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * A JUnit test class for the SQLDumpReader class, reading back the scripts SQLHandler writes
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class SQLDumpReaderTest {
+	private SQLHandler sql;
+
+	@Before
+	public void testBefore() {
+		Object[][] data = {
+				{"1", "it's", "1.25"},
+				{"2", "", "-10.5"},
+				{"3", "tab\tand\\slash", "3.0"}
+				};
+		Class<?>[] classes = {Integer.class, String.class, Double.class};
+		String[] headers = {"id", "name", "amount"};
+
+		TableData tblData = new TableData(data, classes, "dump", headers, data.length, headers.length);
+		tblData.setFieldLength(new int[] {1, 13, 4});
+		tblData.setFieldPrecision(new int[] {0, 0, 2});
+		sql = new SQLHandler(tblData);
+	}
+
+	private TableData readBack(String script) throws IOException {
+		return TableDataCursor.readAll(new SQLDumpReader(new StringReader(script), null));
+	}
+
+	private void assertRows(TableData copy) {
+		assertEquals("dump", copy.getTableName());
+		assertEquals(3, copy.getLines());
+		assertArrayEquals(new String[] {"id", "name", "amount"}, copy.getColumnHeader());
+		assertArrayEquals(new Object[] {"1", "it's", "1.25"}, copy.getTableData()[0]);
+		assertArrayEquals(new Object[] {"2", "", "-10.5"}, copy.getTableData()[1]);
+		assertArrayEquals(new Object[] {"3", "tab\tand\\slash", "3.0"}, copy.getTableData()[2]);
+	}
+
+	/**
+	 * Test that single-row inserts read back with the classes of the CREATE TABLE
+	 */
+	@Test
+	public void testReadBatch() throws IOException {
+		TableData copy = readBack(sql.createSQLFile("db", SQLType.MYSQL, false, 0));
+
+		assertRows(copy);
+		assertArrayEquals(new Class<?>[] {Integer.class, String.class, Double.class}, copy.getColumnClasses());
+	}
+
+	/**
+	 * Test that multi-row VALUES lists read back row by row
+	 */
+	@Test
+	public void testReadMultiRow() throws IOException {
+		sql.setInsertMode(InsertMode.MULTI_ROW);
+
+		assertRows(readBack(sql.createSQLFile("db", SQLType.SQLSERVER, false, 0)));
+	}
+
+	/**
+	 * Test that COPY blocks are decoded
+	 */
+	@Test
+	public void testReadCopy() throws IOException {
+		sql.setInsertMode(InsertMode.BULK);
+
+		assertRows(readBack(sql.createSQLFile("db", SQLType.POSTGRESQL, false, 0)));
+	}
+
+	/**
+	 * Test that comments and other tables are skipped and column lists are matched by name
+	 */
+	@Test
+	public void testReadTable() throws IOException {
+		String script = "-- a dump\n"
+				+ "CREATE TABLE other(a INT);\n"
+				+ "INSERT INTO other VALUES (1);\n"
+				+ "/* the table */ CREATE TABLE IF NOT EXISTS `orders` (\n"
+				+ "  `id` BIGINT NOT NULL AUTO_INCREMENT,\n"
+				+ "  `placed` DATETIME DEFAULT NULL,\n"
+				+ "  `total` DECIMAL(10,2) DEFAULT '0.00',\n"
+				+ "  PRIMARY KEY (`id`)\n"
+				+ ");\n"
+				+ "INSERT INTO `orders` (`id`, `placed`, `total`) VALUES (1,'2014-01-02',NULL),(2,NULL,'5.50');\n"
+				+ "INSERT INTO `orders` (`total`, `id`) VALUES ('7.25', 3);\n";
+		SQLDumpReader dump = new SQLDumpReader(new StringReader(script), "orders");
+		try {
+			assertArrayEquals(new Class<?>[] {Long.class, Date.class, Double.class}, dump.getColumnClasses());
+			assertEquals(10, dump.getFieldLength()[2]);
+			assertEquals(2, dump.getFieldPrecision()[2]);
+
+			assertArrayEquals(new Object[] {"1", "2014-01-02", null}, dump.next());
+			assertArrayEquals(new Object[] {"2", null, "5.50"}, dump.next());
+			assertArrayEquals(new Object[] {"3", null, "7.25"}, dump.next());
+			assertNull(dump.next());
+		} finally {
+			dump.close();
+		}
+	}
+
+	/**
+	 * Test that the backslash escapes of a MySQL dump are read, and those of E'...' strings in any dump
+	 */
+	@Test
+	public void testReadBackslashEscapes() throws IOException {
+		String script = "/*!40101 SET NAMES utf8 */;\n"
+				+ "CREATE TABLE `paths` (`id` INT, `path` VARCHAR(20));\n"
+				+ "INSERT INTO `other` VALUES ('it\\';s');\n"
+				+ "INSERT INTO `paths` VALUES (1,'it\\'s'),(2,'C:\\\\dir'),(3,'two\\nlines'),(4,'it''s'),(5,'100\\%');\n";
+		SQLDumpReader dump = new SQLDumpReader(new StringReader(script), "paths");
+		try {
+			assertArrayEquals(new Object[] {"1", "it's"}, dump.next());
+			assertArrayEquals(new Object[] {"2", "C:\\dir"}, dump.next());
+			assertArrayEquals(new Object[] {"3", "two\nlines"}, dump.next());
+			assertArrayEquals(new Object[] {"4", "it's"}, dump.next());
+			assertArrayEquals(new Object[] {"5", "100\\%"}, dump.next());
+			assertNull(dump.next());
+		} finally {
+			dump.close();
+		}
+
+		script = "CREATE TABLE paths (id INT, path VARCHAR(20));\n"
+				+ "INSERT INTO paths VALUES (1, 'C:\\dir'), (2, E'it\\'s');\n";
+		dump = new SQLDumpReader(new StringReader(script), "paths");
+		try {
+			assertArrayEquals(new Object[] {"1", "C:\\dir"}, dump.next());
+			assertArrayEquals(new Object[] {"2", "it's"}, dump.next());
+			assertNull(dump.next());
+		} finally {
+			dump.close();
+		}
+	}
+}
@@ -1,11 +1,37 @@
 package com.jeremy.junit;
 
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import com.jeremy.CSVCursor;
 import com.jeremy.CSVHandler;
+import com.jeremy.ConnectionPool;
+import com.jeremy.LoadReport;
 import com.jeremy.SQLHandler;
 import com.jeremy.TableData;
+import com.jeremy.SQLHandler.InsertMode;
 import com.jeremy.SQLHandler.SQLType;
 
 /**
@@ -40,4 +66,302 @@ public class SQLHandlerTest {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Test that multi-row inserts stay under each database's parameter limit
+	 */
+	@Test
+	public void testRowsPerInsert(){
+		//SQL Server allows 2100 parameters, 5 columns gives 419 rows
+		assertEquals(419, SQLType.SQLSERVER.getRowsPerInsert(5));
+		assertTrue(SQLType.SQLSERVER.getRowsPerInsert(5) * 5 < 2100);
+		
+		//capped by the rows a VALUES list may hold
+		assertEquals(1000, SQLType.MYSQL.getRowsPerInsert(5));
+		
+		//always at least one row
+		assertEquals(1, SQLType.SQLSERVER.getRowsPerInsert(5000));
+	}
+
+	/**
+	 * Test that multi-row scripts group rows into one INSERT and escape quotes
+	 */
+	@Test
+	public void testMultiRowScript(){
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		handler.setInsertMode(InsertMode.MULTI_ROW);
+		String script = handler.createSQLFile("db", SQLType.MYSQL, false, 0);
+		
+		assertTrue(script.endsWith("INSERT INTO small(id, name) values\n('1', 'it''s'),\n('2', 'two');\n"));
+	}
+	
+	/**
+	 * Test that PostgreSQL bulk scripts write a COPY data block
+	 */
+	@Test
+	public void testCopyScript(){
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		handler.setInsertMode(InsertMode.BULK);
+		String script = handler.createSQLFile("db", SQLType.POSTGRESQL, false, 0);
+		
+		assertTrue(script.endsWith("COPY small(id, name) FROM stdin;\n1\tit's\n2\ttwo\n\\.\n"));
+	}
+	
+	/**
+	 * Test that COPY and LOAD DATA escape backslashes, tabs and line breaks and send nulls as \N, both in
+	 * scripts and when loading a database directly
+	 */
+	@Test
+	public void testBulkEscaping() throws Exception{
+		Object[][] data = {{"1", "a\\b"}, {"2", "tab\there"}, {"3", "line\nbreak\r"}, {"4", null}, {"5", "caf\u00e9"}};
+		TableData table = new TableData(data, new Class<?>[] {Integer.class, String.class}, "small",
+				new String[] {"id", "name"}, 5, 2, new int[] {1, 11}, new int[] {0, 0});
+		String encoded = "1\ta\\\\b\n2\ttab\\there\n3\tline\\nbreak\\r\n4\t\\N\n5\tcaf\u00e9\n";
+		
+		SQLHandler handler = new SQLHandler(table);
+		handler.setInsertMode(InsertMode.BULK);
+		assertTrue(handler.createSQLFile("db", SQLType.POSTGRESQL, false, 0).endsWith(encoded + "\\.\n"));
+		
+		for (SQLType sqlType : new SQLType[] {SQLType.POSTGRESQL, SQLType.MYSQL}) {
+			StubDriver driver = StubDriver.install();
+			try {
+				new SQLHandler(table).upsertDatabase("", "db", sqlType, "user", "", 0);
+				assertEquals(encoded, driver.getBulkLoaded());
+			} finally {
+				driver.uninstall();
+			}
+		}
+	}
+	
+	/**
+	 * Test that splitting the script puts the schema in its own script and each row in one transaction wrapped data script
+	 */
+	@Test
+	public void testSplitScript() throws IOException{
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		StringWriter schema = new StringWriter();
+		StringWriter first = new StringWriter();
+		StringWriter second = new StringWriter();
+		handler.writeSQLFiles(schema, new Writer[] {first, second}, "db", SQLType.POSTGRESQL, false, 0, -1);
+		
+		assertTrue(schema.toString().startsWith("CREATE DATABASE db;"));
+		assertFalse(schema.toString().contains("INSERT"));
+		assertEquals("BEGIN;\nINSERT INTO small(id, name) values ('1', 'it''s');\nCOMMIT;\n", first.toString());
+		assertEquals("BEGIN;\nINSERT INTO small(id, name) values ('2', 'two');\nCOMMIT;\n", second.toString());
+	}
+	
+	/**
+	 * Test that rows with a null partition value are written as NULL to one of the data scripts
+	 */
+	@Test
+	public void testSplitScriptNullPartition() throws IOException{
+		Object[][] data = {{"1", "one"}, {null, "none"}};
+		Class<?>[] classes = {Integer.class, String.class};
+		String[] headers = {"id", "name"};
+		TableData table = new TableData(data, classes, "small", headers, 2, 2, new int[] {1, 4}, new int[] {0, 0});
+		SQLHandler handler = new SQLHandler(table);
+		StringWriter schema = new StringWriter();
+		StringWriter first = new StringWriter();
+		StringWriter second = new StringWriter();
+		handler.writeSQLFiles(schema, new Writer[] {first, second}, "db", SQLType.POSTGRESQL, false, 0, 0);
+		
+		String scripts = first.toString() + second.toString();
+		assertTrue(scripts.contains("values ('1', 'one');"));
+		assertTrue(scripts.contains("values (NULL, 'none');"));
+	}
+	
+	/**
+	 * Test that splitting the script without any data writers is rejected
+	 */
+	@Test(expected = Error.class)
+	public void testSplitScriptNoWriters() throws IOException{
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		handler.writeSQLFiles(new StringWriter(), new Writer[0], "db", SQLType.POSTGRESQL, false, 0, -1);
+	}
+	
+	/**
+	 * Test that an index on a column the table does not have is rejected
+	 */
+	@Test(expected = Error.class)
+	public void testIndexColumnOutOfRange(){
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		handler.setIndexColumns(2);
+		handler.createSQLFile("db", SQLType.POSTGRESQL, true, -1);
+	}
+	
+	/**
+	 * Test that compact types are picked from the values in each column
+	 */
+	@Test
+	public void testCompactTypes(){
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		handler.setCompactTypes(true);
+		String script = handler.createSQLFile("db", SQLType.SQLSERVER, false, 0);
+		
+		assertTrue(script.contains("id TINYINT NOT NULL, \n"));
+		assertTrue(script.contains("name VARCHAR(4) NOT NULL, \n"));
+		
+		//decimals keep their exact type and a column with no values keeps its class's type
+		Object[][] data = {{"1", "", "1.5"}, {"2", "", "22.25"}};
+		TableData table = new TableData(data, new Class<?>[] {Integer.class, Long.class, Double.class}, "prices",
+				new String[] {"id", "empty", "price"}, 2, 3, new int[] {1, 0, 5}, new int[] {0, 0, 2});
+		handler = new SQLHandler(table);
+		handler.setCompactTypes(true);
+		script = handler.createSQLFile("db", SQLType.MYSQL, false, 0);
+		
+		assertTrue(script.contains("empty BIGINT"));
+		assertTrue(script.contains("price DECIMAL(5,2) NOT NULL, \n"));
+	}
+	
+	/**
+	 * Test that H2 scripts create the table in the database file they are run against
+	 */
+	@Test
+	public void testEmbeddedScript() throws IOException{
+		SQLHandler handler = new SQLHandler(getSmallTable());
+		StringWriter schema = new StringWriter();
+		StringWriter data = new StringWriter();
+		handler.writeSQLFiles(schema, new Writer[] {data}, "db", SQLType.H2, true, -1, -1);
+		
+		assertTrue(schema.toString().startsWith("CREATE TABLE small(\nid INT GENERATED BY DEFAULT AS IDENTITY,\n"));
+		assertTrue(data.toString().startsWith("SET AUTOCOMMIT FALSE;\n"));
+		assertTrue(data.toString().endsWith("COMMIT;\n"));
+	}
+	
+	/**
+	 * Test that rows inserted into an embedded H2 database and then upserted read back as merged
+	 */
+	@Test
+	public void testEmbeddedRoundTrip() throws Exception{
+		File directory = Files.createTempDirectory("h2").toFile();
+		String host = directory.getAbsolutePath();
+		try {
+			SQLHandler handler = new SQLHandler(getSmallTable());
+			handler.setInsertMode(InsertMode.BULK);
+			handler.insertDatabase(host, "db", SQLType.H2, "sa", "", false, 0);
+			
+			Object[][] changes = {{"2", "TWO"}, {"3", "six"}};
+			TableData small = getSmallTable();
+			new SQLHandler(new TableData(changes, small.getColumnClasses(), "small", small.getColumnHeader(), 2, 2,
+					small.getFieldLength(), small.getFieldPrecision())).upsertDatabase(host, "db", SQLType.H2, "sa", "", 0);
+			
+			List<String> rows = new ArrayList<String>();
+			Connection connection = DriverManager.getConnection("jdbc:h2:" + host + "/db", "sa", "");
+			try {
+				ResultSet resultSet = connection.createStatement().executeQuery("SELECT id, name FROM small ORDER BY id");
+				while (resultSet.next()) {
+					rows.add(resultSet.getInt(1) + "," + resultSet.getString(2));
+				}
+				//the staging table is dropped once merged
+				resultSet = connection.getMetaData().getTables(null, null, "SMALL_STAGING%", null);
+				assertFalse(resultSet.next());
+			} finally {
+				connection.close();
+			}
+			assertEquals(Arrays.asList("1,it's", "2,TWO", "3,six"), rows);
+		} finally {
+			//the pooled connections keep the database file open
+			ConnectionPool.getInstance().close();
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+	
+	/**
+	 * Test that a pipelined load binds the fields missing from short rows as null
+	 */
+	@Test(timeout = 10000)
+	public void testPipelinedShortRows() throws Exception{
+		StubDriver driver = StubDriver.install();
+		try {
+			SQLHandler handler = new SQLHandler(getSmallTable());
+			handler.setBatchSize(2);
+			LoadReport report = handler.insertDatabasePipelined("", "db", SQLType.MYSQL, "user", "", false, 0,
+					openRows("1,one\n2\n3,three\n4\n5,five\n"), 1);
+			
+			assertTrue(report.isSuccessful());
+			assertEquals(5, report.getRowsLoaded());
+			assertEquals(2, driver.getNullsBound());
+		} finally {
+			driver.uninstall();
+		}
+	}
+	
+	/**
+	 * Test that a pipelined load stops and reports the error when a writer fails with a runtime exception,
+	 * rather than leaving the reader waiting on a full queue
+	 */
+	@Test(timeout = 10000)
+	public void testPipelinedRuntimeFailure() throws Exception{
+		StubDriver driver = StubDriver.install();
+		try {
+			driver.setBatchFailure(new IllegalStateException("broken driver"));
+			StringBuilder rows = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				rows.append(i).append(",row\n");
+			}
+			SQLHandler handler = new SQLHandler(getSmallTable());
+			handler.setBatchSize(2);
+			LoadReport report = handler.insertDatabasePipelined("", "db", SQLType.MYSQL, "user", "", false, 0,
+					openRows(rows.toString()), 1);
+			
+			assertFalse(report.isSuccessful());
+			assertEquals(0, report.getRowsLoaded());
+			assertTrue(report.getFirstError().getCause() instanceof IllegalStateException);
+		} finally {
+			driver.uninstall();
+		}
+	}
+	
+	/**
+	 * Test that each database merges its own unique staging table into the table with its own upsert
+	 * statement, and drops the staging table afterwards
+	 */
+	@Test
+	public void testUpsertStatements() throws Exception{
+		Map<SQLType, String> upserts = new HashMap<SQLType, String>();
+		upserts.put(SQLType.SQLSERVER, "MERGE INTO small AS t USING %1$s AS s ON t.id = s.id"
+				+ " WHEN MATCHED AND EXISTS (SELECT s.name EXCEPT SELECT t.name) THEN UPDATE SET name = s.name"
+				+ " WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name);");
+		upserts.put(SQLType.MYSQL, "INSERT INTO small(id, name) SELECT id, name FROM %1$s"
+				+ " ON DUPLICATE KEY UPDATE name = VALUES(name)");
+		upserts.put(SQLType.POSTGRESQL, "INSERT INTO small(id, name) SELECT id, name FROM %1$s"
+				+ " ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name"
+				+ " WHERE (small.name) IS DISTINCT FROM (EXCLUDED.name)");
+		upserts.put(SQLType.H2, "MERGE INTO small(id, name) KEY (id) SELECT id, name FROM %1$s");
+		
+		Set<String> stagingNames = new HashSet<String>();
+		for (SQLType sqlType : upserts.keySet()) {
+			StubDriver driver = StubDriver.install();
+			try {
+				new SQLHandler(getSmallTable()).upsertDatabase("", "db", sqlType, "user", "", 0);
+				
+				List<String> statements = driver.getStatements();
+				Matcher matcher = Pattern.compile("small_staging_[0-9a-z]+").matcher(statements.get(0));
+				assertTrue(matcher.find());
+				String stagingName = matcher.group();
+				assertTrue(stagingNames.add(stagingName));
+				assertEquals(String.format(upserts.get(sqlType), stagingName), statements.get(statements.size() - 2));
+				assertEquals("DROP TABLE " + stagingName, statements.get(statements.size() - 1));
+			} finally {
+				driver.uninstall();
+			}
+		}
+	}
+	
+	private CSVCursor openRows(String rows) throws IOException{
+		TableData small = getSmallTable();
+		TableData schema = new TableData(new Object[0][], small.getColumnClasses(), small.getTableName(),
+				small.getColumnHeader(), 0, small.getFields(), small.getFieldLength(), small.getFieldPrecision());
+		return new CSVHandler().openCSV(new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8)), schema);
+	}
+	
+	private TableData getSmallTable(){
+		Object[][] data = {{"1", "it's"}, {"2", "two"}};
+		Class<?>[] classes = {Integer.class, String.class};
+		String[] headers = {"id", "name"};
+		return new TableData(data, classes, "small", headers, 2, 2, new int[] {1, 4}, new int[] {0, 0});
+	}
 }
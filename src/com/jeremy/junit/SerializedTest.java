@@ -2,7 +2,10 @@ package com.jeremy.junit;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.channels.Channels;
 
 import org.junit.After;
 import org.junit.Test;
@@ -142,6 +145,24 @@ public class SerializedTest {
 		assertEquals("Loaded object does not match saved", saved, loaded);
 	}
 	
+	/**
+	 * Test that objects can be saved to and loaded from streams without a file
+	 * @throws Exception 
+	 */
+	@Test
+	public void streamSerialize() throws Exception{
+		Serialized<String> serialized = new Serialized<String>();
+		String saved = "this is a test string";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		
+		//save and load
+		serialized.save(saved, out);
+		String loaded = serialized.load(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+		
+		//assert that both match
+		assertEquals("Loaded object does not match saved", saved, loaded);
+	}
+	
 	/**
 	 * An enum to test serialization
 	 */
@@ -0,0 +1,359 @@
+package com.jeremy.junit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.QueryExecutor;
+
+import com.jeremy.ConnectionPool;
+
+/**
+ * A JDBC driver that stands in for every database, so SQLHandler loads can be tested without a database
+ * server. While installed it is the only registered driver. Its connections record the SQL they run and the
+ * rows and nulls they are sent, and their batches can be made to fail. They also take PostgreSQL COPY and
+ * MySQL LOAD DATA bulk loads, recording the text sent.
+ * <br/>
+ * <b>USAGE:</b><br/>
+ * <pre>
+ * StubDriver driver = StubDriver.install();
+ * try {
+ * 	sqlHandler.insertDatabase("", "db", SQLType.MYSQL, "user", "", false, 0);
+ * 	assertEquals(2, driver.getRowsExecuted());
+ * } finally {
+ * 	driver.uninstall();
+ * }
+ * </pre>
+ *
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class StubDriver implements Driver {
+	private List<Driver> replaced = new ArrayList<Driver>();
+	private List<String> statements = Collections.synchronizedList(new ArrayList<String>());
+	private AtomicLong rowsExecuted = new AtomicLong();
+	private AtomicInteger nullsBound = new AtomicInteger();
+	private AtomicInteger commits = new AtomicInteger();
+	private AtomicInteger rollbacks = new AtomicInteger();
+	private ByteArrayOutputStream bulkLoaded = new ByteArrayOutputStream();
+	private volatile RuntimeException batchFailure = null;
+	private AtomicInteger batchesBeforeFailure = new AtomicInteger();
+	private volatile long batchDelayMillis = 0;
+
+	/**
+	 * Registers a new stub in place of the drivers already registered
+	 * @return the stub, which must be uninstalled once finished with
+	 */
+	public static StubDriver install() throws SQLException {
+		StubDriver stub = new StubDriver();
+		Enumeration<Driver> drivers = DriverManager.getDrivers();
+		while (drivers.hasMoreElements()) {
+			Driver driver = drivers.nextElement();
+			DriverManager.deregisterDriver(driver);
+			stub.replaced.add(driver);
+		}
+		DriverManager.registerDriver(stub);
+		return stub;
+	}
+
+	/**
+	 * Closes the pooled stub connections and puts back the drivers the stub replaced
+	 */
+	public void uninstall() throws SQLException {
+		ConnectionPool.getInstance().close();
+		DriverManager.deregisterDriver(this);
+		for (Driver driver : replaced) {
+			DriverManager.registerDriver(driver);
+		}
+	}
+
+	/**
+	 * @return every statement run, in the order they were run, a prepared statement once for each execute
+	 */
+	public List<String> getStatements() {
+		synchronized (statements) {
+			return new ArrayList<String>(statements);
+		}
+	}
+
+	/**
+	 * @return the rows sent by prepared statements that were executed
+	 */
+	public long getRowsExecuted() {
+		return rowsExecuted.get();
+	}
+
+	/**
+	 * @return the number of parameters bound as null
+	 */
+	public int getNullsBound() {
+		return nullsBound.get();
+	}
+
+	/**
+	 * @return the number of transactions committed
+	 */
+	public int getCommits() {
+		return commits.get();
+	}
+
+	/**
+	 * @return the number of transactions rolled back
+	 */
+	public int getRollbacks() {
+		return rollbacks.get();
+	}
+
+	/**
+	 * @return the text sent by every COPY and LOAD DATA run so far, decoded as UTF-8
+	 */
+	public String getBulkLoaded() {
+		synchronized (bulkLoaded) {
+			return new String(bulkLoaded.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @param batchFailure - Thrown by every prepared statement that is executed, or null to succeed
+	 */
+	public void setBatchFailure(RuntimeException batchFailure) {
+		setBatchFailure(batchFailure, 0);
+	}
+
+	/**
+	 * @param batchFailure - Thrown by every prepared statement executed after the first few, or null to succeed
+	 * @param batchesBeforeFailure - The number of executes that succeed before they start to fail
+	 */
+	public void setBatchFailure(RuntimeException batchFailure, int batchesBeforeFailure) {
+		this.batchesBeforeFailure.set(batchesBeforeFailure);
+		this.batchFailure = batchFailure;
+	}
+
+	/**
+	 * @param batchDelayMillis - How long every prepared statement takes to execute
+	 */
+	public void setBatchDelayMillis(long batchDelayMillis) {
+		this.batchDelayMillis = batchDelayMillis;
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		// a PostgreSQL connection as well, so the copy API can be unwrapped from it
+		return proxy(BaseConnection.class, new InvocationHandler() {
+			private boolean closed = false;
+			private boolean autoCommit = true;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+				String name = method.getName();
+				if (name.equals("unwrap")) {
+					return proxy;
+				} else if (name.equals("getCopyAPI")) {
+					return new CopyManager((BaseConnection) proxy);
+				} else if (name.equals("getQueryExecutor")) {
+					return getQueryExecutor();
+				} else if (name.equals("close")) {
+					closed = true;
+				} else if (name.equals("isClosed")) {
+					return closed;
+				} else if (name.equals("isValid")) {
+					return !closed;
+				} else if (name.equals("getAutoCommit")) {
+					return autoCommit;
+				} else if (name.equals("setAutoCommit")) {
+					autoCommit = (Boolean) args[0];
+				} else if (name.equals("commit")) {
+					commits.incrementAndGet();
+				} else if (name.equals("rollback") && args == null) {
+					rollbacks.incrementAndGet();
+				} else if (name.equals("createStatement")) {
+					return createStatement();
+				} else if (name.equals("prepareStatement")) {
+					return prepareStatement((String) args[0]);
+				} else if (name.equals("getMetaData")) {
+					return getMetaData();
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	// a MySQL statement as well, so LOAD DATA can be handed a stream
+	private Statement createStatement() {
+		return proxy(com.mysql.jdbc.Statement.class, new InvocationHandler() {
+			private InputStream localInfile = null;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws IOException {
+				String name = method.getName();
+				if (name.equals("unwrap")) {
+					return proxy;
+				} else if (name.equals("setLocalInfileInputStream")) {
+					localInfile = (InputStream) args[0];
+				} else if (name.equals("executeUpdate") || name.equals("execute")) {
+					statements.add((String) args[0]);
+					if (localInfile != null) {
+						byte[] buffer = new byte[8192];
+						int read;
+						while ((read = localInfile.read(buffer)) != -1) {
+							bulkLoaded(buffer, 0, read);
+						}
+						localInfile = null;
+					}
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	// starts COPY operations that record the text written to them
+	private QueryExecutor getQueryExecutor() {
+		return proxy(QueryExecutor.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("startCopy")) {
+					statements.add((String) args[0]);
+					return proxy(CopyIn.class, new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if (method.getName().equals("writeToCopy")) {
+								bulkLoaded((byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+							}
+							return defaultValue(method);
+						}
+					});
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	private void bulkLoaded(byte[] bytes, int off, int len) {
+		synchronized (bulkLoaded) {
+			bulkLoaded.write(bytes, off, len);
+		}
+	}
+
+	private PreparedStatement prepareStatement(final String sql) {
+		return proxy(PreparedStatement.class, new InvocationHandler() {
+			private int rows = 0;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+				String name = method.getName();
+				if (name.equals("setNull")) {
+					nullsBound.incrementAndGet();
+				} else if (name.equals("addBatch")) {
+					rows++;
+				} else if (name.equals("executeBatch") || name.equals("executeUpdate")) {
+					if (batchFailure != null && batchesBeforeFailure.getAndDecrement() <= 0) {
+						throw batchFailure;
+					}
+					Thread.sleep(batchDelayMillis);
+					int executed = name.equals("executeBatch") ? rows : 1;
+					statements.add(sql);
+					rowsExecuted.addAndGet(executed);
+					rows = 0;
+					return name.equals("executeBatch") ? new int[executed] : (Object) 1;
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	// every table asked about already exists
+	private DatabaseMetaData getMetaData() {
+		return proxy(DatabaseMetaData.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getTables")) {
+					return proxy(ResultSet.class, new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							if (method.getName().equals("next")) {
+								return true;
+							}
+							return defaultValue(method);
+						}
+					});
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(StubDriver.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	// what a method that does nothing returns
+	private static Object defaultValue(Method method) {
+		Class<?> type = method.getReturnType();
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url.startsWith("jdbc:");
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
@@ -0,0 +1,79 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.CSVHandler;
+import com.jeremy.TableCache;
+import com.jeremy.TableData;
+
+/**
+ * A JUnit test class for the TableCache class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class TableCacheTest {
+	private File csvFile = new File("TestData/LasDataSmall.csv");
+	private CSVHandler csvHandler;
+
+	@Before
+	public void testBefore() {
+		csvHandler = new CSVHandler();
+		csvHandler.setFirstLineUsedAsColumnHeader(true);
+	}
+
+	/**
+	 * Test that a file read twice with the same settings is only parsed once, and that each read gets its own copy
+	 */
+	@Test
+	public void testHit() throws IOException {
+		TableCache cache = new TableCache(TableCache.DEFAULT_MAX_BYTES);
+		TableData first = cache.readCSV(csvFile, csvHandler);
+		first.getTableData()[0][0] = "changed";
+		first.getColumnClasses()[0] = Object.class;
+
+		TableData second = cache.readCSV(csvFile, csvHandler);
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertNotSame(first, second);
+		assertEquals(csvHandler.readCSV(csvFile).getTableData()[0][0], second.getTableData()[0][0]);
+		assertNotSame(Object.class, second.getColumnClasses()[0]);
+	}
+
+	/**
+	 * Test that reading with different settings does not find the table read before
+	 */
+	@Test
+	public void testSettingsMiss() throws IOException {
+		TableCache cache = new TableCache(TableCache.DEFAULT_MAX_BYTES);
+		cache.readCSV(csvFile, csvHandler);
+		csvHandler.setFirstLineUsedAsColumnHeader(false);
+		cache.readCSV(csvFile, csvHandler);
+
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.getSize());
+	}
+
+	/**
+	 * Test that tables over the budget are pushed out to soft references and can still be found
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		TableCache cache = new TableCache(1);
+		cache.readCSV(csvFile, csvHandler);
+
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getBytes());
+		assertEquals(1, cache.getEvictions());
+
+		//the table is still softly reachable unless memory ran out in between
+		cache.readCSV(csvFile, csvHandler);
+		assertEquals(cache.getHits(), cache.getSoftHits());
+		assertEquals(2, cache.getHits() + cache.getMisses());
+	}
+}
@@ -0,0 +1,185 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.FileController;
+import com.jeremy.FileController.OutputType;
+import com.jeremy.FileUtility;
+import com.jeremy.SQLHandler.SQLType;
+import com.jeremy.TableData;
+import com.jeremy.TableDataCursor;
+
+/**
+ * A JUnit test class for the TableDataCursor class and the outputs FileController writes through it
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class TableDataCursorTest {
+	private TableData tblData;
+
+	@Before
+	public void testBefore() {
+		Object[][] data = {
+				{1, "one", 1.25},
+				{2, null, -10.5},
+				{3, "three", 3.0}
+				};
+		Class<?>[] classes = {Integer.class, String.class, Double.class};
+		String[] headers = {"id", "name", "amount"};
+
+		tblData = new TableData(data, classes, "cursor", headers, data.length, headers.length);
+	}
+
+	/**
+	 * Test that reading a cursor copies the rows and measures the columns
+	 */
+	@Test
+	public void testReadAll() throws IOException {
+		TableData copy = TableDataCursor.readAll(new TableDataCursor(tblData));
+
+		assertEquals(3, copy.getLines());
+		assertEquals("cursor", copy.getTableName());
+		assertArrayEquals(tblData.getTableData()[2], copy.getTableData()[2]);
+		assertNull(copy.getTableData()[1][1]);
+		assertEquals(5, copy.getFieldLength()[1]);
+		assertEquals(3, copy.getFieldLength()[2]);
+		assertEquals(2, copy.getFieldPrecision()[2]);
+	}
+
+	/**
+	 * Test that a table written as CSV reads back the same
+	 */
+	@Test
+	public void testOutputCSV() throws IOException {
+		File csvFile = File.createTempFile("cursor", ".csv");
+		File file = File.createTempFile("output", ".csv");
+		try {
+			String csv = "id,name,amount\n1,one,1.25\n2,,-10.5\n3,three,3.0\n";
+			FileUtility.writeFile(csvFile, csv);
+
+			FileController fc = new FileController(false);
+			fc.setFirstLineUsedAsColumnHeader(true);
+			fc.readFile(csvFile);
+			fc.outputData(file, OutputType.CSV);
+
+			assertEquals(csv, readFile(file));
+		} finally {
+			csvFile.delete();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test that an atomic conversion that fails once its output is open leaves the previous output as it
+	 * was, and that one that is not atomic deletes its partial output
+	 */
+	@Test
+	public void testFailedConversion() throws IOException {
+		File directory = Files.createTempDirectory("failed").toFile();
+		File csvFile = new File(directory, "missing.csv");
+		File sqlFile = new File(directory, "prev.sql");
+		FileUtility.writeFile(sqlFile, "previous");
+
+		FileController fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+		boolean atomicWrites = FileUtility.isAtomicWrites();
+		FileUtility.setAtomicWrites(true);
+		try {
+			fc.csvToSQLFile(csvFile, sqlFile, "db", SQLType.MYSQL, false, 0);
+			fail("The missing file was converted");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			FileUtility.setAtomicWrites(atomicWrites);
+		}
+		assertEquals("previous", readFile(sqlFile));
+		assertEquals(1, directory.list().length);
+
+		FileUtility.setAtomicWrites(false);
+		try {
+			fc.csvToSQLFile(csvFile, sqlFile, "db", SQLType.MYSQL, false, 0);
+			fail("The missing file was converted");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			FileUtility.setAtomicWrites(atomicWrites);
+		}
+		assertFalse(sqlFile.exists());
+		assertEquals(0, directory.list().length);
+	}
+
+	/**
+	 * Test that writing several outputs at once writes the same files as writing them one at a time
+	 */
+	@Test
+	public void testOutputDataParallel() throws IOException {
+		File directory = Files.createTempDirectory("parallel").toFile();
+		FileController fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+		fc.readFile(new File("TestData/LasDataSmall.csv"));
+
+		Map<OutputType, File> outputFiles = new EnumMap<OutputType, File>(OutputType.class);
+		for (OutputType outputType : new OutputType[] {OutputType.XML, OutputType.XML_SCHEMA, OutputType.CSV}) {
+			outputFiles.put(outputType, new File(directory, "parallel." + outputType));
+		}
+		fc.outputDataParallel(outputFiles, new File(directory, "parallel.sql"), "db", SQLType.MYSQL, true, -1);
+
+		for (Map.Entry<OutputType, File> entry : outputFiles.entrySet()) {
+			File file = new File(directory, "single." + entry.getKey());
+			fc.outputData(file, entry.getKey());
+			assertEquals(readFile(file), readFile(entry.getValue()));
+		}
+		File sqlFile = new File(directory, "single.sql");
+		fc.outputToSQLFile(sqlFile, "db", SQLType.MYSQL, true, -1);
+		assertEquals(readFile(sqlFile), readFile(new File(directory, "parallel.sql")));
+	}
+
+	/**
+	 * Test that writing to streams and channels writes the same as writing to files, and that a stream
+	 * converted with a declared schema reads the same as the file it came from
+	 */
+	@Test
+	public void testOutputDataStream() throws IOException {
+		File directory = Files.createTempDirectory("stream").toFile();
+		File csvFile = new File("TestData/LasDataSmall.csv");
+		FileController fc = new FileController(false);
+		fc.setFirstLineUsedAsColumnHeader(true);
+		fc.readFile(new FileInputStream(csvFile), "LasDataSmall");
+
+		for (OutputType outputType : new OutputType[] {OutputType.XML, OutputType.XML_SCHEMA, OutputType.CSV}) {
+			File file = new File(directory, "single." + outputType);
+			fc.outputData(file, outputType);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			fc.outputData(out, outputType);
+			assertEquals(readFile(file), out.toString("UTF-8"));
+
+			out.reset();
+			fc.outputData(Channels.newChannel(out), outputType);
+			assertEquals(readFile(file), out.toString("UTF-8"));
+		}
+
+		File xmlFile = new File(directory, "file.xml");
+		fc.csvToXML(csvFile, xmlFile);
+		fc.setSchema(new TableData(new Object[0][], fc.getColumnClasses(), null, fc.getColumnHeader(), 0,
+				fc.getFields(), fc.getFieldLength(), fc.getFieldPrecision()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fc.csvToStream(new FileInputStream(csvFile), "LasDataSmall", out, OutputType.XML);
+		assertEquals(readFile(xmlFile), out.toString("UTF-8"));
+	}
+
+	private static String readFile(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+}
@@ -0,0 +1,164 @@
+package com.jeremy.junit;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jeremy.CSVHandler;
+import com.jeremy.FileUtility;
+import com.jeremy.SQLHandler;
+import com.jeremy.TableData;
+import com.jeremy.TableDiff;
+import com.jeremy.SQLHandler.SQLType;
+
+/**
+ * A JUnit test class for the TableDiff class
+ * @author Ryan Kavanagh
+ * @version 1.0
+ */
+public class TableDiffTest {
+	private CSVHandler csvHandler;
+	private File oldFile;
+	private File newFile;
+
+	@Before
+	public void beforeTest() throws IOException {
+		csvHandler = new CSVHandler();
+		csvHandler.setFirstLineUsedAsColumnHeader(true);
+
+		oldFile = File.createTempFile("old", ".csv");
+		newFile = File.createTempFile("new", ".csv");
+		FileUtility.writeFile(oldFile, "id,name\n1,one\n2,two\n3,three\n");
+		FileUtility.writeFile(newFile, "id,name\n1,one\n3,THREE\n4,four\n");
+	}
+
+	@After
+	public void afterTest() {
+		oldFile.delete();
+		newFile.delete();
+	}
+
+	/**
+	 * Test that two tables in memory are split into inserts, updates and deletes
+	 */
+	@Test
+	public void testCompareTables() throws IOException {
+		TableData oldData = csvHandler.readCSV(oldFile);
+		TableData newData = csvHandler.readCSV(newFile);
+		assertChanges(TableDiff.compare(oldData, newData, 0));
+	}
+
+	/**
+	 * Test that comparing files by hash finds the same changes
+	 */
+	@Test
+	public void testCompareFilesHash() throws IOException {
+		assertChanges(TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.HASH));
+	}
+
+	/**
+	 * Test that comparing sorted files side by side finds the same changes
+	 */
+	@Test
+	public void testCompareFilesSortMerge() throws IOException {
+		assertChanges(TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.SORT_MERGE));
+	}
+
+	/**
+	 * Test that a file out of key order is rejected by a sort merge
+	 */
+	@Test(expected = IOException.class)
+	public void testSortMergeUnsorted() throws IOException {
+		FileUtility.writeFile(newFile, "id,name\n3,three\n1,one\n");
+		TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.SORT_MERGE);
+	}
+
+	/**
+	 * Test that files sorted by a numeric key are merged in numeric order
+	 */
+	@Test
+	public void testSortMergeNumericKeys() throws IOException {
+		FileUtility.writeFile(oldFile, "id,name\n1,one\n2,two\n10,ten\n");
+		FileUtility.writeFile(newFile, "id,name\n2,two\n9,nine\n10,TEN\n");
+		TableDiff diff = TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.SORT_MERGE);
+
+		assertEquals(1, diff.getInsertCount());
+		assertEquals("9", diff.getInserts().getTableData()[0][0].toString());
+		assertEquals(1, diff.getUpdateCount());
+		assertEquals("TEN", diff.getUpdates().getTableData()[0][1].toString());
+		assertEquals(Arrays.asList("1"), diff.getDeletedKeys());
+	}
+
+	/**
+	 * Test that a line with fewer fields than the header is rejected
+	 */
+	@Test(expected = IOException.class)
+	public void testShortLine() throws IOException {
+		FileUtility.writeFile(newFile, "id,name\n1,one\n3\n");
+		TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.HASH);
+	}
+
+	/**
+	 * Test the script written for the changes
+	 */
+	@Test
+	public void testDiffScript() throws IOException {
+		TableDiff diff = TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.HASH);
+		StringWriter writer = new StringWriter();
+		new SQLHandler(diff.getChanges()).writeDiffSQLFile(writer, "db", SQLType.POSTGRESQL, diff);
+
+		assertEquals("BEGIN;\n"
+				+ "INSERT INTO " + diff.getChanges().getTableName() + "(id, name) values ('4', 'four');\n"
+				+ "UPDATE " + diff.getChanges().getTableName() + " SET name = 'THREE' WHERE id = '3';\n"
+				+ "DELETE FROM " + diff.getChanges().getTableName() + " WHERE id = '2';\n"
+				+ "COMMIT;\n", writer.toString());
+	}
+
+	/**
+	 * Test that the merge and the deletes are run on one connection and committed together, and that both
+	 * are rolled back when the deletes fail
+	 */
+	@Test
+	public void testApplyDiff() throws Exception {
+		TableDiff diff = TableDiff.compare(oldFile, newFile, 0, csvHandler, TableDiff.Method.HASH);
+		String tableName = diff.getChanges().getTableName();
+		StubDriver driver = StubDriver.install();
+		try {
+			new SQLHandler(diff.getChanges()).applyDiff("", "db", SQLType.MYSQL, "user", "", diff);
+			List<String> statements = driver.getStatements();
+			assertTrue(statements.get(statements.size() - 3).startsWith("INSERT INTO " + tableName));
+			assertEquals("DELETE FROM " + tableName + " WHERE id = ?", statements.get(statements.size() - 2));
+			assertTrue(statements.get(statements.size() - 1).startsWith("DROP TABLE"));
+			assertEquals(1, driver.getCommits());
+
+			driver.setBatchFailure(new IllegalStateException("broken driver"));
+			try {
+				new SQLHandler(diff.getChanges()).applyDiff("", "db", SQLType.MYSQL, "user", "", diff);
+				fail("The failed deletes were not reported");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			assertEquals(1, driver.getCommits());
+			assertEquals(1, driver.getRollbacks());
+		} finally {
+			driver.uninstall();
+		}
+	}
+
+	private void assertChanges(TableDiff diff) {
+		assertEquals(1, diff.getInsertCount());
+		assertEquals("4", diff.getInserts().getTableData()[0][0].toString());
+		assertEquals(1, diff.getUpdateCount());
+		assertEquals("THREE", diff.getUpdates().getTableData()[0][1].toString());
+		assertEquals(1, diff.getDeleteCount());
+		assertEquals("2", diff.getDeletedKeys().get(0));
+	}
+}